@@ -0,0 +1,259 @@
+
+package com.shuttersky.liarsdice;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * BatchDispatcher gathers the requests for bids that tables make of
+ * {@link BatchPlayer}s of the same class, and delivers them as one batch.
+ * <p>
+ * The first request for a class opens a batch and waits up to the window for
+ * others to join; a full batch closes at once.  The request that opened the
+ * batch then calls <code>getBids</code> on its own thread and hands each
+ * waiting request its bid, so no thread is kept just for dispatching.  A
+ * request that times out leaves the batch to finish without it.
+ */
+class BatchDispatcher
+{
+    /**
+     * the most requests in one batch
+     */
+    static final int MAX_BATCH_SIZE = 256;
+
+    private final long _windowNanos;
+
+    /**
+     * the batch that is open for each player class, guarded by this
+     */
+    private final HashMap<Class<?>, Batch> _open = new HashMap<Class<?>, Batch>();
+
+
+    /**
+     * constructor.
+     *
+     * @param windowMicros long representing the most microseconds a request waits for others to join it.
+     */
+    BatchDispatcher(long windowMicros)
+    {
+        _windowNanos = windowMicros * 1000L;
+    }
+
+
+    /**
+     * Make a player that asks for its bids through this dispatcher.
+     * Only its <code>getBid</code> is meant to be called.
+     *
+     * @param player Player that implements BatchPlayer.
+     * @return Player whose getBid joins a batch.
+     */
+    Player forPlayer(final Player player)
+    {
+        return new Player()
+        {
+            public Bid getBid(RoundState rs, Cup cup)
+            {
+                return BatchDispatcher.this.getBid((BatchPlayer) player, rs, cup);
+            }
+
+            public void tellBid(RoundState rs)
+            {
+                player.tellBid(rs);
+            }
+
+            public void tellOutcome(RoundState rs, String sWinnerClassName, String sLoserClassName)
+            {
+                player.tellOutcome(rs, sWinnerClassName, sLoserClassName);
+            }
+
+            public String toString()
+            {
+                return "batched " + player;
+            }
+        };
+    }
+
+
+    /**
+     * Join the open batch for the player's class, or open one, and wait for the bid.
+     *
+     * @param player BatchPlayer being asked.
+     * @param rs     RoundState of the table.
+     * @param cup    Cup of the player.
+     * @return Bid for this request, or <code>null</code> if the batch failed.
+     */
+    Bid getBid(BatchPlayer player, RoundState rs, Cup cup)
+    {
+        Class<?> playerClass = player.getClass();
+        Batch batch = null;
+        boolean isLeader = false;
+        int iIndex = 0;
+
+        synchronized (this)
+        {
+            batch = _open.get(playerClass);
+            if (batch == null)
+            {
+                batch = new Batch(player);
+                _open.put(playerClass, batch);
+                isLeader = true;
+            }
+
+            iIndex = batch.add(rs, cup);
+            if (iIndex == MAX_BATCH_SIZE - 1)
+            {
+                _open.remove(playerClass);
+            }
+        }
+
+        try
+        {
+            if (isLeader)
+            {
+                try
+                {
+                    batch.awaitFull(System.nanoTime() + _windowNanos);
+                }
+                finally
+                {
+                    close(playerClass, batch);
+                }
+                batch.run();
+            }
+
+            return batch.awaitBid(iIndex);
+        }
+        catch (InterruptedException e)
+        {
+            // a leader that is interrupted still has to release the requests that joined it
+            if (isLeader)
+            {
+                batch.complete(null);
+            }
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+
+    /**
+     * Stop a batch taking requests, if it still is.
+     */
+    private synchronized void close(Class<?> playerClass, Batch batch)
+    {
+        if (_open.get(playerClass) == batch)
+        {
+            _open.remove(playerClass);
+        }
+    }
+
+
+    /**
+     * Batch is the requests gathered for one call to getBids.
+     */
+    private static class Batch
+    {
+        private final BatchPlayer _player;
+        private final RoundState[] _rs = new RoundState[MAX_BATCH_SIZE];
+        private final Cup[] _cups = new Cup[MAX_BATCH_SIZE];
+        private int _size = 0;
+        private Bid[] _bids = null;
+        private boolean _done = false;
+
+
+        Batch(BatchPlayer player)
+        {
+            _player = player;
+        }
+
+
+        /**
+         * @return int the index of the request in the batch.
+         */
+        synchronized int add(RoundState rs, Cup cup)
+        {
+            _rs[_size] = rs;
+            _cups[_size] = cup;
+            _size++;
+
+            if (_size == MAX_BATCH_SIZE)
+            {
+                notifyAll();
+            }
+
+            return _size - 1;
+        }
+
+
+        synchronized void awaitFull(long deadlineNanos) throws InterruptedException
+        {
+            long remainingNanos = 0;
+            while (_size < MAX_BATCH_SIZE && (remainingNanos = deadlineNanos - System.nanoTime()) > 0)
+            {
+                wait(remainingNanos / 1000000L, (int) (remainingNanos % 1000000L));
+            }
+        }
+
+
+        /**
+         * ask the player for every bid in the batch, and wake the requests, even if getBids throws an Error
+         */
+        void run()
+        {
+            RoundState[] rs = null;
+            Cup[] cups = null;
+            Bid[] bids = null;
+
+            synchronized (this)
+            {
+                rs = Arrays.copyOf(_rs, _size);
+                cups = Arrays.copyOf(_cups, _size);
+            }
+
+            GameServer.logger.finest("batch of " + rs.length + " for " + _player.getClass().getSimpleName());
+
+            try
+            {
+                bids = _player.getBids(rs, cups);
+                if (bids != null && bids.length != rs.length)
+                {
+                    GameServer.logger.warning(_player.getClass().getSimpleName() + " returned " + bids.length + " bids for a batch of " + rs.length);
+                    bids = null;
+                }
+            }
+            catch (RuntimeException e)
+            {
+                GameServer.logger.warning(_player.getClass().getSimpleName() + " threw an exception from getBids: " + e);
+            }
+            finally
+            {
+                complete(bids);
+            }
+        }
+
+
+        /**
+         * hand out the bids, or <code>null</code> bids if the batch failed, and wake the requests
+         */
+        synchronized void complete(Bid[] bids)
+        {
+            if (_done == false)
+            {
+                _bids = bids;
+                _done = true;
+                notifyAll();
+            }
+        }
+
+
+        synchronized Bid awaitBid(int iIndex) throws InterruptedException
+        {
+            while (_done == false)
+            {
+                wait();
+            }
+
+            return (_bids == null) ? null : _bids[iIndex];
+        }
+    }
+}
@@ -0,0 +1,31 @@
+
+package com.shuttersky.liarsdice;
+
+
+/**
+ * Players may implement this interface, in addition to {@link Player}, to be
+ * asked for many bids at once.  When a {@link TableManager} hosts several
+ * tables with a batch window, the requests for bids that players of the same
+ * class are waiting on are gathered for up to that window, and handed to
+ * <code>getBids</code> together, so that a bot can evaluate them with one
+ * matrix operation instead of one call each.
+ * <p>
+ * The batch is given to one of the instances that are waiting, and may hold
+ * requests from games that other instances of the class are playing.
+ * <code>getBids</code> should therefore decide from the RoundState and Cup it
+ * is given, not from what the instance was told during its own game.  The
+ * time spent waiting for the batch to fill counts against each player's time.
+ * Outside of a batch, the player is asked with <code>getBid</code> as usual.
+ */
+public interface BatchPlayer
+{
+    /**
+     * Give a bid for each request in the batch.
+     *
+     * @param rs   RoundState[] capturing the state of each table, with its bid deadline.
+     * @param cups Cup[] holding the cup of the player being asked at each table.
+     * @return Bid[] of the same length, where <code>null</code> loses the round at that table.
+     */
+    public abstract Bid[] getBids(RoundState[] rs, Cup[] cups);
+
+}
@@ -0,0 +1,377 @@
+
+package com.shuttersky.liarsdice;
+
+import java.util.List;
+
+/**
+ * BeliefTracker keeps a probability distribution over the dice hidden in each
+ * opponent's cup, and updates it as the opponents bid.
+ * <p>
+ * At the start of a round every possible hand (every histogram of faces for
+ * the number of dice the opponent holds) gets its rolling probability.  Each
+ * bid is then treated as evidence: a player is assumed to bid a face in
+ * proportion to how many of it they hold, plus a smoothing constant for
+ * bluffs.  Bayes' rule reweights the hands.  Call {@link #update(RoundState)}
+ * from <code>tellBid</code> and <code>getBid</code>.  It notices a new round by
+ * itself and only processes the bids it has not seen.
+ * <p>
+ * The hands and all posteriors live in arrays allocated in the constructor.
+ * An update or a query is loops over those arrays and does not allocate, so a
+ * player can query the beliefs thousands of times within its time budget.
+ */
+public class BeliefTracker
+{
+    /**
+     * if not overridden, the most players the tracker makes room for
+     */
+    public static final int DEFAULT_MAX_PLAYERS = 16;
+
+    /**
+     * if not overridden, the weight a face the bidder does not hold gets in the bid model
+     */
+    public static final double DEFAULT_BLUFF_WEIGHT = 1.0;
+
+    /**
+     * the tracker covers dice with the default number of sides
+     */
+    private static final int NUM_SIDES = Die.DEFAULT_NUM_SIDES;
+
+    /**
+     * member variables describing what is tracked
+     */
+    private final String _ownSimpleClassName;
+    private final int _maxDice;
+    private final int _maxPlayers;
+    private final double _bluffWeight;
+
+    /**
+     * _handCounts[k][h][face] is the histogram of hand h of k dice, and _prior[k][h] its rolling probability
+     */
+    private final int[][][] _handCounts;
+    private final double[][] _prior;
+
+    /**
+     * per seat state for the current round
+     */
+    private final double[][] _posterior;
+    private final int[] _seatDice;
+    private int _numPlayers = 0;
+    private int _ownSeat = -1;
+    private int _numBidsSeen = 0;
+    private RoundState _rs = null;
+
+    /**
+     * scratch space for combining seats
+     */
+    private double[] _sum;
+    private double[] _next;
+    private final double[] _marginal;
+
+
+    /**
+     * constructor for standard cups.
+     *
+     * @param ownSimpleClassName String representing the simple class name of the player using the tracker.
+     */
+    public BeliefTracker(String ownSimpleClassName)
+    {
+        this(ownSimpleClassName, Cup.DEFAULT_NUM_DICE, DEFAULT_MAX_PLAYERS, DEFAULT_BLUFF_WEIGHT);
+    }
+
+
+    /**
+     * constructor.
+     *
+     * @param ownSimpleClassName String representing the simple class name of the player using the tracker.
+     * @param maxDice            int representing the most dice a player may hold.
+     * @param maxPlayers         int representing the most players at the table.
+     * @param bluffWeight        double representing how much a bid on a face the bidder does not hold
+     *                           counts, compared to each die of the face the bidder does hold.
+     */
+    public BeliefTracker(String ownSimpleClassName, int maxDice, int maxPlayers, double bluffWeight)
+    {
+        _ownSimpleClassName = ownSimpleClassName;
+        _maxDice = maxDice;
+        _maxPlayers = maxPlayers;
+        _bluffWeight = bluffWeight;
+
+        // enumerate the hands of every size by walking the histograms in order
+        _handCounts = new int[maxDice + 1][][];
+        _prior = new double[maxDice + 1][];
+        int iMaxHands = 0;
+        for (int k = 0; k <= maxDice; k++)
+        {
+            int iNumHands = (int) choose(k + NUM_SIDES - 1, NUM_SIDES - 1);
+            _handCounts[k] = new int[iNumHands][NUM_SIDES + 1];
+            _prior[k] = new double[iNumHands];
+            iMaxHands = Math.max(iMaxHands, iNumHands);
+
+            int[] counts = new int[NUM_SIDES + 1];
+            counts[1] = k;
+            for (int h = 0; h < iNumHands; h++)
+            {
+                System.arraycopy(counts, 0, _handCounts[k][h], 0, counts.length);
+                _prior[k][h] = getMultinomial(counts, k);
+                nextHistogram(counts);
+            }
+        }
+
+        _posterior = new double[maxPlayers][iMaxHands];
+        _seatDice = new int[maxPlayers];
+        _sum = new double[maxPlayers * maxDice + 1];
+        _next = new double[maxPlayers * maxDice + 1];
+        _marginal = new double[maxDice + 1];
+    }
+
+
+    /**
+     * Bring the beliefs up to date with a round.  Starts over when the round is new.
+     *
+     * @param rs RoundState capturing the state of the table for this round.
+     */
+    public void update(RoundState rs)
+    {
+        if (rs != _rs || rs.getNumBids() < _numBidsSeen)
+        {
+            reset(rs);
+        }
+
+        List<Bid> bids = rs.getBids();
+        while (_numBidsSeen < bids.size())
+        {
+            observe(_numBidsSeen % _numPlayers, bids.get(_numBidsSeen));
+            _numBidsSeen++;
+        }
+    }
+
+
+    /**
+     * @return int the seat of the player using the tracker in the current round, -1 if they are not playing.
+     */
+    public int getOwnSeat()
+    {
+        return _ownSeat;
+    }
+
+
+    /**
+     * The probability that the player in a seat holds exactly <code>count</code> dice showing <code>face</code>.
+     *
+     * @param seat  int representing the seat, in the order of the RoundState.
+     * @param face  int representing the dots.
+     * @param count int representing the number of dice.
+     * @return double between 0 and 1.
+     */
+    public double getFaceCountProbability(int seat, int face, int count)
+    {
+        if (count < 0 || count > _seatDice[seat])
+        {
+            return 0;
+        }
+
+        fillMarginal(seat, face);
+        return _marginal[count];
+    }
+
+
+    /**
+     * The probability that all opponents together hold at least <code>needed</code> dice showing <code>face</code>.
+     *
+     * @param face   int representing the dots.
+     * @param needed int representing the number of dice.
+     * @return double between 0 and 1.
+     */
+    public double getOpponentProbabilityAtLeast(int face, int needed)
+    {
+        if (needed <= 0)
+        {
+            return 1;
+        }
+
+        // convolve the seats' marginals one at a time
+        int iMax = 0;
+        _sum[0] = 1;
+        for (int s = 0; s < _numPlayers; s++)
+        {
+            if (s == _ownSeat)
+            {
+                continue;
+            }
+
+            fillMarginal(s, face);
+            int k = _seatDice[s];
+            for (int i = 0; i <= iMax + k; i++)
+            {
+                _next[i] = 0;
+            }
+            for (int i = 0; i <= iMax; i++)
+            {
+                if (_sum[i] == 0)
+                {
+                    continue;
+                }
+                for (int j = 0; j <= k; j++)
+                {
+                    _next[i + j] += _sum[i] * _marginal[j];
+                }
+            }
+            iMax += k;
+
+            double[] swap = _sum;
+            _sum = _next;
+            _next = swap;
+        }
+
+        double dTail = 0;
+        for (int i = needed; i <= iMax; i++)
+        {
+            dTail += _sum[i];
+        }
+        return Math.min(1, dTail);
+    }
+
+
+    /**
+     * The probability that a bid is true, given your own cup and the beliefs about everyone else's.
+     *
+     * @param cup      Cup representing your own dice.
+     * @param quantity int representing the quantity of dice in the bid.
+     * @param dots     int representing the number of dots in the bid.
+     * @return double between 0 and 1.
+     */
+    public double getBidProbability(Cup cup, int quantity, int dots)
+    {
+        return getOpponentProbabilityAtLeast(dots, quantity - cup.getNumDice(dots));
+    }
+
+
+    /**
+     * start over with the rolling probabilities for a new round
+     */
+    private void reset(RoundState rs)
+    {
+        _rs = rs;
+        _numBidsSeen = 0;
+        _numPlayers = Math.min(rs.getNumPlayers(), _maxPlayers);
+        _ownSeat = rs.getPlayerSimpleClassNames().indexOf(_ownSimpleClassName);
+
+        for (int s = 0; s < _numPlayers; s++)
+        {
+            _seatDice[s] = Math.min(rs.getNumDice(s), _maxDice);
+            System.arraycopy(_prior[_seatDice[s]], 0, _posterior[s], 0, _prior[_seatDice[s]].length);
+        }
+    }
+
+
+    /**
+     * reweight the hands of the bidder by how likely each hand is to make the bid
+     */
+    private void observe(int seat, Bid bid)
+    {
+        if (bid.isBS() || seat == _ownSeat || seat >= _numPlayers)
+        {
+            return;
+        }
+
+        int k = _seatDice[seat];
+        int iFace = bid.getDots();
+        int[][] hands = _handCounts[k];
+        double[] posterior = _posterior[seat];
+        double dTotal = 0;
+
+        for (int h = 0; h < hands.length; h++)
+        {
+            posterior[h] *= (hands[h][iFace] + _bluffWeight) / (k + NUM_SIDES * _bluffWeight);
+            dTotal += posterior[h];
+        }
+
+        if (dTotal > 0)
+        {
+            for (int h = 0; h < hands.length; h++)
+            {
+                posterior[h] /= dTotal;
+            }
+        }
+    }
+
+
+    /**
+     * fill _marginal with the distribution of the count of a face in one seat
+     */
+    private void fillMarginal(int seat, int face)
+    {
+        int k = _seatDice[seat];
+        int[][] hands = _handCounts[k];
+        double[] posterior = _posterior[seat];
+
+        for (int c = 0; c <= k; c++)
+        {
+            _marginal[c] = 0;
+        }
+        for (int h = 0; h < hands.length; h++)
+        {
+            _marginal[hands[h][face]] += posterior[h];
+        }
+    }
+
+
+    /**
+     * step to the next histogram of the same size, in reverse lexicographic order
+     */
+    private static void nextHistogram(int[] counts)
+    {
+        // find the last face, other than the final one, that still has dice
+        int f = NUM_SIDES - 1;
+        while (f >= 1 && counts[f] == 0)
+        {
+            f--;
+        }
+        if (f < 1)
+        {
+            return;
+        }
+
+        // move one die to the next face and gather the rest of the tail there
+        int iTail = counts[NUM_SIDES];
+        counts[NUM_SIDES] = 0;
+        counts[f]--;
+        counts[f + 1] += 1 + iTail;
+    }
+
+
+    /**
+     * the probability of rolling a histogram: k! / (c1! ... c6!) / 6^k
+     */
+    private static double getMultinomial(int[] counts, int k)
+    {
+        double d = 1;
+        int iPlaced = 0;
+
+        for (int f = 1; f <= NUM_SIDES; f++)
+        {
+            for (int i = 1; i <= counts[f]; i++)
+            {
+                iPlaced++;
+                d *= (double) iPlaced / i;
+            }
+        }
+
+        return d / Math.pow(NUM_SIDES, k);
+    }
+
+
+    /**
+     * n choose k
+     */
+    private static long choose(int n, int k)
+    {
+        long l = 1;
+
+        for (int i = 1; i <= k; i++)
+        {
+            l = l * (n - k + i) / i;
+        }
+
+        return l;
+    }
+}
@@ -0,0 +1,201 @@
+
+package com.shuttersky.liarsdice;
+
+/**
+ * BidProbability tells a player how likely it is that a bid is true, given the
+ * dice in their own cup and the number of dice left in the round.
+ * <p>
+ * Every die that is not in your cup shows the bid's dots with probability
+ * 1/sides, so the number of matching unknown dice is binomially distributed.
+ * The cumulative tails of those distributions are computed once, when the class
+ * is loaded, for every number of unknown dice up to {@link #MAX_UNKNOWN_DICE} and
+ * every number of sides a {@link Die} may have.  A lookup is an array access: it
+ * does not allocate, and the tables are never written after they are built, so
+ * they may be shared by any number of threads and players.
+ * <p>
+ * Example: you hold 2, 2, 5 and there are 10 dice left in the round.  The
+ * probability that "four 2's" is true is the probability that at least 2 of
+ * the 7 unknown dice show a 2:
+ * <pre>
+ *     double d = BidProbability.getProbability(cup, rs.getNumDiceTotal(), 4, 2);
+ * </pre>
+ */
+public final class BidProbability
+{
+    /**
+     * the largest number of unknown dice covered by the tables.  Larger rounds
+     * are computed directly, which is slower but still does not allocate.
+     */
+    public static final int MAX_UNKNOWN_DICE = 128;
+
+    /**
+     * bounds of the number of sides covered by the tables
+     */
+    private static final int MIN_SIDES = 2;
+    private static final int MAX_SIDES = Die.DEFAULT_NUM_SIDES;
+
+    /**
+     * width of a row in a table.  A row holds the tail for needed counts 0 through MAX_UNKNOWN_DICE + 1.
+     */
+    private static final int ROW_WIDTH = MAX_UNKNOWN_DICE + 2;
+
+    /**
+     * _tail[sides - MIN_SIDES][unknown * ROW_WIDTH + needed] is the probability
+     * that at least <code>needed</code> of <code>unknown</code> dice show a given face.
+     */
+    private static final double[][] _tail = new double[MAX_SIDES - MIN_SIDES + 1][];
+
+    static
+    {
+        for (int iSides = MIN_SIDES; iSides <= MAX_SIDES; iSides++)
+        {
+            _tail[iSides - MIN_SIDES] = buildTable(iSides);
+        }
+    }
+
+    /**
+     * no instances, all methods are static
+     */
+    private BidProbability()
+    {
+    }
+
+
+    /**
+     * The probability that at least <code>numNeeded</code> of <code>numUnknownDice</code>
+     * dice show one particular face.
+     *
+     * @param numUnknownDice int representing the number of dice whose faces are unknown.
+     * @param numNeeded      int representing how many of them must show the face.
+     * @param numSides       int representing the number of sides on each die.
+     * @return double between 0 and 1.
+     */
+    public static double getProbabilityAtLeast(int numUnknownDice, int numNeeded, int numSides)
+    {
+        if (numNeeded <= 0)
+        {
+            return 1.0;
+        }
+
+        if (numNeeded > numUnknownDice)
+        {
+            return 0.0;
+        }
+
+        if (numUnknownDice <= MAX_UNKNOWN_DICE && numSides >= MIN_SIDES && numSides <= MAX_SIDES)
+        {
+            return _tail[numSides - MIN_SIDES][numUnknownDice * ROW_WIDTH + numNeeded];
+        }
+
+        return computeProbabilityAtLeast(numUnknownDice, numNeeded, numSides);
+    }
+
+
+    /**
+     * The probability that a bid of <code>quantity</code> dice showing <code>dots</code> is true,
+     * knowing only the contents of your own cup.
+     *
+     * @param cup          Cup representing your own dice.
+     * @param numDiceTotal int representing the number of dice left in the round, see {@link RoundState#getNumDiceTotal()}.
+     * @param quantity     int representing the quantity of dice in the bid.
+     * @param dots         int representing the number of dots in the bid.
+     * @return double between 0 and 1.
+     */
+    public static double getProbability(Cup cup, int numDiceTotal, int quantity, int dots)
+    {
+        int iNumUnknown = numDiceTotal - cup.getNumDice();
+
+        return getProbabilityAtLeast(iNumUnknown, quantity - cup.getNumDice(dots), cup.getNumSides());
+    }
+
+
+    /**
+     * The probability that a bid is true, knowing only the contents of your own cup.
+     *
+     * @param bid Bid to evaluate.
+     * @param cup Cup representing your own dice.
+     * @param rs  RoundState capturing the state of the table for this round.
+     * @return double between 0 and 1.
+     * <code>-1</code> if the bid is b.s.
+     */
+    public static double getProbability(Bid bid, Cup cup, RoundState rs)
+    {
+        if (bid.isBS())
+        {
+            return -1;
+        }
+
+        return getProbability(cup, rs.getNumDiceTotal(), bid.getNumDice(), bid.getDots());
+    }
+
+
+    /**
+     * build the cumulative tail table for dice with the given number of sides.
+     */
+    private static double[] buildTable(int iSides)
+    {
+        double[] table = new double[(MAX_UNKNOWN_DICE + 1) * ROW_WIDTH];
+        double[] pmf = new double[MAX_UNKNOWN_DICE + 1];
+        double p = 1.0 / iSides;
+
+        for (int iUnknown = 0; iUnknown <= MAX_UNKNOWN_DICE; iUnknown++)
+        {
+            // binomial probabilities of exactly k matching dice
+            pmf[0] = Math.pow(1 - p, iUnknown);
+            for (int k = 1; k <= iUnknown; k++)
+            {
+                pmf[k] = pmf[k - 1] * (iUnknown - k + 1) / k * p / (1 - p);
+            }
+
+            // accumulate from the top so that small tails keep their precision
+            int iRow = iUnknown * ROW_WIDTH;
+            double dTail = 0;
+            table[iRow + iUnknown + 1] = 0;
+            for (int k = iUnknown; k >= 0; k--)
+            {
+                dTail += pmf[k];
+                table[iRow + k] = Math.min(1.0, dTail);
+            }
+        }
+
+        return table;
+    }
+
+
+    /**
+     * compute a tail that is not covered by the tables
+     */
+    private static double computeProbabilityAtLeast(int numUnknownDice, int numNeeded, int numSides)
+    {
+        double p = 1.0 / numSides;
+
+        // start from the log of the probability of exactly numNeeded matches to avoid underflow
+        double dLog = logChoose(numUnknownDice, numNeeded) + numNeeded * Math.log(p) + (numUnknownDice - numNeeded) * Math.log(1 - p);
+        double dTerm = Math.exp(dLog);
+        double dTail = 0;
+
+        for (int k = numNeeded; k <= numUnknownDice && dTerm > 0; k++)
+        {
+            dTail += dTerm;
+            dTerm *= (double) (numUnknownDice - k) / (k + 1) * p / (1 - p);
+        }
+
+        return Math.min(1.0, dTail);
+    }
+
+
+    /**
+     * the natural log of n choose k
+     */
+    private static double logChoose(int n, int k)
+    {
+        double d = 0;
+
+        for (int i = 1; i <= k; i++)
+        {
+            d += Math.log(n - k + i) - Math.log(i);
+        }
+
+        return d;
+    }
+}
@@ -0,0 +1,515 @@
+
+package com.shuttersky.liarsdice;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * CfrTrainer computes a strategy for small liar's dice tables with Monte Carlo
+ * counterfactual regret minimization (external sampling), and writes the
+ * average strategy to a {@link StrategyTable} file.
+ * <p>
+ * A training game is one round played by the rules the GameServer enforces:
+ * the first bid may not be b.s., every bid must be higher than the last, and
+ * when b.s. is called the loser of the showdown loses a die.  The loser scores
+ * -1 and the other players share +1.  Every iteration picks a dice count for
+ * each seat, deals the dice, and lets every seat take a turn as the traverser.
+ * <p>
+ * The regrets and the strategy sums are two arrays allocated once for the whole
+ * abstraction, so memory does not grow no matter how long training runs.  Worker
+ * threads update the arrays without locking.  An occasional lost update only
+ * adds a little noise to the sampling, and avoiding the locks is what lets the
+ * trainer keep every core busy.  Between epochs the arrays are written to a
+ * checkpoint file, and a restarted trainer resumes from it.
+ * <p>
+ * The trainer is configured with properties:
+ * <pre>
+ * java -Dplayers=2 -Dmaxdice=2 [ -Drecall=2 ] [ -Dwindow=6 ] [ -Diterations=1000000 ]
+ *      [ -Dthreads=_number of cores_ ] [ -Dcheckpointevery=100000 ]
+ *      [ -Dcheckpoint=cfr.checkpoint ] [ -Doutput=strategy.cfr ]
+ *      com.shuttersky.liarsdice.CfrTrainer
+ * </pre>
+ */
+public class CfrTrainer
+{
+    /**
+     * the strategy table file written when training is done, unless overridden with PROPERTY_OUTPUT
+     */
+    public static final String DEFAULT_OUTPUT = "strategy.cfr";
+
+    /**
+     * property names and their defaults
+     */
+    private static final String PROPERTY_PLAYERS = "players";
+    private static final String PROPERTY_MAX_DICE = "maxdice";
+    private static final String PROPERTY_RECALL = "recall";
+    private static final String PROPERTY_WINDOW = "window";
+    private static final String PROPERTY_ITERATIONS = "iterations";
+    private static final String PROPERTY_THREADS = "threads";
+    private static final String PROPERTY_CHECKPOINT = "checkpoint";
+    private static final String PROPERTY_CHECKPOINT_EVERY = "checkpointevery";
+    private static final String PROPERTY_OUTPUT = "output";
+    private static final int DEFAULT_PLAYERS = 2;
+    private static final int DEFAULT_MAX_DICE = 2;
+    private static final int DEFAULT_RECALL = 2;
+    private static final int DEFAULT_WINDOW = 6;
+    private static final long DEFAULT_ITERATIONS = 1000000;
+    private static final long DEFAULT_CHECKPOINT_EVERY = 100000;
+    private static final String DEFAULT_CHECKPOINT = "cfr.checkpoint";
+
+    /**
+     * identifies a checkpoint file
+     */
+    private static final int CHECKPOINT_MAGIC = 0x4C444350;
+
+    /**
+     * member variables describing the training run
+     */
+    private final StrategyTable _table;
+    private final int _numThreads;
+    private final float[] _regrets;
+    private final double[] _strategySums;
+    private long _iterations = 0;
+
+
+    /**
+     * constructor.
+     *
+     * @param table      StrategyTable describing the abstraction to train.
+     * @param numThreads int representing the number of worker threads.
+     */
+    public CfrTrainer(StrategyTable table, int numThreads)
+    {
+        _table = table;
+        _numThreads = numThreads;
+
+        int iSize = (int) (table.getNumInfoSets() * table.getNumActions());
+        _regrets = new float[iSize];
+        _strategySums = new double[iSize];
+    }
+
+
+    /**
+     * Trains with the properties described in the class comment.
+     *
+     * @param args command line parameters are not currently used
+     */
+    public static void main(String[] args)
+    {
+        GameServer.setupLogger();
+        GameServer.logger.entering("CfrTrainer", "main");
+
+        try
+        {
+            StrategyTable table = new StrategyTable(
+                Integer.getInteger(PROPERTY_PLAYERS, DEFAULT_PLAYERS),
+                Integer.getInteger(PROPERTY_MAX_DICE, DEFAULT_MAX_DICE),
+                Integer.getInteger(PROPERTY_RECALL, DEFAULT_RECALL),
+                Integer.getInteger(PROPERTY_WINDOW, DEFAULT_WINDOW));
+            long lIterations = Long.getLong(PROPERTY_ITERATIONS, DEFAULT_ITERATIONS);
+            long lCheckpointEvery = Long.getLong(PROPERTY_CHECKPOINT_EVERY, DEFAULT_CHECKPOINT_EVERY);
+            int iThreads = Integer.getInteger(PROPERTY_THREADS, Runtime.getRuntime().availableProcessors());
+            String sCheckpoint = System.getProperty(PROPERTY_CHECKPOINT, DEFAULT_CHECKPOINT);
+            String sOutput = System.getProperty(PROPERTY_OUTPUT, DEFAULT_OUTPUT);
+
+            System.out.println("training " + table.getNumInfoSets() + " information sets on " + iThreads + " threads");
+
+            CfrTrainer trainer = new CfrTrainer(table, iThreads);
+            if (new File(sCheckpoint).exists())
+            {
+                trainer.readCheckpoint(sCheckpoint);
+                System.out.println("resumed after " + trainer._iterations + " iterations");
+            }
+
+            while (trainer._iterations < lIterations)
+            {
+                long lStart = System.nanoTime();
+                long lEpoch = Math.min(lCheckpointEvery, lIterations - trainer._iterations);
+
+                trainer.train(lEpoch);
+                trainer.writeCheckpoint(sCheckpoint);
+
+                System.out.println(trainer._iterations + " iterations, " + (long) (lEpoch / ((System.nanoTime() - lStart) / 1.0e9)) + " per second");
+            }
+
+            trainer.writeStrategy(sOutput);
+            System.out.println("wrote " + sOutput);
+        }
+        catch (Exception e)
+        {
+            GameServer.logger.severe("training failed: " + e);
+            System.err.println("training failed: " + e);
+            System.exit(-1);
+        }
+
+        GameServer.logger.exiting("CfrTrainer", "main");
+    }
+
+
+    /**
+     * Run iterations on the worker threads and wait for them to finish.
+     *
+     * @param numIterations long representing the number of iterations to run.
+     * @throws Exception if a worker fails.
+     */
+    public void train(long numIterations)
+        throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(_numThreads);
+        SplittableRandom random = new SplittableRandom(_iterations ^ System.nanoTime());
+
+        try
+        {
+            ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < _numThreads; i++)
+            {
+                long lShare = numIterations / _numThreads + (i < numIterations % _numThreads ? 1 : 0);
+                futures.add(executor.submit(new Worker(random.split(), lShare)));
+            }
+
+            for (Future<?> future : futures)
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        _iterations += numIterations;
+    }
+
+
+    /**
+     * Write the average strategy to a table file.
+     *
+     * @param fileName String representing the name of the table file.
+     * @throws IOException if the file can not be written.
+     */
+    public void writeStrategy(String fileName)
+        throws IOException
+    {
+        _table.write(fileName, _strategySums);
+    }
+
+
+    /**
+     * Save the regrets and strategy sums.  The file is written next to the
+     * checkpoint and then moved over it, so a crash never leaves a torn checkpoint.
+     *
+     * @param fileName String representing the name of the checkpoint file.
+     * @throws IOException if the file can not be written.
+     */
+    public void writeCheckpoint(String fileName)
+        throws IOException
+    {
+        File temp = new File(fileName + ".tmp");
+
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw"); FileChannel channel = raf.getChannel())
+        {
+            raf.setLength(0);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+            buffer.putInt(CHECKPOINT_MAGIC).putLong(_table.getNumInfoSets()).putInt(_table.getNumActions()).putLong(_iterations);
+
+            for (int i = 0; i < _regrets.length; i++)
+            {
+                if (buffer.remaining() < Float.BYTES)
+                {
+                    flush(channel, buffer);
+                }
+                buffer.putFloat(_regrets[i]);
+            }
+            for (int i = 0; i < _strategySums.length; i++)
+            {
+                if (buffer.remaining() < Double.BYTES)
+                {
+                    flush(channel, buffer);
+                }
+                buffer.putDouble(_strategySums[i]);
+            }
+            flush(channel, buffer);
+            channel.force(true);
+        }
+
+        Files.move(temp.toPath(), new File(fileName).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    /**
+     * Restore the regrets and strategy sums from a checkpoint.
+     *
+     * @param fileName String representing the name of the checkpoint file.
+     * @throws Exception if the file can not be read or was written for a different abstraction.
+     */
+    public void readCheckpoint(String fileName)
+        throws Exception
+    {
+        try (RandomAccessFile raf = new RandomAccessFile(fileName, "r"); FileChannel channel = raf.getChannel())
+        {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+            buffer.limit(0);
+            fill(channel, buffer);
+
+            if (buffer.getInt() != CHECKPOINT_MAGIC || buffer.getLong() != _table.getNumInfoSets() || buffer.getInt() != _table.getNumActions())
+            {
+                throw new Exception(fileName + " is not a checkpoint for this abstraction");
+            }
+            _iterations = buffer.getLong();
+
+            for (int i = 0; i < _regrets.length; i++)
+            {
+                if (buffer.remaining() < Float.BYTES)
+                {
+                    fill(channel, buffer);
+                }
+                _regrets[i] = buffer.getFloat();
+            }
+            for (int i = 0; i < _strategySums.length; i++)
+            {
+                if (buffer.remaining() < Double.BYTES)
+                {
+                    fill(channel, buffer);
+                }
+                _strategySums[i] = buffer.getDouble();
+            }
+        }
+    }
+
+
+    /**
+     * @return long the number of iterations trained so far, including those restored from a checkpoint.
+     */
+    public long getIterations()
+    {
+        return _iterations;
+    }
+
+
+    private static void flush(FileChannel channel, ByteBuffer buffer)
+        throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+
+    private static void fill(FileChannel channel, ByteBuffer buffer)
+        throws IOException
+    {
+        buffer.compact();
+        while (buffer.hasRemaining() && channel.read(buffer) > 0)
+        {
+            // keep reading until the buffer is full or the file ends
+        }
+        buffer.flip();
+    }
+
+
+    /**
+     * A Worker runs iterations with its own random numbers and scratch arrays,
+     * so the only memory the workers share are the regrets and strategy sums.
+     */
+    private class Worker implements Runnable
+    {
+        private final SplittableRandom _random;
+        private final long _numIterations;
+        private final int _numPlayers;
+        private final int _numActions;
+        private final int[] _seatDice;
+        private final int[][] _counts;
+        private final int[] _rolls;
+        private final int[] _totals;
+        private final double[][] _strategy;
+        private final double[][] _utility;
+        private int _config;
+
+        Worker(SplittableRandom random, long numIterations)
+        {
+            _random = random;
+            _numIterations = numIterations;
+            _numPlayers = _table.getNumPlayers();
+            _numActions = _table.getNumActions();
+            _seatDice = new int[_numPlayers];
+            _counts = new int[_numPlayers][StrategyTable.NUM_SIDES + 1];
+            _rolls = new int[_numPlayers];
+            _totals = new int[StrategyTable.NUM_SIDES + 1];
+
+            // one row of scratch space per bid, plus the call
+            int iMaxDepth = StrategyTable.NUM_SIDES * _numPlayers * _table.getMaxDice() + 2;
+            _strategy = new double[iMaxDepth][_numActions];
+            _utility = new double[iMaxDepth][_numActions];
+        }
+
+        public void run()
+        {
+            for (long i = 0; i < _numIterations; i++)
+            {
+                deal();
+                for (int iTraverser = 0; iTraverser < _numPlayers; iTraverser++)
+                {
+                    traverse(iTraverser, 0, -1, -1, 0);
+                }
+            }
+        }
+
+        /**
+         * pick the dice counts for the seats and roll their dice
+         */
+        private void deal()
+        {
+            _config = _random.nextInt(_table.getNumConfigs());
+            _table.getConfigDice(_config, _seatDice);
+
+            for (int d = 1; d <= StrategyTable.NUM_SIDES; d++)
+            {
+                _totals[d] = 0;
+            }
+            for (int s = 0; s < _numPlayers; s++)
+            {
+                for (int d = 1; d <= StrategyTable.NUM_SIDES; d++)
+                {
+                    _counts[s][d] = 0;
+                }
+                for (int i = 0; i < _seatDice[s]; i++)
+                {
+                    int d = _random.nextInt(StrategyTable.NUM_SIDES) + 1;
+                    _counts[s][d]++;
+                    _totals[d]++;
+                }
+                _rolls[s] = _table.getRollIndex(_counts[s]);
+            }
+        }
+
+        /**
+         * external sampling: every action of the traverser is explored, the
+         * other seats sample one action from their current strategy.
+         *
+         * @return double the traverser's expected utility from this node.
+         */
+        private double traverse(int iTraverser, int iSeat, int iLast, int iPrev, int iDepth)
+        {
+            int iNumDiceTotal = 0;
+            for (int s = 0; s < _numPlayers; s++)
+            {
+                iNumDiceTotal += _seatDice[s];
+            }
+            int iMaxBid = StrategyTable.NUM_SIDES * iNumDiceTotal - 1;
+            int iBase = _table.getInfoSet(_config, iSeat, _rolls[iSeat], iLast, iPrev) * _numActions;
+            double[] strategy = _strategy[iDepth];
+
+            // regret matching over the legal actions
+            double dPositive = 0;
+            int iLegal = 0;
+            for (int a = 0; a < _numActions; a++)
+            {
+                strategy[a] = 0;
+                if (StrategyTable.isLegal(a, iLast, iMaxBid))
+                {
+                    iLegal++;
+                    strategy[a] = Math.max(0, _regrets[iBase + a]);
+                    dPositive += strategy[a];
+                }
+            }
+            for (int a = 0; a < _numActions; a++)
+            {
+                if (StrategyTable.isLegal(a, iLast, iMaxBid))
+                {
+                    strategy[a] = (dPositive > 0) ? strategy[a] / dPositive : 1.0 / iLegal;
+                }
+            }
+
+            if (iSeat == iTraverser)
+            {
+                double[] utility = _utility[iDepth];
+                double dNode = 0;
+                for (int a = 0; a < _numActions; a++)
+                {
+                    if (StrategyTable.isLegal(a, iLast, iMaxBid))
+                    {
+                        utility[a] = act(iTraverser, iSeat, iLast, a, iDepth);
+                        dNode += strategy[a] * utility[a];
+                    }
+                }
+
+                // regret matching plus: negative regrets are floored at zero
+                for (int a = 0; a < _numActions; a++)
+                {
+                    if (StrategyTable.isLegal(a, iLast, iMaxBid))
+                    {
+                        _regrets[iBase + a] = (float) Math.max(0, _regrets[iBase + a] + utility[a] - dNode);
+                    }
+                }
+
+                return dNode;
+            }
+
+            // the other seats contribute to the average strategy and sample their action
+            double dTarget = _random.nextDouble();
+            int iChosen = -1;
+            for (int a = 0; a < _numActions; a++)
+            {
+                if (StrategyTable.isLegal(a, iLast, iMaxBid))
+                {
+                    _strategySums[iBase + a] += strategy[a];
+                    dTarget -= strategy[a];
+                    if (iChosen < 0 && dTarget < 0)
+                    {
+                        iChosen = a;
+                    }
+                }
+            }
+            if (iChosen < 0)
+            {
+                // rounding left a sliver of probability, take the last legal action
+                for (int a = _numActions - 1; a >= 0 && iChosen < 0; a--)
+                {
+                    if (StrategyTable.isLegal(a, iLast, iMaxBid))
+                    {
+                        iChosen = a;
+                    }
+                }
+            }
+
+            return act(iTraverser, iSeat, iLast, iChosen, iDepth);
+        }
+
+        /**
+         * the traverser's utility after iSeat takes an action
+         */
+        private double act(int iTraverser, int iSeat, int iLast, int action, int iDepth)
+        {
+            if (action != 0)
+            {
+                return traverse(iTraverser, (iSeat + 1) % _numPlayers, iLast + action, iLast, iDepth + 1);
+            }
+
+            // b.s.: a true bid costs the caller a die, a false one costs the bidder
+            int iQuantity = iLast / StrategyTable.NUM_SIDES + 1;
+            int iDots = iLast % StrategyTable.NUM_SIDES + 1;
+            int iBidder = (iSeat + _numPlayers - 1) % _numPlayers;
+            int iLoser = (_totals[iDots] >= iQuantity) ? iSeat : iBidder;
+
+            if (iLoser == iTraverser)
+            {
+                return -1;
+            }
+            return 1.0 / (_numPlayers - 1);
+        }
+    }
+}
@@ -84,6 +84,23 @@ public class Cup implements java.io.Serializable
     }
 
 
+    /**
+     * Get the number of sides on the dice in the cup.
+     *
+     * @return The number of sides on each die in the cup.  If the cup is empty,
+     * the default number of sides.
+     */
+    public int getNumSides()
+    {
+        if (_dice.isEmpty())
+        {
+            return Die.DEFAULT_NUM_SIDES;
+        }
+
+        return _dice.get(0).getSides();
+    }
+
+
     /**
      * Randomize all of the dice in the cup.  Resort the dice.
      */
@@ -98,6 +115,23 @@ public class Cup implements java.io.Serializable
     }
 
 
+    /**
+     * Roll all of the dice in the cup with a stream of random numbers,
+     * so that the roll can be repeated.  Resort the dice.
+     *
+     * @param stream DiceStream to roll with.
+     */
+    protected void shake(DiceStream stream)
+    {
+        for (Die die : _dice)
+        {
+            die.roll(stream);
+        }
+
+        Collections.sort(_dice);
+    }
+
+
     /**
      * Get a list containing the dice in the cup
      *
@@ -0,0 +1,76 @@
+
+package com.shuttersky.liarsdice;
+
+/**
+ * DiceStream is the random number generator that rolls one player's dice
+ * in a game that can be replayed.  It is a SplitMix64 generator, so its
+ * whole state is one long that can be copied along with the game.
+ * <p>
+ * Each player gets a stream of its own, derived from the game's seed and the
+ * player's number, so the dice a player rolls do not depend on how many dice
+ * the other players still have.
+ */
+final class DiceStream
+{
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long _state;
+
+
+    /**
+     * constructor.
+     *
+     * @param lSeed   long representing the seed of the game.
+     * @param iPlayer int representing the number of the player whose dice this stream rolls.
+     */
+    DiceStream(long lSeed, int iPlayer)
+    {
+        _state = derive(lSeed, iPlayer);
+    }
+
+
+    /**
+     * copy constructor.  The copy rolls the same dice as the original from here on.
+     */
+    DiceStream(DiceStream stream)
+    {
+        _state = stream._state;
+    }
+
+
+    /**
+     * Roll a die.
+     *
+     * @param iSides int representing the number of sides of the die.
+     * @return int from 1 to iSides.
+     */
+    int roll(int iSides)
+    {
+        _state += GOLDEN_GAMMA;
+        long l = mix(_state);
+
+        // the high bits are the best ones, and the bias is far too small to matter
+        return (int) (((l >>> 32) * iSides) >>> 32) + 1;
+    }
+
+
+    /**
+     * Derive an independent seed, for instance for each game of a tournament from the tournament's seed.
+     *
+     * @param lSeed  long representing the seed to derive from.
+     * @param lIndex long representing which of the derived seeds to make.
+     * @return long seed.
+     */
+    static long derive(long lSeed, long lIndex)
+    {
+        return mix(lSeed + (lIndex + 1) * GOLDEN_GAMMA);
+    }
+
+
+    private static long mix(long l)
+    {
+        l = (l ^ (l >>> 30)) * 0xBF58476D1CE4E5B9L;
+        l = (l ^ (l >>> 27)) * 0x94D049BB133111EBL;
+        return l ^ (l >>> 31);
+    }
+}
@@ -82,6 +82,16 @@ public class Die implements java.io.Serializable, Comparable<Die>
         _dots = (int) (d * _sides) + 1;
     }
 
+    /**
+     * this rolls the die with a stream of random numbers, so that the roll can be repeated.
+     *
+     * @param stream DiceStream to roll with.
+     */
+    protected void roll(DiceStream stream)
+    {
+        _dots = stream.roll(_sides);
+    }
+
     /**
      * This allows the gameServer to copy dice objects.
      *
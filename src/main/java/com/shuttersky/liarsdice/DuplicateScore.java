@@ -0,0 +1,124 @@
+
+package com.shuttersky.liarsdice;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * DuplicateScore scores a duplicate tournament.  In a duplicate tournament
+ * every deal of the dice is played once for each seat, with the players
+ * rotated one seat further each time, so that every player plays every seat
+ * with the same dice.  Luck of the dice then cancels out within a deal, and
+ * each player is scored on its share of the wins in each deal.
+ * <p>
+ * The spread of those shares from deal to deal gives the standard error of
+ * each player's score.  It is much smaller than the spread of single games,
+ * so fewer games tell two players apart.
+ * <p>
+ * Note: this is package level
+ */
+class DuplicateScore implements java.io.Serializable
+{
+    /**
+     * for serializable
+     */
+    public static final long serialVersionUID = 1;
+
+    private final int _gamesPerDeal;
+
+    /**
+     * the wins in the deal being played
+     */
+    private int _gamesInDeal = 0;
+    private final TreeMap<String, Integer> _dealWins = new TreeMap<String, Integer>();
+
+    /**
+     * for each player, the number of deals, and the sum and sum of squares of its share of the wins
+     */
+    private int _numDeals = 0;
+    private final TreeMap<String, double[]> _shares = new TreeMap<String, double[]>();
+
+
+    /**
+     * constructor.
+     *
+     * @param gamesPerDeal int representing the number of games each deal is played, one per seat.
+     */
+    DuplicateScore(int gamesPerDeal)
+    {
+        _gamesPerDeal = gamesPerDeal;
+    }
+
+
+    /**
+     * Count a game.  The deal is scored when its last game is counted.
+     *
+     * @param playerSimpleClassNames List&lt;String&gt; of the players in the game.
+     * @param sWinnerClassName       String representing the simple class name of the winner.
+     */
+    synchronized void gameCompleted(List<String> playerSimpleClassNames, String sWinnerClassName)
+    {
+        for (String sName : playerSimpleClassNames)
+        {
+            if (_dealWins.containsKey(sName) == false)
+            {
+                _dealWins.put(sName, Integer.valueOf(0));
+            }
+        }
+        _dealWins.put(sWinnerClassName, Integer.valueOf(_dealWins.get(sWinnerClassName).intValue() + 1));
+
+        if (++_gamesInDeal < _gamesPerDeal)
+        {
+            return;
+        }
+
+        for (Map.Entry<String, Integer> entry : _dealWins.entrySet())
+        {
+            double dShare = entry.getValue().doubleValue() / _gamesPerDeal;
+            double[] shares = _shares.get(entry.getKey());
+            if (shares == null)
+            {
+                shares = new double[2];
+                _shares.put(entry.getKey(), shares);
+            }
+            shares[0] += dShare;
+            shares[1] += dShare * dShare;
+        }
+
+        _numDeals++;
+        _gamesInDeal = 0;
+        _dealWins.clear();
+    }
+
+
+    /**
+     * @return int the number of deals that have been played in every seat.
+     */
+    synchronized int getNumDeals()
+    {
+        return _numDeals;
+    }
+
+
+    /**
+     * @return String with each player's mean share of the wins per deal, and its standard error.
+     */
+    synchronized String getReport()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("duplicate score over ").append(_numDeals).append(" deals:");
+
+        for (Map.Entry<String, double[]> entry : _shares.entrySet())
+        {
+            double dMean = entry.getValue()[0] / _numDeals;
+            double dVariance = (_numDeals > 1) ? (entry.getValue()[1] - _numDeals * dMean * dMean) / (_numDeals - 1) : 0;
+            double dStandardError = Math.sqrt(Math.max(0, dVariance) / _numDeals);
+
+            sb.append(String.format(Locale.US, " %s=%.4f+/-%.4f", entry.getKey(), dMean, dStandardError));
+        }
+
+        return sb.toString();
+    }
+}
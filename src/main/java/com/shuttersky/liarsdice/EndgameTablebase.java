@@ -0,0 +1,570 @@
+
+package com.shuttersky.liarsdice;
+
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * EndgameTablebase holds the solved decision for every heads-up position in
+ * which both players have at most <code>maxDice</code> dice.
+ * <p>
+ * A position is the bidder's own dice histogram, the opponent's dice count and
+ * the highest bid so far.  Because bids only go up, the highest bid is the part
+ * of the bid history that decides which moves are legal.  Each player assumes
+ * the dice it can not see are uniformly random, and both players play the
+ * table.  Under that assumption the round is solved exactly by backward
+ * induction from the highest possible bid down to the opening bid.  For every
+ * position the table stores the best move and the bidder's probability of
+ * winning the showdown with it.
+ * <p>
+ * The table is generated with
+ * <pre>
+ * java [ -Dmaxdice=3 ] [ -Doutput=endgame.tb ] com.shuttersky.liarsdice.EndgameTablebase
+ * </pre>
+ * Each level of bids is solved in parallel across the cores.  The result is a
+ * dense file of 4 byte entries, and {@link #load(String)} memory-maps it, so a
+ * lookup is a few multiplications and one read.
+ */
+public class EndgameTablebase
+{
+    /**
+     * the tablebase file written and read unless another name is given
+     */
+    public static final String DEFAULT_FILE = "endgame.tb";
+
+    /**
+     * identifies a tablebase file
+     */
+    public static final int MAGIC = 0x4C444542;
+
+    /**
+     * property names and defaults for the generator
+     */
+    private static final String PROPERTY_MAX_DICE = "maxdice";
+    private static final String PROPERTY_OUTPUT = "output";
+    private static final int DEFAULT_MAX_DICE = 3;
+
+    /**
+     * bumped whenever the file layout changes
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * the header is MAGIC, VERSION, maxDice and the number of sides
+     */
+    private static final int HEADER_BYTES = 16;
+
+    /**
+     * each entry is a short holding the move and a char holding the scaled win probability
+     */
+    private static final int ENTRY_BYTES = 4;
+    private static final int WIN_SCALE = 65535;
+
+    /**
+     * the tablebase only covers dice with the default number of sides
+     */
+    private static final int NUM_SIDES = Die.DEFAULT_NUM_SIDES;
+
+    /**
+     * the move stored for b.s., any other move is the number of the bid plus one
+     */
+    private static final int MOVE_BS = 0;
+
+    private final int _maxDice;
+
+    /**
+     * _handCounts[m][rank] is the histogram of the rank'th hand of m dice,
+     * _handProbability[m][rank] is the chance of rolling it, and
+     * _handRank maps a histogram code to its rank among hands of the same size.
+     */
+    private final int[][][] _handCounts;
+    private final double[][] _handProbability;
+    private final int[] _handRank;
+
+    /**
+     * _blockOffset[m][n] is the byte offset of the entries where the bidder has m dice and the opponent n
+     */
+    private final long[][] _blockOffset;
+    private final long _size;
+
+    /**
+     * the mapped entries, or the entries being generated
+     */
+    private ByteBuffer _data = null;
+
+
+    /**
+     * constructor.  Enumerates the hands and lays out the file, without any entries.
+     *
+     * @param maxDice int representing the most dice either player may hold.
+     * @throws Exception if maxDice is less than 1.
+     */
+    private EndgameTablebase(int maxDice)
+        throws Exception
+    {
+        if (maxDice < 1)
+        {
+            throw new Exception("maxDice must be at least 1");
+        }
+
+        _maxDice = maxDice;
+
+        // enumerate every histogram of up to maxDice dice
+        int iRadix = maxDice + 1;
+        int iCodes = 1;
+        for (int i = 0; i < NUM_SIDES; i++)
+        {
+            iCodes *= iRadix;
+        }
+        _handRank = new int[iCodes];
+        int[] numHands = new int[maxDice + 1];
+        for (int iCode = 0; iCode < iCodes; iCode++)
+        {
+            int iTotal = getTotal(iCode);
+            _handRank[iCode] = (iTotal <= maxDice) ? numHands[iTotal]++ : -1;
+        }
+
+        _handCounts = new int[maxDice + 1][][];
+        _handProbability = new double[maxDice + 1][];
+        for (int m = 0; m <= maxDice; m++)
+        {
+            _handCounts[m] = new int[numHands[m]][NUM_SIDES + 1];
+            _handProbability[m] = new double[numHands[m]];
+        }
+        for (int iCode = 0; iCode < iCodes; iCode++)
+        {
+            int iTotal = getTotal(iCode);
+            if (iTotal > maxDice)
+            {
+                continue;
+            }
+
+            int[] counts = _handCounts[iTotal][_handRank[iCode]];
+            int c = iCode;
+            for (int d = 1; d <= NUM_SIDES; d++)
+            {
+                counts[d] = c % iRadix;
+                c /= iRadix;
+            }
+            _handProbability[iTotal][_handRank[iCode]] = getMultinomial(counts, iTotal);
+        }
+
+        // one block of entries for each pair of dice counts
+        _blockOffset = new long[maxDice + 1][maxDice + 1];
+        long lOffset = HEADER_BYTES;
+        for (int m = 1; m <= maxDice; m++)
+        {
+            for (int n = 1; n <= maxDice; n++)
+            {
+                _blockOffset[m][n] = lOffset;
+                lOffset += (long) _handCounts[m].length * getNumBidLevels(m + n) * ENTRY_BYTES;
+            }
+        }
+        _size = lOffset;
+
+        if (_size > Integer.MAX_VALUE)
+        {
+            throw new Exception("tablebase for " + maxDice + " dice is too large");
+        }
+    }
+
+
+    /**
+     * Generates a tablebase with the properties described in the class comment.
+     *
+     * @param args command line parameters are not currently used
+     */
+    public static void main(String[] args)
+    {
+        GameServer.setupLogger();
+        GameServer.logger.entering("EndgameTablebase", "main");
+
+        try
+        {
+            int iMaxDice = Integer.getInteger(PROPERTY_MAX_DICE, DEFAULT_MAX_DICE);
+            String sOutput = System.getProperty(PROPERTY_OUTPUT, DEFAULT_FILE);
+            long lStart = System.nanoTime();
+
+            EndgameTablebase tablebase = generate(iMaxDice);
+            tablebase.write(sOutput);
+
+            System.out.println("solved " + tablebase.getNumPositions() + " positions in "
+                + (System.nanoTime() - lStart) / 1000000 + " ms, wrote " + sOutput);
+        }
+        catch (Exception e)
+        {
+            GameServer.logger.severe("tablebase generation failed: " + e);
+            System.err.println("tablebase generation failed: " + e);
+            System.exit(-1);
+        }
+
+        GameServer.logger.exiting("EndgameTablebase", "main");
+    }
+
+
+    /**
+     * Solve every heads-up position with up to maxDice dice per player.
+     *
+     * @param maxDice int representing the most dice either player may hold.
+     * @return EndgameTablebase holding the solved entries in memory.
+     * @throws Exception if maxDice is out of range.
+     */
+    public static EndgameTablebase generate(int maxDice)
+        throws Exception
+    {
+        EndgameTablebase tablebase = new EndgameTablebase(maxDice);
+        tablebase._data = ByteBuffer.allocate((int) tablebase._size);
+
+        // positions only lead to positions with the same total number of dice
+        for (int iTotal = 2; iTotal <= 2 * maxDice; iTotal++)
+        {
+            tablebase.solve(iTotal);
+        }
+
+        return tablebase;
+    }
+
+
+    /**
+     * Map a tablebase file.
+     *
+     * @param fileName String representing the name of the tablebase file.
+     * @return EndgameTablebase that answers lookups from the mapped file.
+     * @throws Exception if the file can not be read or is not a tablebase.
+     */
+    public static EndgameTablebase load(String fileName)
+        throws Exception
+    {
+        try (RandomAccessFile raf = new RandomAccessFile(fileName, "r"); FileChannel channel = raf.getChannel())
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(12) != NUM_SIDES)
+            {
+                throw new Exception(fileName + " is not an endgame tablebase");
+            }
+
+            EndgameTablebase tablebase = new EndgameTablebase(buffer.getInt(8));
+            if (channel.size() != tablebase._size)
+            {
+                throw new Exception(fileName + " has the wrong size for its header");
+            }
+            tablebase._data = buffer;
+
+            return tablebase;
+        }
+    }
+
+
+    /**
+     * Write the tablebase to a file.
+     *
+     * @param fileName String representing the name of the tablebase file.
+     * @throws Exception if the file can not be written.
+     */
+    public void write(String fileName)
+        throws Exception
+    {
+        try (RandomAccessFile raf = new RandomAccessFile(fileName, "rw"); FileChannel channel = raf.getChannel())
+        {
+            raf.setLength(0);
+
+            ByteBuffer data = _data.duplicate();
+            data.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, _maxDice).putInt(12, NUM_SIDES);
+            data.position(0).limit((int) _size);
+            while (data.hasRemaining())
+            {
+                channel.write(data);
+            }
+        }
+    }
+
+
+    /**
+     * Look up the best move in a heads-up round.
+     *
+     * @param rs  RoundState capturing the state of the table for this round.
+     * @param cup Cup representing the bidder's own dice.
+     * @return Bid that the tablebase recommends.
+     * <code>null</code> if the round is not heads-up or either player has too many dice.
+     */
+    public Bid getBid(RoundState rs, Cup cup)
+    {
+        int iEntry = getEntry(rs, cup);
+        if (iEntry < 0)
+        {
+            return null;
+        }
+
+        int iMove = _data.getShort(iEntry);
+        if (iMove == MOVE_BS)
+        {
+            return new Bid();
+        }
+
+        try
+        {
+            return new Bid((iMove - 1) / NUM_SIDES + 1, (iMove - 1) % NUM_SIDES + 1);
+        }
+        catch (Exception e)
+        {
+            // stored moves are always in range
+            return null;
+        }
+    }
+
+
+    /**
+     * The bidder's probability of winning the showdown when both players follow the tablebase.
+     *
+     * @param rs  RoundState capturing the state of the table for this round.
+     * @param cup Cup representing the bidder's own dice.
+     * @return double between 0 and 1.
+     * <code>-1</code> if the round is not covered by the tablebase.
+     */
+    public double getWinProbability(RoundState rs, Cup cup)
+    {
+        int iEntry = getEntry(rs, cup);
+        if (iEntry < 0)
+        {
+            return -1;
+        }
+
+        return (double) _data.getChar(iEntry + 2) / WIN_SCALE;
+    }
+
+
+    /**
+     * @return int the most dice either player may hold in a covered position.
+     */
+    public int getMaxDice()
+    {
+        return _maxDice;
+    }
+
+
+    /**
+     * @return long the number of positions in the tablebase.
+     */
+    public long getNumPositions()
+    {
+        return (_size - HEADER_BYTES) / ENTRY_BYTES;
+    }
+
+
+    /**
+     * find the byte offset of the entry for a round, -1 if it is not covered
+     */
+    private int getEntry(RoundState rs, Cup cup)
+    {
+        if (rs.getNumPlayers() != 2 || cup.getNumSides() != NUM_SIDES)
+        {
+            return -1;
+        }
+
+        int m = cup.getNumDice();
+        int n = rs.getNumDice(rs.getNumBids() + 1);
+        if (m < 1 || m > _maxDice || n < 1 || n > _maxDice)
+        {
+            return -1;
+        }
+
+        // a bid on more dice than there are can not be true, and it is not in the table
+        int iLevel = 0;
+        Bid bidHighest = rs.getHighestBid();
+        if (bidHighest != null)
+        {
+            if (bidHighest.isBS() || bidHighest.getNumDice() > m + n)
+            {
+                return -1;
+            }
+            iLevel = (bidHighest.getNumDice() - 1) * NUM_SIDES + bidHighest.getDots();
+        }
+
+        int iCode = 0;
+        for (int d = NUM_SIDES; d >= 1; d--)
+        {
+            iCode = iCode * (_maxDice + 1) + cup.getNumDice(d);
+        }
+
+        return (int) getOffset(m, n, _handRank[iCode], iLevel);
+    }
+
+
+    /**
+     * byte offset of an entry.  Level 0 is the opening bid, level b + 1 follows bid number b.
+     */
+    private long getOffset(int m, int n, int iHand, int iLevel)
+    {
+        return _blockOffset[m][n] + ((long) iHand * getNumBidLevels(m + n) + iLevel) * ENTRY_BYTES;
+    }
+
+
+    /**
+     * Solve every position with iTotal dice on the table, from the highest bid down.
+     * <p>
+     * won[m][(h * hands(n) + h') * levels + level] is 1 when the player to act, holding
+     * hand h of m dice against hand h' of n dice, wins the showdown if both follow the table.
+     */
+    private void solve(int iTotal)
+    {
+        int iLevels = getNumBidLevels(iTotal);
+        int iMinDice = Math.max(1, iTotal - _maxDice);
+        int iMaxDice = Math.min(_maxDice, iTotal - 1);
+        byte[][] won = new byte[_maxDice + 1][];
+        for (int m = iMinDice; m <= iMaxDice; m++)
+        {
+            won[m] = new byte[_handCounts[m].length * _handCounts[iTotal - m].length * iLevels];
+        }
+
+        // every (m, hand) pair at a level can be solved independently
+        int[] positionDice = new int[0];
+        int[] positionHand = new int[0];
+        for (int m = iMinDice; m <= iMaxDice; m++)
+        {
+            int iStart = positionDice.length;
+            positionDice = Arrays.copyOf(positionDice, iStart + _handCounts[m].length);
+            positionHand = Arrays.copyOf(positionHand, iStart + _handCounts[m].length);
+            for (int h = 0; h < _handCounts[m].length; h++)
+            {
+                positionDice[iStart + h] = m;
+                positionHand[iStart + h] = h;
+            }
+        }
+        final int[] dice = positionDice;
+        final int[] hands = positionHand;
+
+        for (int iLevel = iLevels - 1; iLevel >= 0; iLevel--)
+        {
+            final int level = iLevel;
+
+            IntStream.range(0, dice.length).parallel().forEach(p -> choose(dice[p], iTotal - dice[p], hands[p], level, won));
+            IntStream.range(0, dice.length).parallel().forEach(p -> play(dice[p], iTotal - dice[p], hands[p], level, won));
+        }
+    }
+
+
+    /**
+     * choose and store the best move for one position
+     */
+    private void choose(int m, int n, int h, int iLevel, byte[][] won)
+    {
+        int[] counts = _handCounts[m][h];
+        double[] oppProbability = _handProbability[n];
+        int iOppHands = oppProbability.length;
+        int iLevels = getNumBidLevels(m + n);
+        int iMove = MOVE_BS;
+        double dBest = -1;
+
+        // calling b.s. wins when the opponent's dice do not make up the bid
+        if (iLevel > 0)
+        {
+            int iBid = iLevel - 1;
+            int iNeeded = iBid / NUM_SIDES + 1 - counts[iBid % NUM_SIDES + 1];
+            dBest = 1 - BidProbability.getProbabilityAtLeast(n, iNeeded, NUM_SIDES);
+        }
+
+        // raising wins when the opponent, playing the table with their own hand, goes on to lose
+        byte[] oppWon = won[n];
+        for (int iRaise = iLevel + 1; iRaise < iLevels; iRaise++)
+        {
+            double dWin = 0;
+            for (int hOpp = 0; hOpp < iOppHands; hOpp++)
+            {
+                if (oppWon[(hOpp * _handCounts[m].length + h) * iLevels + iRaise] == 0)
+                {
+                    dWin += oppProbability[hOpp];
+                }
+            }
+
+            if (dWin > dBest + 1e-12)
+            {
+                dBest = dWin;
+                iMove = iRaise;
+            }
+        }
+
+        int iOffset = (int) getOffset(m, n, h, iLevel);
+        _data.putShort(iOffset, (short) iMove);
+        _data.putChar(iOffset + 2, (char) Math.round(Math.max(0, dBest) * WIN_SCALE));
+    }
+
+
+    /**
+     * play the stored move of one position against every opponent hand
+     */
+    private void play(int m, int n, int h, int iLevel, byte[][] won)
+    {
+        int iMove = _data.getShort((int) getOffset(m, n, h, iLevel));
+        int[] counts = _handCounts[m][h];
+        int iOppHands = _handCounts[n].length;
+        int iLevels = getNumBidLevels(m + n);
+        byte[] myWon = won[m];
+        byte[] oppWon = won[n];
+
+        for (int hOpp = 0; hOpp < iOppHands; hOpp++)
+        {
+            boolean bWon;
+            if (iMove == MOVE_BS)
+            {
+                int iBid = iLevel - 1;
+                int iDots = iBid % NUM_SIDES + 1;
+                bWon = counts[iDots] + _handCounts[n][hOpp][iDots] < iBid / NUM_SIDES + 1;
+            }
+            else
+            {
+                bWon = oppWon[(hOpp * _handCounts[m].length + h) * iLevels + iMove] == 0;
+            }
+
+            myWon[(h * iOppHands + hOpp) * iLevels + iLevel] = (byte) (bWon ? 1 : 0);
+        }
+    }
+
+
+    /**
+     * the opening level plus one level for every bid on up to iTotal dice
+     */
+    private static int getNumBidLevels(int iTotal)
+    {
+        return NUM_SIDES * iTotal + 1;
+    }
+
+
+    /**
+     * the number of dice in a histogram code
+     */
+    private int getTotal(int iCode)
+    {
+        int iTotal = 0;
+        for (int c = iCode; c > 0; c /= _maxDice + 1)
+        {
+            iTotal += c % (_maxDice + 1);
+        }
+        return iTotal;
+    }
+
+
+    /**
+     * the probability of rolling a histogram: n! / (c1! ... c6!) / 6^n
+     */
+    private static double getMultinomial(int[] counts, int iTotal)
+    {
+        double d = 1;
+        int iPlaced = 0;
+
+        for (int f = 1; f <= NUM_SIDES; f++)
+        {
+            for (int i = 1; i <= counts[f]; i++)
+            {
+                iPlaced++;
+                d *= (double) iPlaced / i;
+            }
+        }
+
+        return d / Math.pow(NUM_SIDES, iTotal);
+    }
+}
@@ -0,0 +1,230 @@
+
+package com.shuttersky.liarsdice;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * EvaluationCache remembers evaluations of public states so that a search
+ * based player does not evaluate the same state twice, even across the
+ * threads of a parallel search.
+ * <p>
+ * A state is identified by a 64 bit key made by {@link #getKey(Cup, RoundState)}
+ * from the player's own face histogram, the dice count of every seat (starting
+ * with the seat to act, so the key does not depend on who bid first) and the
+ * highest bid.  Keys may be extended with a candidate bid or any other int using
+ * {@link #getKey(long, int)}.
+ * <p>
+ * The cache is a fixed size open addressed table of 4 slot buckets.  When a bucket
+ * is full, a clock (second chance) policy picks the slot to replace: each bucket
+ * has a hand that moves round its slots, skipping once each slot that was read
+ * since the hand last passed it.  Access is lock-free.  Each
+ * slot stores the value and the key xor the value, and a read only counts as a
+ * hit when the two agree.  An entry torn by a concurrent write therefore reads as
+ * a miss, never as a wrong value.
+ */
+public class EvaluationCache
+{
+    /**
+     * the number of slots searched for a key
+     */
+    private static final int BUCKET_SIZE = 4;
+
+    /**
+     * member variables holding the table
+     */
+    private final int _mask;
+    private final AtomicLongArray _checks;
+    private final AtomicLongArray _values;
+    private final byte[] _referenced;
+
+    /**
+     * the slot within each bucket that the clock hand points at
+     */
+    private final byte[] _hands;
+
+    /**
+     * statistics, striped so that counting does not become a point of contention
+     */
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+
+
+    /**
+     * constructor.
+     *
+     * @param capacity int representing the number of entries to keep.  It is rounded up to a power of two.
+     */
+    public EvaluationCache(int capacity)
+    {
+        int iSize = Integer.highestOneBit(Math.max(BUCKET_SIZE, capacity) - 1) << 1;
+
+        _mask = iSize - 1;
+        _checks = new AtomicLongArray(iSize);
+        _values = new AtomicLongArray(iSize);
+        _referenced = new byte[iSize];
+        _hands = new byte[iSize / BUCKET_SIZE];
+    }
+
+
+    /**
+     * Make the key of a public state as seen by the player to act.
+     *
+     * @param cup Cup representing the dice of the player to act.
+     * @param rs  RoundState capturing the state of the table for this round.
+     * @return long key, never 0.
+     */
+    public static long getKey(Cup cup, RoundState rs)
+    {
+        long lKey = cup.getNumSides();
+
+        for (int d = 1; d <= cup.getNumSides(); d++)
+        {
+            lKey = mix(lKey + cup.getNumDice(d));
+        }
+
+        // seat dice counts, starting with the seat to act
+        int iNumPlayers = rs.getNumPlayers();
+        int iSeat = rs.getNumBids();
+        for (int i = 0; i < iNumPlayers; i++)
+        {
+            lKey = mix(lKey + rs.getNumDice(iSeat + i));
+        }
+
+        Bid bidHighest = rs.getHighestBid();
+        if (bidHighest == null)
+        {
+            lKey = mix(lKey - 1);
+        }
+        else
+        {
+            lKey = mix(lKey + bidHighest.getNumDice() * 16L + bidHighest.getDots());
+        }
+
+        return (lKey == 0) ? 1 : lKey;
+    }
+
+
+    /**
+     * Extend a key, for example with a candidate bid encoded as an int.
+     *
+     * @param key   long key to extend.
+     * @param value int to add to the key.
+     * @return long key, never 0.
+     */
+    public static long getKey(long key, int value)
+    {
+        long lKey = mix(key + value + 0x9E3779B97F4A7C15L);
+
+        return (lKey == 0) ? 1 : lKey;
+    }
+
+
+    /**
+     * Look up an evaluation.
+     *
+     * @param key long key made by getKey.
+     * @return double the cached evaluation.  <code>Double.NaN</code> if the key is not cached.
+     */
+    public double get(long key)
+    {
+        int iBucket = (int) key & _mask & ~(BUCKET_SIZE - 1);
+
+        for (int i = iBucket; i < iBucket + BUCKET_SIZE; i++)
+        {
+            long lValue = _values.getOpaque(i);
+            if ((_checks.getOpaque(i) ^ lValue) == key)
+            {
+                _referenced[i] = 1;
+                _hits.increment();
+                return Double.longBitsToDouble(lValue);
+            }
+        }
+
+        _misses.increment();
+        return Double.NaN;
+    }
+
+
+    /**
+     * Store an evaluation, replacing an older one if the bucket is full.
+     *
+     * @param key   long key made by getKey.
+     * @param value double evaluation to store.
+     */
+    public void put(long key, double value)
+    {
+        int iBucket = (int) key & _mask & ~(BUCKET_SIZE - 1);
+        long lValue = Double.doubleToRawLongBits(value);
+        int iVictim = -1;
+
+        for (int i = iBucket; i < iBucket + BUCKET_SIZE; i++)
+        {
+            // the same key, or an empty slot
+            long lCheck = _checks.getOpaque(i) ^ _values.getOpaque(i);
+            if (lCheck == key || lCheck == 0)
+            {
+                iVictim = i;
+                break;
+            }
+        }
+
+        // clock sweep: give slots that were read since the hand last passed a second chance.
+        // Once round the bucket clears every mark, so the sweep ends by the second time round.
+        if (iVictim < 0)
+        {
+            int iHandIndex = iBucket / BUCKET_SIZE;
+            int iHand = _hands[iHandIndex] & (BUCKET_SIZE - 1);
+            for (int n = 0; iVictim < 0 && n <= BUCKET_SIZE; n++)
+            {
+                int i = iBucket + iHand;
+                if (_referenced[i] == 0 || n == BUCKET_SIZE)
+                {
+                    iVictim = i;
+                }
+                else
+                {
+                    _referenced[i] = 0;
+                }
+                iHand = (iHand + 1) & (BUCKET_SIZE - 1);
+            }
+            _hands[iHandIndex] = (byte) iHand;
+        }
+
+        _values.setOpaque(iVictim, lValue);
+        _checks.setOpaque(iVictim, key ^ lValue);
+        _referenced[iVictim] = 0;
+    }
+
+
+    /**
+     * @return int the number of entries the cache can hold.
+     */
+    public int getCapacity()
+    {
+        return _mask + 1;
+    }
+
+
+    /**
+     * @return double the share of lookups that found an entry, 0 if there were none.
+     */
+    public double getHitRate()
+    {
+        long lHits = _hits.sum();
+        long lTotal = lHits + _misses.sum();
+
+        return (lTotal == 0) ? 0 : (double) lHits / lTotal;
+    }
+
+
+    /**
+     * the splitmix64 finalizer, which spreads every input bit over the whole key
+     */
+    private static long mix(long l)
+    {
+        l = (l ^ (l >>> 30)) * 0xBF58476D1CE4E5B9L;
+        l = (l ^ (l >>> 27)) * 0x94D049BB133111EBL;
+        return l ^ (l >>> 31);
+    }
+}
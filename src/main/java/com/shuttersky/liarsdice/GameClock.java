@@ -0,0 +1,52 @@
+
+package com.shuttersky.liarsdice;
+
+
+/**
+ * GameClock is where the game gets the time: how long a player has taken to
+ * respond, and how long a player that waits on purpose, such as one that gives
+ * a person time to read, waits.  {@link #SYSTEM} is the real time.  A
+ * {@link SimulatedClock} lets tests and simulations of slow players and
+ * timeouts run on virtual time, without sleeping.
+ */
+public interface GameClock
+{
+    /**
+     * the real time
+     */
+    public static final GameClock SYSTEM = new SystemClock();
+
+    /**
+     * the deadline of a wait without end
+     */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+
+    /**
+     * @return long the current time in nanoseconds, from an arbitrary origin.
+     */
+    public abstract long nanoTime();
+
+
+    /**
+     * Wait for time to pass.
+     *
+     * @param lNanos long representing the number of nanoseconds to wait.
+     * @throws InterruptedException if the wait is interrupted.
+     */
+    public abstract void sleep(long lNanos) throws InterruptedException;
+
+
+    /**
+     * Wait for a thread to finish, until at most a time on this clock.  The deadline
+     * is taken before the thread is started, so that time the thread moves on a
+     * simulated clock as soon as it runs still counts.
+     *
+     * @param thread         Thread to wait for.
+     * @param lDeadlineNanos long representing the time to wait until, NO_DEADLINE to wait as long as it takes.
+     * @return boolean <code>true</code> if the thread finished by the deadline.
+     * @throws InterruptedException if the wait is interrupted.
+     */
+    public abstract boolean joinUntil(Thread thread, long lDeadlineNanos) throws InterruptedException;
+
+}
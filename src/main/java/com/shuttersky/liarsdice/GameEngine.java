@@ -0,0 +1,553 @@
+
+package com.shuttersky.liarsdice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * GameEngine holds the rules of liar's dice as a state machine.  It does not
+ * call players, start threads or keep time: the caller asks who is to bid
+ * with <code>awaitingSeat</code>, gets the bid however it likes, and hands it
+ * to <code>step</code>.  The engine records the bid, settles the round when the
+ * bid is b.s. or breaks the rules, and starts the next round, until one
+ * player is left.
+ * <pre>
+ *     GameEngine engine = new GameEngine(names, null);
+ *     engine.start();
+ *     while ((iPlayer = engine.awaitingSeat()) != GameEngine.NONE)
+ *     {
+ *         engine.step(players.get(iPlayer).getBid(engine.getRoundState(), engine.getCup(iPlayer)));
+ *     }
+ * </pre>
+ * Players are numbered in the order they are given to the constructor, and
+ * keep their number when others are eliminated.  A game in progress can be
+ * copied, for instance by a bot that searches ahead, without disturbing it.
+ * <p>
+ * The dice are rolled from a seed, with a stream for each player, and every
+ * decision is recorded in the GameState, so a game can be played again
+ * exactly by the {@link GameReplayer}.
+ */
+public class GameEngine
+{
+    /**
+     * returned by awaitingSeat when there is no decision to make
+     */
+    public static final int NONE = -1;
+
+    /**
+     * Listener is told what happens in the game, in the order it happens.
+     * The GameServer uses it to keep the players informed.
+     */
+    public interface Listener
+    {
+        /**
+         * A round started.  The cups have been shaken.
+         *
+         * @param rs RoundState of the new round.
+         */
+        public abstract void roundStarted(RoundState rs);
+
+        /**
+         * A bid was added to the round, before it is checked against the rules.
+         *
+         * @param rs RoundState holding the bid.
+         */
+        public abstract void bidMade(RoundState rs);
+
+        /**
+         * A round ended in a showdown or a bid that breaks the rules.  The loser has not lost the die yet.
+         *
+         * @param rs               RoundState of the round, with the cups revealed.
+         * @param sWinnerClassName String representing the class name of the winner.
+         * @param sLoserClassName  String representing the class name of the loser.
+         */
+        public abstract void roundEnded(RoundState rs, String sWinnerClassName, String sLoserClassName);
+
+        /**
+         * A player lost the last die.
+         *
+         * @param iPlayer int representing the number of the player.
+         */
+        public abstract void playerEliminated(int iPlayer);
+    }
+
+    private final ArrayList<String> _playerSimpleClassNames;
+    private final Listener _listener;
+
+    /**
+     * the numbers of the players still in the game, in turn order, and their cups
+     */
+    private final ArrayList<Integer> _seats;
+    private final ArrayList<Cup> _cups;
+    private final long _seed;
+    private final DiceStream[] _streams;
+    private int _currentSeat = 0;
+    private boolean _started = false;
+
+    private RoundState _rs = null;
+    private GameState _gamestate = null;
+
+    /**
+     * where the rule breaking is reported
+     */
+    private Logger _logger = GameServer.logger;
+
+
+    /**
+     * constructor.  Each player gets a full cup, and the dice get a random seed.
+     *
+     * @param playerSimpleClassNames List&lt;String&gt; of the simple class names of the players, in turn order.
+     * @param listener               Listener to tell what happens, or <code>null</code>.
+     * @throws IllegalArgumentException if there are fewer than two players.
+     */
+    public GameEngine(List<String> playerSimpleClassNames, Listener listener)
+    {
+        this(playerSimpleClassNames, new Random().nextLong(), listener);
+    }
+
+
+    /**
+     * constructor.  Each player gets a full cup.
+     *
+     * @param playerSimpleClassNames List&lt;String&gt; of the simple class names of the players, in turn order.
+     * @param lSeed                  long representing the seed of the dice.
+     * @param listener               Listener to tell what happens, or <code>null</code>.
+     * @throws IllegalArgumentException if there are fewer than two players.
+     */
+    public GameEngine(List<String> playerSimpleClassNames, long lSeed, Listener listener)
+    {
+        if (playerSimpleClassNames.size() < 2)
+        {
+            throw new IllegalArgumentException("at least 2 players are needed, not " + playerSimpleClassNames.size());
+        }
+
+        _playerSimpleClassNames = new ArrayList<String>(playerSimpleClassNames);
+        _listener = listener;
+        _seats = new ArrayList<Integer>();
+        _cups = new ArrayList<Cup>();
+        _seed = lSeed;
+        _streams = new DiceStream[_playerSimpleClassNames.size()];
+        _gamestate = new GameState(_playerSimpleClassNames, lSeed);
+
+        for (int i = 0; i < _playerSimpleClassNames.size(); i++)
+        {
+            _seats.add(Integer.valueOf(i));
+            _cups.add(newCup());
+            _streams[i] = new DiceStream(lSeed, i);
+        }
+    }
+
+
+    /**
+     * copy constructor.  The copy has no listener.
+     */
+    private GameEngine(GameEngine engine)
+    {
+        _playerSimpleClassNames = engine._playerSimpleClassNames;
+        _listener = null;
+        _seats = new ArrayList<Integer>(engine._seats);
+        _cups = new ArrayList<Cup>(engine._cups.size());
+        for (Cup cup : engine._cups)
+        {
+            _cups.add(new Cup(cup));
+        }
+        _seed = engine._seed;
+        _streams = new DiceStream[engine._streams.length];
+        for (int i = 0; i < _streams.length; i++)
+        {
+            _streams[i] = new DiceStream(engine._streams[i]);
+        }
+        _currentSeat = engine._currentSeat;
+        _started = engine._started;
+        _rs = (engine._rs == null) ? null : new RoundState(engine._rs);
+        _gamestate = new GameState(engine._gamestate);
+        _logger = engine._logger;
+    }
+
+
+    /**
+     * Start the first round.
+     *
+     * @throws IllegalStateException if the game has already started.
+     */
+    public void start()
+    {
+        if (_started)
+        {
+            throw new IllegalStateException("the game has already started");
+        }
+
+        _started = true;
+        prepareNewRound();
+    }
+
+
+    /**
+     * @return int the number of the player who is to bid, or NONE if the game has not started or is over.
+     */
+    public int awaitingSeat()
+    {
+        if (_started == false || isOver())
+        {
+            return NONE;
+        }
+
+        return _seats.get(_currentSeat).intValue();
+    }
+
+
+    /**
+     * Make the decision the engine is waiting for.  A copy of the bid is recorded.
+     *
+     * @param bid Bid of the player who is to bid.  <code>null</code> loses the round.
+     * @return boolean <code>true</code> if the decision ended the round.
+     * @throws IllegalStateException if no decision is awaited.
+     */
+    public boolean step(Bid bid)
+    {
+        if (awaitingSeat() == NONE)
+        {
+            throw new IllegalStateException("no decision is awaited");
+        }
+
+        int iPreviousSeat = (_currentSeat + _seats.size() - 1) % _seats.size();
+
+        if (bid != null)
+        {
+            bid = new Bid(bid);
+            bid.setPlayerNumDice(_cups.get(_currentSeat).getNumDice());
+            bid.setPlayerSimpleClassName(getCurrentName());
+        }
+        _gamestate.addDecision(bid);
+
+        // if the bid is null, the player loses the round
+        if (bid == null)
+        {
+            _logger.warning(getCurrentName() + " returned a bid that was null");
+            punishLoser(iPreviousSeat, _currentSeat);
+            return true;
+        }
+
+        // get previously higest bid
+        Bid bidHighest = _rs.getHighestBid();
+
+        // add the bid to the round
+        _rs.addNextBid(bid);
+        if (_listener != null)
+        {
+            _listener.bidMade(_rs);
+        }
+
+        // if bid is not higher, it is considered an automatic round loss
+        if (bidHighest != null && bid.compareTo(bidHighest) < 1)
+        {
+            _logger.warning(getCurrentName() + " returned a bid that is too low");
+            recordInvalidRound(iPreviousSeat);
+            return true;
+        }
+
+        // first bid cannot be bs
+        if (bidHighest == null && bid.isBS())
+        {
+            _logger.warning("First bid may not be b.s.");
+            recordInvalidRound(iPreviousSeat);
+            return true;
+        }
+
+        _currentSeat = (_currentSeat + 1) % _seats.size();
+
+        if (bid.isBS())
+        {
+            // add the roundstate before we punish the loser
+            _gamestate.add(_rs);
+            resolveShowdown();
+            return true;
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Report the rule breaking of this game somewhere other than the GameServer's log.
+     *
+     * @param logger Logger to report to.
+     */
+    public void setLogger(Logger logger)
+    {
+        _logger = logger;
+    }
+
+
+    /**
+     * @return GameEngine a copy of the game as it stands, without the listener.
+     */
+    public GameEngine copy()
+    {
+        return new GameEngine(this);
+    }
+
+
+    /**
+     * @return long the seed the dice are rolled with.
+     */
+    public long getSeed()
+    {
+        return _seed;
+    }
+
+
+    /**
+     * @return boolean <code>true</code> once only one player is left.
+     */
+    public boolean isOver()
+    {
+        return _seats.size() < 2;
+    }
+
+
+    /**
+     * @return int the number of the winner, or NONE if the game is not over.
+     */
+    public int getWinner()
+    {
+        return isOver() ? _seats.get(0).intValue() : NONE;
+    }
+
+
+    /**
+     * @return int the number of players the game started with.
+     */
+    public int getNumPlayers()
+    {
+        return _playerSimpleClassNames.size();
+    }
+
+
+    /**
+     * @param iPlayer int representing the number of a player.
+     * @return String the simple class name of the player.
+     */
+    public String getPlayerSimpleClassName(int iPlayer)
+    {
+        return _playerSimpleClassNames.get(iPlayer);
+    }
+
+
+    /**
+     * @param iPlayer int representing the number of a player.
+     * @return boolean <code>true</code> if the player still has dice.
+     */
+    public boolean isActive(int iPlayer)
+    {
+        return _seats.contains(Integer.valueOf(iPlayer));
+    }
+
+
+    /**
+     * @return RoundState of the round being played, or of the last round once the game is over.
+     */
+    public RoundState getRoundState()
+    {
+        return _rs;
+    }
+
+
+    /**
+     * @param iPlayer int representing the number of a player.
+     * @return Cup a copy of the player's cup.
+     * @throws IllegalArgumentException if the player has been eliminated.
+     */
+    public Cup getCup(int iPlayer)
+    {
+        int iSeat = _seats.indexOf(Integer.valueOf(iPlayer));
+        if (iSeat < 0)
+        {
+            throw new IllegalArgumentException("player " + iPlayer + " has been eliminated");
+        }
+
+        return new Cup(_cups.get(iSeat));
+    }
+
+
+    /**
+     * @return GameState with every round played so far.
+     */
+    GameState getGameState()
+    {
+        return _gamestate;
+    }
+
+
+    /**
+     * The current seat broke the rules and loses the round.  The round is recorded
+     * before and after the loser is punished, as it always has been, so saved games
+     * keep the same rounds.  punishLoser starts the next round, so the finished round
+     * is held on to rather than read from _rs again.
+     *
+     * @param iWinnerSeat int index of the seat that bid before the rule breaker.
+     */
+    private void recordInvalidRound(int iWinnerSeat)
+    {
+        RoundState rsFinished = _rs;
+
+        _gamestate.add(rsFinished);
+        punishLoser(iWinnerSeat, _currentSeat);
+        _gamestate.add(rsFinished);
+    }
+
+
+    /**
+     * when one player has bid bs, this is called to resolve who is correct.
+     * The current seat has already moved past the challenger.
+     */
+    private void resolveShowdown()
+    {
+        Bid bid = _rs.getBids().get(_rs.getNumBids() - 2);
+        int iDefendingSeat = (_currentSeat + _seats.size() - 2) % _seats.size();
+        int iChallengingSeat = (_currentSeat + _seats.size() - 1) % _seats.size();
+
+        _logger.finest("Defender seat: " + iDefendingSeat + " Challenger seat: " + iChallengingSeat);
+
+        // compare the most recent (non b.s.) bid to the actual cups
+        if (bid.getNumDice() <= getNumDice(bid.getDots()))
+        {
+            punishLoser(iDefendingSeat, iChallengingSeat);
+        }
+        else
+        {
+            punishLoser(iChallengingSeat, iDefendingSeat);
+        }
+    }
+
+
+    /**
+     * Tell the listener the outcome of a showdown or an invalid play.
+     * Remove a die from the loser, and the loser if that was the last one.
+     * Start the next round unless the game is over.
+     *
+     * @param iWinnerSeat int index of the winner in the seats of this round.
+     * @param iLoserSeat  int index of the loser in the seats of this round.
+     */
+    private void punishLoser(int iWinnerSeat, int iLoserSeat)
+    {
+        // allow access to the cups
+        _rs.setShowdownOver();
+
+        if (_listener != null)
+        {
+            _listener.roundEnded(_rs, getName(iWinnerSeat), getName(iLoserSeat));
+        }
+
+        // remove a die from the losers cup
+        try
+        {
+            _cups.get(iLoserSeat).removeDie();
+        }
+        catch (Exception e)
+        {
+            throw new IllegalStateException("the loser has no dice to remove", e);
+        }
+        _currentSeat = (iLoserSeat + 1) % _seats.size();
+
+        // remove the player and their cup if they have no dice left
+        if (_cups.get(iLoserSeat).getNumDice() == 0)
+        {
+            int iPlayer = _seats.get(iLoserSeat).intValue();
+            _logger.info("goodbye: " + getName(iLoserSeat));
+
+            _seats.remove(iLoserSeat);
+            _cups.remove(iLoserSeat);
+
+            // should the current seat be adjusted?
+            if (_currentSeat > iLoserSeat)
+            {
+                _currentSeat--;
+            }
+
+            if (_listener != null)
+            {
+                _listener.playerEliminated(iPlayer);
+            }
+        }
+
+        if (isOver() == false)
+        {
+            prepareNewRound();
+        }
+    }
+
+
+    /**
+     * Shakes the cups and makes a new RoundState with the players in bid order.
+     */
+    private void prepareNewRound()
+    {
+        _logger.fine("new round");
+
+        for (int iSeat = 0; iSeat < _seats.size(); iSeat++)
+        {
+            _cups.get(iSeat).shake(_streams[_seats.get(iSeat).intValue()]);
+        }
+
+        _rs = new RoundState();
+
+        int iSeat = _currentSeat;
+        for (int iCount = _seats.size(); iCount > 0; iCount--)
+        {
+            _rs.addPlayerState(getName(iSeat), _cups.get(iSeat).getNumDice(), _cups.get(iSeat));
+            iSeat = (iSeat + 1) % _seats.size();
+        }
+
+        if (_listener != null)
+        {
+            _listener.roundStarted(_rs);
+        }
+    }
+
+
+    /**
+     * A way to find out how many of a type of die there are in all cups.
+     *
+     * @param iDots int representing the rank of die to count.
+     * @return int the number of dice that show iDots in all cups.
+     */
+    private int getNumDice(int iDots)
+    {
+        int iQuantity = 0;
+
+        for (Cup cup : _cups)
+        {
+            iQuantity += cup.getNumDice(iDots);
+        }
+        return iQuantity;
+    }
+
+
+    private String getName(int iSeat)
+    {
+        return _playerSimpleClassNames.get(_seats.get(iSeat).intValue());
+    }
+
+
+    private String getCurrentName()
+    {
+        return getName(_currentSeat);
+    }
+
+
+    private static Cup newCup()
+    {
+        try
+        {
+            return new Cup(Cup.DEFAULT_NUM_DICE, Die.DEFAULT_NUM_SIDES);
+        }
+        catch (Exception e)
+        {
+            // this will never happen since we're using Cup's static variables to initialize it.
+            throw new IllegalStateException("could not create a cup", e);
+        }
+    }
+}
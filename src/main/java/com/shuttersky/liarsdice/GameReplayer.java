@@ -0,0 +1,199 @@
+
+package com.shuttersky.liarsdice;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+/**
+ * GameReplayer plays saved games again through the {@link GameEngine}, with
+ * the seed of the dice and the decisions recorded in each game, and checks
+ * that every round comes out as it was saved.  No players are called, so a
+ * game replays in microseconds, and a rules change that alters the outcome of
+ * old games is caught.
+ * <p>
+ * Run as a program, it replays the game logs and directories of game logs
+ * named by its arguments, on every processor:
+ * <pre>
+ *     java com.shuttersky.liarsdice.GameReplayer game00000.log archive/
+ * </pre>
+ * It prints each game that does not match and exits with 1 if there were any.
+ */
+public class GameReplayer
+{
+    /**
+     * Replay a game.
+     *
+     * @param gamestate GameState as it was saved.
+     * @return String describing the first difference, or <code>null</code> if the replay matches.
+     */
+    static String replay(GameState gamestate)
+    {
+        if (gamestate.isReplayable() == false)
+        {
+            return "the game was saved without its seed and decisions";
+        }
+
+        GameEngine engine = new GameEngine(gamestate.getPlayerSimpleClassNames(), gamestate.getSeed(), null);
+        engine.start();
+
+        List<Bid> decisions = gamestate.getDecisions();
+        for (int i = 0; i < decisions.size(); i++)
+        {
+            if (engine.awaitingSeat() == GameEngine.NONE)
+            {
+                return "the game ended after " + i + " of " + decisions.size() + " decisions";
+            }
+            engine.step(decisions.get(i));
+        }
+
+        if (engine.isOver() == false)
+        {
+            return "the game is not over after all " + decisions.size() + " decisions";
+        }
+
+        GameState replayed = engine.getGameState();
+        for (int i = 0; i < Math.max(gamestate.size(), replayed.size()); i++)
+        {
+            if (i >= gamestate.size() || i >= replayed.size())
+            {
+                return "the replay has " + replayed.size() + " rounds instead of " + gamestate.size();
+            }
+
+            String sSaved = describe(gamestate.get(i));
+            String sReplayed = describe(replayed.get(i));
+            if (sSaved.equals(sReplayed) == false)
+            {
+                return "round " + i + " was\n" + sSaved + "but replays as\n" + sReplayed;
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Replay saved games on every processor.
+     *
+     * @param args the game logs, or directories of game logs, to replay.
+     */
+    public static void main(String[] args)
+    {
+        // the warnings about bids that break the rules were logged when the games were played
+        GameServer.logger.setLevel(Level.SEVERE);
+
+        ArrayList<File> files = new ArrayList<File>();
+        for (String sArg : args)
+        {
+            addGameLogs(new File(sArg), files);
+        }
+
+        long lStart = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        ArrayList<Future<String>> results = new ArrayList<Future<String>>();
+        for (final File file : files)
+        {
+            results.add(executor.submit(new Callable<String>()
+            {
+                public String call() throws Exception
+                {
+                    return replay(load(file));
+                }
+            }));
+        }
+        executor.shutdown();
+
+        int iMismatches = 0;
+        for (int i = 0; i < files.size(); i++)
+        {
+            String sResult = null;
+            try
+            {
+                sResult = results.get(i).get();
+            }
+            catch (Exception e)
+            {
+                sResult = "could not be replayed: " + e.getCause();
+            }
+
+            if (sResult != null)
+            {
+                System.out.println(files.get(i) + ": " + sResult);
+                iMismatches++;
+            }
+        }
+
+        System.out.println(files.size() + " games replayed in " + (System.nanoTime() - lStart) / 1000000 + " ms, " + iMismatches + " did not match");
+        System.exit(iMismatches == 0 ? 0 : 1);
+    }
+
+
+    /**
+     * @return String with everything about a round that a replay must reproduce.
+     */
+    private static String describe(RoundState rs)
+    {
+        StringBuilder sb = new StringBuilder(rs.toString());
+
+        sb.append("CUPS\n");
+        try
+        {
+            for (Cup cup : rs.getCups())
+            {
+                sb.append(cup).append('\n');
+            }
+        }
+        catch (Exception e)
+        {
+            sb.append("hidden\n");
+        }
+
+        return sb.toString();
+    }
+
+
+    private static void addGameLogs(File file, ArrayList<File> files)
+    {
+        if (file.isDirectory())
+        {
+            File[] children = file.listFiles();
+            if (children != null)
+            {
+                Arrays.sort(children);
+                for (File child : children)
+                {
+                    if (child.isDirectory() || (child.getName().startsWith(GameServer.GAME_LOG) && child.getName().endsWith("." + GameServer.GAME_LOG_EXT)))
+                    {
+                        addGameLogs(child, files);
+                    }
+                }
+            }
+        }
+        else
+        {
+            files.add(file);
+        }
+    }
+
+
+    private static GameState load(File file) throws Exception
+    {
+        ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file));
+        try
+        {
+            return (GameState) ois.readObject();
+        }
+        finally
+        {
+            ois.close();
+        }
+    }
+}
@@ -2,14 +2,18 @@
 package com.shuttersky.liarsdice;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import java.util.logging.FileHandler;
 import java.util.logging.SimpleFormatter;
 import java.util.logging.Level;
-import java.io.FileOutputStream;
-import java.io.ObjectOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.FileNotFoundException;
 import java.util.Formatter;
 import java.util.Locale;
 
@@ -57,6 +61,12 @@ public class GameServer
      */
     private static final String PROPERTY_TIMEOUT = "timeout";
 
+    /**
+     * the milliseconds of CPU time each player call may use can be limited by defining this property.
+     * Only the thread that calls the player is counted, not threads the player hands work to.
+     */
+    private static final String PROPERTY_CPUTIMEOUT = "cputimeout";
+
     /**
      * the number of games to play
      */
@@ -67,30 +77,274 @@ public class GameServer
      */
     private static final int DEFAULT_NUMGAMES = 1;
 
+    /**
+     * the number of untimed throwaway games to play before the tournament
+     */
+    private static final String PROPERTY_WARMUPGAMES = "warmupgames";
+
+    /**
+     * if no property is set for PROPERTY_WARMUPGAMES this default value is used
+     */
+    private static final int DEFAULT_WARMUPGAMES = 0;
+
+    /**
+     * define this property as true to run each player in a JVM of its own
+     */
+    private static final String PROPERTY_ISOLATE = "isolate";
+
+    /**
+     * a player property of NETWORK_PLAYER_PREFIX followed by a name seats the network player with that name
+     */
+    private static final String NETWORK_PLAYER_PREFIX = "net:";
+
+    /**
+     * the port network players connect to can be configured by defining this property
+     */
+    private static final String PROPERTY_NETPORT = "netport";
+
+    /**
+     * the number of tables to play the tournament at, at the same time
+     */
+    private static final String PROPERTY_TABLES = "tables";
+
+    /**
+     * if no property is set for PROPERTY_TABLES this default value is used
+     */
+    private static final int DEFAULT_TABLES = 1;
+
+    /**
+     * the most players asked for a bid at once, across every table
+     */
+    private static final String PROPERTY_MAXBIDS = "maxbids";
+
+    /**
+     * define this property as a number of players to play every set of that many
+     * of the players at a table of its own, scheduled onto the processors
+     */
+    private static final String PROPERTY_TABLESIZE = "tablesize";
+
+    /**
+     * the number of processors that scheduled tables keep busy, all of them if not set
+     */
+    private static final String PROPERTY_CORES = "cores";
+
+    /**
+     * the microseconds that tables wait to ask BatchPlayers for their bids together
+     */
+    private static final String PROPERTY_BATCHWINDOW = "batchwindow";
+
+    /**
+     * the seed the dice of every game are derived from can be set by defining this property
+     */
+    private static final String PROPERTY_SEED = "seed";
+
+    /**
+     * define this property as a file name to save the progress of the tournament to, and to resume from
+     */
+    private static final String PROPERTY_CHECKPOINT = "checkpoint";
+
+    /**
+     * the number of games between checkpoints
+     */
+    private static final String PROPERTY_CHECKPOINTEVERY = "checkpointevery";
+
+    /**
+     * if no property is set for PROPERTY_CHECKPOINTEVERY this default value is used
+     */
+    private static final int DEFAULT_CHECKPOINTEVERY = 100;
+
+    /**
+     * define this property as true to play every deal of the dice once for each seat
+     */
+    private static final String PROPERTY_DUPLICATE = "duplicate";
+
+    /**
+     * define this property as true to rate the players and print their ratings at the end
+     */
+    private static final String PROPERTY_RATINGS = "ratings";
+
+    /**
+     * define this property as a difference in Elo to stop the tournament, and drop
+     * players from it, as soon as the players are told apart by that much
+     */
+    private static final String PROPERTY_SPRT = "sprt";
+
 
     /**
      * member variables representing the player classes and their cups.
      */
     private ArrayList<Player> _players = null;
-    private ArrayList<Cup> _playerCups = null;
-    private RoundState _rs = null;
     private GameState _gamestate = null;
-    private int _currentPlayer = 0;
-    private int _timeoutSeconds = DEFAULT_TIMEOUT_SECONDS;
     private int _numGames = DEFAULT_NUMGAMES;
     private int _currentGameNumber = 0;
+    private int _numWarmupGames = DEFAULT_WARMUPGAMES;
+    private boolean _warmingUp = false;
+    private int _numTables = DEFAULT_TABLES;
+    private int _tableSize = 0;
+    private int _cores = Runtime.getRuntime().availableProcessors();
+    private int _maxConcurrentBids = 0;
+    private long _batchWindowMicros = 0;
 
     /**
-     * static logger object.  This should be used by all objects in the game.
+     * the seed of the dice of each game is derived from this and the game number
+     */
+    private long _seed = new Random().nextLong();
+
+    /**
+     * where the progress of the tournament is saved.  The players of the last game are
+     * kept to be checkpointed, and a checkpoint being resumed from is kept until the
+     * players of the first game have been given their states.
+     */
+    private File _checkpointFile = null;
+    private int _checkpointEvery = DEFAULT_CHECKPOINTEVERY;
+    private ArrayList<Player> _lastGamePlayers = null;
+    private TournamentCheckpoint _resumeCheckpoint = null;
+
+    /**
+     * in a duplicate tournament, the players are rotated this many seats from the
+     * order of their properties, and the deals are scored
      */
-    public static Logger logger = null;
+    private int _seatRotation = 0;
+    private DuplicateScore _duplicateScore = null;
 
     /**
-     * this gets executed when the GameServer is instantiated.
+     * the ratings of the players, and the test that settles the tournament early
      */
+    private Ratings _ratings = null;
+    private SequentialTest _sequentialTest = null;
+
+    /**
+     * the fully qualified class names of the players, in seating order, and the seat id
+     * of each.  A player keeps its seat id when a player before it is dropped, so the
+     * players and processes kept from game to game stay with the player they were made for.
+     */
+    private ArrayList<String> _playerClassNames = new ArrayList<String>();
+    private ArrayList<Integer> _playerSeatIds = new ArrayList<Integer>();
+    private int _nextSeatId = 0;
+
+    /**
+     * the directory the games are saved in, or <code>null</code> for the working directory
+     */
+    private File _gameLogDirectory = null;
+
+    /**
+     * when the GameServer is one of many tables, its name prefixes the game
+     * numbers, and it needs a permit before asking a player for a bid
+     */
+    private String _tableName = "";
+    private Semaphore _bidPermits = null;
+
+    /**
+     * when the GameServer is one of many tables, BatchPlayers may be asked through this
+     */
+    private BatchDispatcher _batchDispatcher = null;
+
+    /**
+     * the clock that player timeouts are measured on
+     */
+    private GameClock _clock = GameClock.SYSTEM;
+
+    /**
+     * when players are isolated, each one's process is kept from game to game, by seat id,
+     * so that a class named for two seats has a process for each
+     */
+    private boolean _isolate = false;
+    private HashMap<Integer, ProcessPlayer> _processPlayers = new HashMap<Integer, ProcessPlayer>();
+
+    /**
+     * the players that implement ReusablePlayer are kept from game to game, by seat id,
+     * so that a class named for two seats has an instance for each
+     */
+    private HashMap<Integer, Player> _reusablePlayers = new HashMap<Integer, Player>();
+
+    /**
+     * started when the first network player is seated
+     */
+    private NetworkServer _networkServer = null;
+
+    /**
+     * statistics and operator controls exposed over JMX.  The monitor also holds the timeout.
+     */
+    private TournamentMonitor _monitor = new TournamentMonitor(DEFAULT_TIMEOUT_SECONDS);
+
+    /**
+     * static logger object.  This should be used by all objects in the game.
+     * It only logs warnings, and to nowhere but the console, until a program
+     * sets it up, so that games played inside another program leave no files behind.
+     */
+    public static Logger logger = Logger.getLogger(GameServer.class.getName());
+
     static
     {
-        setupLogger();
+        logger.setLevel(Level.WARNING);
+    }
+
+
+    /**
+     * constructor.  The players and options are read from the properties by main.
+     */
+    public GameServer()
+    {
+    }
+
+
+    /**
+     * constructor for one of the tables of a TableManager.
+     *
+     * @param playerClassNames List&lt;String&gt; of the fully qualified class names of the players.
+     * @param sTableName       String representing the name of the table, which prefixes its game numbers.
+     * @param monitor          TournamentMonitor shared by every table.
+     * @param bidPermits       Semaphore shared by every table that limits the bids asked for at once, or <code>null</code>.
+     * @param batchDispatcher  BatchDispatcher shared by every table that gathers the bids of BatchPlayers, or <code>null</code>.
+     * @param lSeed            long representing the seed the dice of the table's games are derived from.
+     */
+    GameServer(List<String> playerClassNames, String sTableName, TournamentMonitor monitor, Semaphore bidPermits, BatchDispatcher batchDispatcher, long lSeed)
+    {
+        for (String sPlayerClassName : playerClassNames)
+        {
+            addPlayerClassName(sPlayerClassName);
+        }
+        _tableName = sTableName;
+        _monitor = monitor;
+        _bidPermits = bidPermits;
+        _batchDispatcher = batchDispatcher;
+        _seed = lSeed;
+    }
+
+
+    /**
+     * Measure player timeouts on another clock, such as a SimulatedClock in a test.
+     *
+     * @param clock GameClock that timeouts are measured on.
+     */
+    void setClock(GameClock clock)
+    {
+        _clock = clock;
+    }
+
+
+    /**
+     * Save the games in a directory other than the working directory.
+     *
+     * @param gameLogDirectory File representing the directory the games are saved in.
+     */
+    void setGameLogDirectory(File gameLogDirectory)
+    {
+        _gameLogDirectory = gameLogDirectory;
+    }
+
+
+    /**
+     * Rate the players, and settle the tournament with a sequential test, as the
+     * ratings and sprt properties do.
+     *
+     * @param ratings        Ratings of the players so far.
+     * @param sequentialTest SequentialTest that decides between two players.
+     */
+    void setSequentialTest(Ratings ratings, SequentialTest sequentialTest)
+    {
+        _ratings = ratings;
+        _sequentialTest = sequentialTest;
     }
 
     /**
@@ -101,6 +355,7 @@ public class GameServer
      */
     public static void main(String[] args)
     {
+        setupLogger();
         logger.entering("GameServer", "main");
 
         logger.info("welcome to liar's dice");
@@ -110,8 +365,73 @@ public class GameServer
 
         gs.loadOptions();
 
+        // allow the tournament to be watched and tuned with JMX
+        gs._monitor.register();
+
+        // pick up where a previous run left off
+        try
+        {
+            gs.resumeFromCheckpoint();
+        }
+        catch (Exception e)
+        {
+            logger.severe("Unable to resume from the checkpoint: " + e);
+            System.exit(-1);
+        }
+
+        // give the players a chance to get ready before the clock starts
+        try
+        {
+            gs.warmUp();
+        }
+        catch (Exception e)
+        {
+            logger.severe("Exception during warm-up");
+            System.exit(-1);
+        }
+
+        if (gs._numTables > 1 || gs._tableSize > 0)
+        {
+            if (gs._checkpointFile != null || gs._duplicateScore != null || gs._ratings != null)
+            {
+                logger.warning("checkpoints, duplicate deals and ratings are only for playing at one table");
+                gs._checkpointFile = null;
+                gs._duplicateScore = null;
+                gs._ratings = null;
+                gs._sequentialTest = null;
+            }
+
+            if (gs._tableSize > 0)
+            {
+                gs.scheduleTables();
+            }
+            else
+            {
+                gs.playTables();
+            }
+            gs._monitor.logCallCosts();
+            logger.exiting("GameServer", "main");
+            return;
+        }
+
+        gs._monitor.tournamentStarted(gs._numGames);
+
         while (gs._currentGameNumber < gs._numGames)
         {
+            // stop as soon as the result is decided
+            if (gs._sequentialTest != null && gs.settleMatchups())
+            {
+                logger.info("tournament settled after " + gs._currentGameNumber + " games");
+                break;
+            }
+
+            // wait here while paused, and leave if a stop was requested
+            if (gs._monitor.awaitNextGame(gs._currentGameNumber) == false)
+            {
+                logger.info("tournament stopped after " + gs._currentGameNumber + " games");
+                break;
+            }
+
             // play the game
             try
             {
@@ -137,277 +457,623 @@ public class GameServer
                 System.exit(-1);
             }
 
+            gs._monitor.gameCompleted(getSimpleClassName(gs._players.get(0)));
+            if (gs._duplicateScore != null)
+            {
+                gs._duplicateScore.gameCompleted(gs._gamestate.getPlayerSimpleClassNames(), getSimpleClassName(gs._players.get(0)));
+            }
+            if (gs._ratings != null)
+            {
+                gs._ratings.gameCompleted(gs._gamestate.getFinishingOrder());
+            }
             gs._currentGameNumber++;
+
+            if (gs._checkpointFile != null && (gs._currentGameNumber % gs._checkpointEvery == 0 || gs._currentGameNumber == gs._numGames))
+            {
+                gs.saveCheckpoint();
+            }
         }
 
+        if (gs._duplicateScore != null)
+        {
+            System.out.println(gs._duplicateScore.getReport());
+        }
+        if (gs._ratings != null)
+        {
+            System.out.println(gs._ratings.getReport());
+        }
+
+        gs._monitor.logCallCosts();
         logger.exiting("GameServer", "main");
     }
 
 
     /**
-     * Plays one game of liars dice.
+     * Plays the tournament at several tables at once, each with the same
+     * players, and waits for every table to finish.
      */
-    private void PlayGame() throws Exception
+    private void playTables()
     {
-        // create a gamestate to keep statistics
-        _gamestate = new GameState();
+        TableManager manager = new TableManager(_maxConcurrentBids, TableManager.DEFAULT_MAX_PLATFORM_TABLES, _batchWindowMicros, _seed, _monitor);
+        ArrayList<Future<List<String>>> tables = new ArrayList<Future<List<String>>>();
+
+        _monitor.tournamentStarted(_numGames * _numTables);
+
+        for (int i = 0; i < _numTables; i++)
+        {
+            tables.add(manager.submit(_playerClassNames, _numGames));
+        }
+        manager.shutdown();
 
-        // load the options and players from the defined properties
-        logger.finest("loading players");
         try
         {
-            loadPlayers();
+            for (Future<List<String>> table : tables)
+            {
+                table.get();
+            }
+            manager.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
         }
         catch (Exception e)
         {
-            logger.severe("Failed to load players");
-            throw new Exception("Failed to load players", e);
+            logger.severe("Exception during game play at a table");
+            System.exit(-1);
+        }
+
+        logger.info("every table finished");
+    }
+
+
+    /**
+     * Plays every set of players of the table size at a table of its own, as many
+     * times as there are tables, with the tables packed onto the processors.
+     */
+    private void scheduleTables()
+    {
+        List<List<String>> sets = TableScheduler.roundRobin(_playerClassNames, _tableSize);
+        ArrayList<List<String>> tables = new ArrayList<List<String>>();
+        for (int i = 0; i < _numTables; i++)
+        {
+            tables.addAll(sets);
         }
 
-        // create a cup for each player
-        logger.finest("creating cups");
+        TableScheduler scheduler = new TableScheduler(_cores, _monitor, _seed, _maxConcurrentBids, _batchWindowMicros);
+        logger.info("scheduling " + tables.size() + " tables of " + _tableSize + " players on " + _cores + " processors");
+
+        _monitor.tournamentStarted(_numGames * tables.size());
+
         try
         {
-            makeCups();
+            scheduler.play(tables, _numGames);
+            scheduler.shutdown();
         }
         catch (Exception e)
         {
-            logger.severe("Cannot make cups for players");
-            throw new Exception("Cannot make cups for players", e);
+            logger.severe("Exception during game play at a table");
+            System.exit(-1);
         }
 
-        logger.fine("begin play");
-        logger.finest("number of players: " + _players.size());
+        logger.info("every table finished");
+    }
+
 
-        // while there is more than one player
-        while (_players.size() > 1)
+    /**
+     * Plays a series of games at this table, saving each one.  The monitor may
+     * pause the table between games, or stop it early.
+     *
+     * @param numGames int representing the number of games to play.
+     * @return List&lt;String&gt; of the simple class name of the winner of each game played.
+     * @throws Exception if a game can not be played or saved, or the thread is interrupted.
+     */
+    List<String> playTable(int numGames) throws Exception
+    {
+        ArrayList<String> winners = new ArrayList<String>();
+
+        for (_currentGameNumber = 0; _currentGameNumber < numGames; _currentGameNumber++)
         {
-            try
+            if (_monitor.awaitNextGame(_currentGameNumber) == false)
             {
-                playRound();
+                logger.info("table " + _tableName + " stopped after " + _currentGameNumber + " games");
+                break;
             }
-            catch (Exception e)
+            if (Thread.interrupted())
             {
-                logger.severe("Exception thrown while playing a round.  The game is ending early.");
-                throw new Exception("Exception thrown while playing a round.  The game is ending early.", e);
+                throw new InterruptedException("table " + _tableName + " was interrupted");
             }
+
+            PlayGame();
+            _gamestate.logResults(getFormattedGameNumber());
+            saveGameState();
+
+            String sWinner = getSimpleClassName(_players.get(0));
+            _monitor.gameCompleted(sWinner);
+            winners.add(sWinner);
         }
 
-        logger.info("The winner is " + (_players.get(0)).getClass().getSimpleName());
+        return winners;
     }
 
 
     /**
-     * plays one round of liars dice.  A round consists of
-     * <ul>
-     * <li>shaking everyone's cups
-     * <li>administering the solicitation for bids
-     * <li>resolving the showdown
-     * <li>removing the loser's die (and possibly the loser!)
-     * </ul>
+     * Load the checkpoint, if there is one, and carry on from it: the next game
+     * number, the seed, and the standings.  The players' states are restored
+     * when the first game is loaded.
      *
-     * @throws Exception if there is a threading problem
+     * @throws Exception if the checkpoint can not be read or belongs to other players.
      */
-    private void playRound() throws Exception
+    private void resumeFromCheckpoint() throws Exception
     {
-        Bid bid = null;
-        Player player = null;
-        Cup cup = null;
-
-        logger.finest("inside playRound()");
-
-        // initialize all variables for a new round
-        prepareNewRound(_currentPlayer);
+        if (_checkpointFile == null)
+        {
+            return;
+        }
 
-        logger.fine("populated roundstate");
+        TournamentCheckpoint checkpoint = TournamentCheckpoint.load(_checkpointFile);
+        if (checkpoint == null)
+        {
+            logger.info("no checkpoint yet in " + _checkpointFile);
+            return;
+        }
 
-        logger.finest("roundstate has " + _rs.getNumPlayers() + " number of players");
+        // players dropped by the sequential test are missing from the checkpoint
+        ArrayList<String> remaining = new ArrayList<String>(_playerClassNames);
+        remaining.retainAll(checkpoint.getPlayerClassNames());
+        if (checkpoint.getPlayerClassNames().equals(remaining) == false
+            || (remaining.size() < _playerClassNames.size() && checkpoint.getRatings() == null))
+        {
+            throw new Exception("the checkpoint is for the players " + checkpoint.getPlayerClassNames());
+        }
+        _playerClassNames.clear();
+        _playerSeatIds.clear();
+        for (String sPlayerClassName : remaining)
+        {
+            addPlayerClassName(sPlayerClassName);
+        }
 
-        // each bid
-        do
+        _currentGameNumber = checkpoint.getNextGameNumber();
+        _seed = checkpoint.getSeed();
+        _monitor.restoreStandings(checkpoint);
+        if (_duplicateScore != null && checkpoint.getDuplicateScore() != null)
         {
-            logger.finest("new bid");
+            _duplicateScore = checkpoint.getDuplicateScore();
+        }
+        if (_ratings != null && checkpoint.getRatings() != null)
+        {
+            _ratings = checkpoint.getRatings();
+        }
+        _resumeCheckpoint = checkpoint;
 
-            // get the current player and their cup
-            player = _players.get(_currentPlayer);
-            cup = _playerCups.get(_currentPlayer);
+        logger.info("resuming at game " + _currentGameNumber + " with dice seed " + _seed);
+    }
 
-            logger.finest("got cup for " + player.getClass().getSimpleName() + " " + cup.toString());
 
-            // ask the player for a bid
-            try
+    /**
+     * Save the progress of the tournament, with the states of the players of the
+     * last game that implement PlayerCheckpoint.  A checkpoint that can not be
+     * saved is logged, and the tournament goes on.
+     */
+    private void saveCheckpoint()
+    {
+        ArrayList<byte[]> states = new ArrayList<byte[]>();
+
+        // save the states in the order of the properties, whatever seats the players had
+        for (int i = 0; i < _lastGamePlayers.size(); i++)
+        {
+            Player player = _lastGamePlayers.get((i + _lastGamePlayers.size() - _seatRotation) % _lastGamePlayers.size());
+            byte[] state = null;
+            if (player instanceof PlayerCheckpoint)
             {
-                TimeoutSafePlayer tsplayer = new TimeoutSafePlayer(player, _timeoutSeconds);
-                bid = tsplayer.getBid(_rs, new Cup(cup) /* give a tamper-proof copy of their cup */);
+                try
+                {
+                    state = ((PlayerCheckpoint) player).saveCheckpoint();
+                }
+                catch (Exception e)
+                {
+                    logger.warning(getSimpleClassName(player) + " could not save its checkpoint: " + e);
+                }
             }
-            catch (Exception e)
-            {
+            states.add(state);
+        }
 
-                logger.severe("Failed to construct a TimeoutSafePlayer");
-                throw new Exception("Failed to construct a TimeoutSafePlayer", e);
-            }
+        try
+        {
+            new TournamentCheckpoint(_playerClassNames, _seed, _currentGameNumber, _monitor, states, _duplicateScore, _ratings).save(_checkpointFile);
+            logger.fine("checkpoint saved before game " + _currentGameNumber);
+        }
+        catch (IOException e)
+        {
+            logger.severe("Unable to save the checkpoint: " + e);
+        }
+    }
+
+
+    /**
+     * Check the sequential test between the players still in the tournament.  The
+     * tournament is settled when the best rated player is decidedly better than
+     * each of the others.  Until then, a player that another is decidedly better
+     * than is dropped, as long as more than two are left and the deals are not
+     * duplicate.  Duplicate deals are only checked when a deal is complete.
+     *
+     * @return boolean true if the tournament is settled.
+     */
+    boolean settleMatchups()
+    {
+        if (_lastGamePlayers == null || (_duplicateScore != null && _currentGameNumber % _playerClassNames.size() != 0))
+        {
+            return false;
+        }
 
-            logger.fine("Player: " + player.getClass().getSimpleName() + " bid " + bid);
+        // the names of the players of the last game, in the order of their properties
+        int iNumPlayers = _lastGamePlayers.size();
+        ArrayList<String> names = new ArrayList<String>();
+        for (int i = 0; i < iNumPlayers; i++)
+        {
+            names.add(getSimpleClassName(_lastGamePlayers.get((i + iNumPlayers - _seatRotation) % iNumPlayers)));
+        }
 
-            // if the bid is null, the player loses the round
-            if (bid == null)
+        String sBest = names.get(0);
+        for (String sName : names)
+        {
+            if (_ratings.getRating(sName) > _ratings.getRating(sBest))
             {
-                logger.warning(player.getClass().getSimpleName() + " returned a bid that was null");
+                sBest = sName;
+            }
+        }
 
-                // punish loser
-                punishLoser((_currentPlayer + _players.size() - 1) % _players.size(), _currentPlayer /* loser */);
-                return;
+        boolean bSettled = true;
+        for (String sName : names)
+        {
+            if (sName.equals(sBest) == false && isDecidedlyBetter(sBest, sName) == false)
+            {
+                bSettled = false;
             }
+        }
+        if (bSettled)
+        {
+            logger.info(sBest + " is decidedly better than the other players");
+            return true;
+        }
 
-            if (bid != null)
+        if (_duplicateScore == null)
+        {
+            for (int i = iNumPlayers - 1; i >= 0 && _playerClassNames.size() > MIN_NUM_PLAYERS; i--)
             {
-                bid.setPlayerNumDice(cup.getNumDice());
-                bid.setPlayerSimpleClassName(player.getClass().getSimpleName());
+                for (String sOther : names)
+                {
+                    if (isDecidedlyBetter(sOther, names.get(i)))
+                    {
+                        logger.info("dropping " + names.get(i) + ", " + sOther + " is decidedly better");
+                        dropPlayer(i);
+                        break;
+                    }
+                }
             }
+        }
 
-            // get previously higest bid
-            Bid bidHighest = _rs.getHighestBid();
+        return false;
+    }
 
-            // add the bid to the round
-            _rs.addNextBid(bid);
 
-            // inform each player of the new bid
-            tellBid(_rs);
+    /**
+     * Take a player out of the tournament, with the instance or process kept for it.
+     *
+     * @param iPlayer int representing the index of the player in the seating order.
+     */
+    private void dropPlayer(int iPlayer)
+    {
+        _playerClassNames.remove(iPlayer);
+        Integer seatId = _playerSeatIds.remove(iPlayer);
 
-            // validate bid
-            // bid must outbid previous bid
-            if (bidHighest != null)
-            {
-                // if bid is not higher, it is considered an automatic round loss
-                if (bid.compareTo(bidHighest) < 1)
-                {
-                    logger.warning(player.getClass().getSimpleName() + " returned a bid that is too low");
+        _reusablePlayers.remove(seatId);
+        ProcessPlayer process = _processPlayers.remove(seatId);
+        if (process != null)
+        {
+            process.close();
+        }
+    }
+
+
+    /**
+     * Add a player to the end of the seating order, with a seat id of its own.
+     *
+     * @param sPlayerClassName String representing the fully qualified class name of the player.
+     */
+    private void addPlayerClassName(String sPlayerClassName)
+    {
+        _playerClassNames.add(sPlayerClassName);
+        _playerSeatIds.add(Integer.valueOf(_nextSeatId++));
+    }
+
+
+    private boolean isDecidedlyBetter(String sName, String sOther)
+    {
+        return _sequentialTest.decide(_ratings.getGamesAheadOf(sName, sOther), _ratings.getGamesAheadOf(sOther, sName)) == 1;
+    }
 
-                    // add the roundstate before we punish the loser
-                    _gamestate.add(_rs);
 
-                    // punish loser
-                    punishLoser((_currentPlayer + _players.size() - 1) % _players.size(), _currentPlayer  /* loser */);
-                    _gamestate.add(_rs);
-                    return;
+    /**
+     * Lets each player that implements PlayerLifecycle warm up, then plays the
+     * throwaway games.  Nothing is timed, saved or counted while warming up.
+     */
+    private void warmUp() throws Exception
+    {
+        _warmingUp = true;
+
+        try
+        {
+            loadPlayers();
+            for (Player player : _players)
+            {
+                if (player instanceof PlayerLifecycle)
+                {
+                    logger.fine("warming up " + getSimpleClassName(player));
+                    ((PlayerLifecycle) player).warmup();
                 }
             }
 
-            // first bid cannot be bs
-            if ((bidHighest == null) && (bid.isBS()))
+            for (int i = 0; i < _numWarmupGames; i++)
             {
-                logger.warning("First bid may not be b.s.");
+                PlayGame();
+            }
+        }
+        finally
+        {
+            _warmingUp = false;
+        }
 
-                // add the roundstate before we punish the loser
-                _gamestate.add(_rs);
+        logger.info("warm-up finished after " + _numWarmupGames + " throwaway games");
+    }
 
-                punishLoser((_currentPlayer + _players.size() - 1) % _players.size(), _currentPlayer  /* loser */);
-                _gamestate.add(_rs);
-                return;
-            }
 
-            // increment the player index
-            _currentPlayer = (_currentPlayer + 1) % _rs.getNumPlayers();
+    /**
+     * Plays one game of liars dice.
+     */
+    private void PlayGame() throws Exception
+    {
+        // a duplicate tournament moves the players one seat further for each game of a deal
+        _seatRotation = (_duplicateScore != null && _warmingUp == false) ? _currentGameNumber % _playerClassNames.size() : 0;
 
+        // load the options and players from the defined properties
+        logger.finest("loading players");
+        try
+        {
+            loadPlayers();
+        }
+        catch (Exception e)
+        {
+            logger.severe("Failed to load players");
+            throw new Exception("Failed to load players", e);
         }
-        while (bid.isBS() != true);
 
-        // add the roundstate before we punish the loser
-        _gamestate.add(_rs);
+        // keep every player so that even the eliminated ones are shut down
+        ArrayList<Player> players = new ArrayList<Player>(_players);
+        if (_warmingUp == false)
+        {
+            _lastGamePlayers = players;
+            restorePlayers(players);
+        }
 
-        resolveShowdown();
+        try
+        {
+            for (Player player : players)
+            {
+                if (player instanceof PlayerLifecycle)
+                {
+                    ((PlayerLifecycle) player).init();
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            logger.severe("Failed to init players");
+            shutdownPlayers(players);
+            throw new Exception("Failed to init players", e);
+        }
+
+        try
+        {
+            playGameRounds(players);
+        }
+        finally
+        {
+            shutdownPlayers(players);
+        }
     }
 
 
     /**
-     * when one player has bid bs, this is called to resolve who is correct.
+     * Give the players of the first game after resuming what the players in the same seats saved.
+     *
+     * @param players ArrayList of the players by seat.
      */
-    private void resolveShowdown() throws Exception
+    private void restorePlayers(ArrayList<Player> players)
     {
-        Bid bid = null;
-        int iDefendingIndex = 0;
-        int iChallengingIndex = 0;
-        int iLoserIndex = 0;
-        int iWinnerIndex = 0;
+        if (_resumeCheckpoint == null)
+        {
+            return;
+        }
 
-        try
+        for (int i = 0; i < players.size(); i++)
         {
-            bid = _rs.getBid(_rs.getNumBids() - 2);
+            byte[] state = _resumeCheckpoint.getPlayerState((i + _seatRotation) % players.size());
+            if (state != null && players.get(i) instanceof PlayerCheckpoint)
+            {
+                try
+                {
+                    ((PlayerCheckpoint) players.get(i)).restoreCheckpoint(state);
+                }
+                catch (Exception e)
+                {
+                    logger.warning(getSimpleClassName(players.get(i)) + " could not restore its checkpoint: " + e);
+                }
+            }
         }
-        catch (Exception e)
+
+        _resumeCheckpoint = null;
+    }
+
+
+    /**
+     * Plays the rounds of a game with the players that are loaded.  The GameEngine
+     * enforces the rules; the GameServer asks each player for a bid in turn and
+     * keeps everyone informed.
+     *
+     * @param players ArrayList of the players in the order the engine numbers them.
+     */
+    private void playGameRounds(final ArrayList<Player> players) throws Exception
+    {
+        ArrayList<String> names = new ArrayList<String>();
+        for (Player player : players)
         {
-            logger.severe("Failed to get bid to resolve showdown.");
-            throw new Exception("Failed to get bid to resolve showdown.", e);
+            names.add(getSimpleClassName(player));
         }
 
-        logger.finest("iCurrentPlayer: " + _currentPlayer);
+        // warm-up games are thrown away, so their dice need not be repeatable
+        long lSeed = _warmingUp ? new Random().nextLong() : DiceStream.derive(_seed, getDealNumber());
+
+        GameEngine engine = new GameEngine(names, lSeed, new GameEngine.Listener()
+        {
+            public void roundStarted(RoundState rs)
+            {
+                logger.finest("roundstate has " + rs.getNumPlayers() + " number of players");
+
+                // tell the players who listen for changes that the round started
+                tellRoundStart(rs);
+            }
+
+            public void bidMade(RoundState rs)
+            {
+                // inform each player of the new bid
+                tellBid(rs);
+            }
 
-        iDefendingIndex = (_currentPlayer + _rs.getNumPlayers() - 2) % _rs.getNumPlayers();
-        iChallengingIndex = (_currentPlayer + _rs.getNumPlayers() - 1) % _rs.getNumPlayers();
+            public void roundEnded(RoundState rs, String sWinnerClassName, String sLoserClassName)
+            {
+                tellOutcome(rs, sWinnerClassName, sLoserClassName);
+            }
+
+            public void playerEliminated(int iPlayer)
+            {
+                Player player = players.get(iPlayer);
+                if (_warmingUp == false)
+                {
+                    _monitor.playerEliminated(getSimpleClassName(player));
+                }
+                _players.remove(player);
+            }
+        });
+        _gamestate = engine.getGameState();
+
+        logger.fine("begin play");
+        logger.finest("number of players: " + _players.size());
 
-        logger.finest("Defender index: " + iDefendingIndex + " Challenger index: " + iChallengingIndex);
+        engine.start();
 
-        // compare the most recent (non b.s.) bid to the actual cups
-        if (bid.getNumDice() <= getNumDice(bid.getDots()))
+        int iPlayer = GameEngine.NONE;
+        while ((iPlayer = engine.awaitingSeat()) != GameEngine.NONE)
         {
-            iWinnerIndex = iDefendingIndex;
-            iLoserIndex = iChallengingIndex;
+            try
+            {
+                engine.step(askForBid(players.get(iPlayer), engine.getRoundState(), engine.getCup(iPlayer)));
+            }
+            catch (Exception e)
+            {
+                logger.severe("Exception thrown while playing a round.  The game is ending early.");
+                throw new Exception("Exception thrown while playing a round.  The game is ending early.", e);
+            }
         }
-        else
+
+        logger.info("The winner is " + getSimpleClassName(_players.get(0)));
+    }
+
+
+    /**
+     * Tell each player that implements PlayerLifecycle that the game is over.
+     *
+     * @param players ArrayList of every player that started the game.
+     */
+    private void shutdownPlayers(ArrayList<Player> players)
+    {
+        for (Player player : players)
         {
-            iWinnerIndex = iChallengingIndex;
-            iLoserIndex = iDefendingIndex;
+            if (player instanceof PlayerLifecycle)
+            {
+                try
+                {
+                    ((PlayerLifecycle) player).shutdown();
+                }
+                catch (Exception e)
+                {
+                    logger.warning(getSimpleClassName(player) + " threw an exception during shutdown");
+                }
+            }
         }
-
-        punishLoser(iWinnerIndex, iLoserIndex);
     }
 
 
     /**
-     * Tell everyone about the outcome of a showdown or an invalid play.
-     * Remove a die from the loser.  Adjust the indices as necessary.
+     * Ask a player for a bid, within the time limit.
      *
-     * @param iWinnerIndex int index of the winner in vPlayers for this round.
-     * @param iLoserIndex  int index of the loser in vPlayers for this round.
+     * @param player Player who is to bid.
+     * @param rs     RoundState of the round being played.
+     * @param cup    Cup of the player, which the player may keep.
+     * @return Bid of the player, or <code>null</code> if the player did not give one in time.
+     * @throws Exception if there is a threading problem
      */
-    private void punishLoser(int iWinnerIndex, int iLoserIndex)
+    private Bid askForBid(Player player, RoundState rs, Cup cup) throws Exception
     {
-        // allow access to the cups
-        _rs.setShowdownOver();
+        Bid bid = null;
 
-        // tell everyone
-        tellOutcome((_players.get(iWinnerIndex)).getClass().getSimpleName(), (_players.get(iLoserIndex)).getClass().getSimpleName());
+        logger.finest("got cup for " + getSimpleClassName(player) + " " + cup.toString());
 
-        // remove a die from the losers cup
         try
         {
-            (_playerCups.get(iLoserIndex)).removeDie();
+            // a BatchPlayer at one of many tables may be asked together with other tables
+            Player caller = player;
+            if (_batchDispatcher != null && player instanceof BatchPlayer)
+            {
+                caller = _batchDispatcher.forPlayer(player);
+            }
+
+            TimeoutSafePlayer tsplayer = newTimeoutSafePlayer(caller);
+            if (_bidPermits != null)
+            {
+                _bidPermits.acquire();
+            }
+            long lStart = System.nanoTime();
+            try
+            {
+                bid = tsplayer.getBid(rs, cup);
+            }
+            finally
+            {
+                if (_bidPermits != null)
+                {
+                    _bidPermits.release();
+                }
+            }
+            callFinished(tsplayer, player);
+
+            // learn what each player costs, for scheduling tables
+            if (_warmingUp == false)
+            {
+                int iThreads = (player instanceof PlayerResources) ? ((PlayerResources) player).getBidThreads() : 1;
+                _monitor.bidCompleted(getSimpleClassName(player), System.nanoTime() - lStart, iThreads);
+            }
         }
         catch (Exception e)
         {
-            logger.severe("bad cup index");
-            System.exit(-1);
+            logger.severe("Failed to construct a TimeoutSafePlayer");
+            throw new Exception("Failed to construct a TimeoutSafePlayer", e);
         }
-        _currentPlayer = (iLoserIndex + 1) % _rs.getNumPlayers();
 
-        // remove the player and their cup if they have no dice left
-        if ((_playerCups.get(iLoserIndex)).getNumDice() == 0)
-        {
-            logger.info("goodbye: " + (_players.get(iLoserIndex)).getClass().getSimpleName());
-            _players.remove(iLoserIndex);
-            _playerCups.remove(iLoserIndex);
+        logger.fine("Player: " + getSimpleClassName(player) + " bid " + bid);
 
-            // should the current player index be adjusted?
-            if (_currentPlayer > iLoserIndex)
-            {
-                _currentPlayer--;
-            }
-        }
+        return bid;
     }
 
 
     /**
-     * Based on the properties, instantiate each player's class.
+     * Instantiate each player's class.
      * Add each instance to a list.  The list is instantiated
      * if necessary, and it is cleared.  Then each player class
      * is added to the list
@@ -418,10 +1084,7 @@ public class GameServer
     private void loadPlayers()
         throws Exception
     {
-        String sPlayerClassName = null;
-        Class cPlayerClass = null;
         Player player = null;
-        int iPlayerNum = 0;
 
         logger.finest("loadPlayers() begin");
 
@@ -434,41 +1097,38 @@ public class GameServer
         logger.finest("clear list");
         _players.clear();
 
-        // populate the list with each of the player classes
-        do
+        // populate the list with each of the player classes, starting from the rotated seat
+        for (int iSeat = 0; iSeat < _playerClassNames.size(); iSeat++)
         {
-            try
-            {
-                sPlayerClassName = System.getProperty("player" + iPlayerNum++);
-            }
-            catch (Exception e)
-            {
-                logger.severe("exception getting property");
-                throw e;
-            }
-
+            int iPlayer = (iSeat + _seatRotation) % _playerClassNames.size();
+            String sPlayerClassName = _playerClassNames.get(iPlayer);
+            int iSeatId = _playerSeatIds.get(iPlayer).intValue();
             logger.finest("PlayerClassName: " + sPlayerClassName);
 
-            if (sPlayerClassName != null)
+            try
             {
-                try
+                if (sPlayerClassName.startsWith(NETWORK_PLAYER_PREFIX))
                 {
-                    cPlayerClass = java.lang.Class.forName(sPlayerClassName);
-                    player = (Player) cPlayerClass.newInstance();
-                    _players.add(player);
-
-                    logger.fine("Added player: " + player.getClass().getSimpleName());
+                    player = getNetworkPlayer(sPlayerClassName.substring(NETWORK_PLAYER_PREFIX.length()));
                 }
-                catch (Exception e)
+                else if (_isolate)
                 {
-                    logger.severe("can't get class or new instance:" + sPlayerClassName);
-                    throw e;
+                    player = getProcessPlayer(iSeatId, sPlayerClassName);
                 }
+                else
+                {
+                    player = getPlayer(iSeatId, sPlayerClassName);
+                }
+                _players.add(player);
 
-            }  // if (sPlayerClassName != null)
-
+                logger.fine("Added player: " + getSimpleClassName(player));
+            }
+            catch (Exception e)
+            {
+                logger.severe("can't get class or new instance:" + sPlayerClassName);
+                throw e;
+            }
         }
-        while (sPlayerClassName != null);
 
         // there must be at least 2 players.
         if (_players.size() < MIN_NUM_PLAYERS)
@@ -481,59 +1141,103 @@ public class GameServer
 
 
     /**
-     * create a cup for each player.
+     * @return int the number the dice of the current game are derived from: the game
+     * number, or in a duplicate tournament the number of the deal.
      */
-    private void makeCups()
-        throws Exception
+    private int getDealNumber()
     {
-        Cup cup = null;
-
-        // check to make sure that the list has been instantiated
-        if (_playerCups == null)
+        if (_duplicateScore != null)
         {
-            _playerCups = new ArrayList<Cup>();
+            return _currentGameNumber / _playerClassNames.size();
         }
 
-        logger.finest("clear player cups list");
+        return _currentGameNumber;
+    }
+
 
-        // clear the list
-        _playerCups.clear();
+    /**
+     * Get a player for a game: the one every table shares if it implements
+     * SharedPlayer, the one kept from the last game, reset, if it implements
+     * ReusablePlayer, or else a new one.
+     *
+     * @param iSeatId          int representing the seat id of the player.
+     * @param sPlayerClassName String representing the fully qualified class name of the player.
+     * @return Player to seat.
+     * @throws Exception if the player can not be created or reset.
+     */
+    private Player getPlayer(int iSeatId, String sPlayerClassName) throws Exception
+    {
+        if (PlayerFactory.isShared(sPlayerClassName))
+        {
+            return PlayerFactory.getSharedPlayer(sPlayerClassName);
+        }
 
-        // for each loaded player, make a cup
-        int i = _players.size();
-        while (i-- > 0)
+        // a kept player is only reused for the class it was made for
+        Player player = _reusablePlayers.get(Integer.valueOf(iSeatId));
+        if (player != null && player.getClass().getName().equals(sPlayerClassName))
         {
-            try
-            {
-                cup = new Cup(Cup.DEFAULT_NUM_DICE, Die.DEFAULT_NUM_SIDES);
-            }
-            catch (Exception e)
-            {
-                //this will never happen since we're using Cup's static variable to initialize it.
-                logger.severe("Could not create a new cup");
-                System.exit(-1);
-            }
+            ((ReusablePlayer) player).reset();
+            return player;
+        }
 
-            _playerCups.add(cup);
+        player = PlayerFactory.newPlayer(sPlayerClassName);
+        if (player instanceof ReusablePlayer)
+        {
+            _reusablePlayers.put(Integer.valueOf(iSeatId), player);
         }
+        else
+        {
+            _reusablePlayers.remove(Integer.valueOf(iSeatId));
+        }
+        return player;
     }
 
 
     /**
-     * shake all of the player's cups
+     * Get the process that hosts a player, starting it the first time.
+     *
+     * @param iSeatId          int representing the seat id of the player.
+     * @param sPlayerClassName String representing the fully qualified class name of the player.
+     * @return ProcessPlayer that stands in for the player.
+     * @throws Exception if the process can not be started.
      */
-    private void shakeCups()
+    private ProcessPlayer getProcessPlayer(int iSeatId, String sPlayerClassName)
+        throws Exception
     {
-        if (_playerCups == null)
+        ProcessPlayer player = _processPlayers.get(Integer.valueOf(iSeatId));
+
+        if (player == null)
         {
-            return;
+            player = new ProcessPlayer(sPlayerClassName);
+            _processPlayers.put(Integer.valueOf(iSeatId), player);
         }
 
-        // call shake for each cup
-        for (Cup cup : _playerCups)
+        return player;
+    }
+
+
+    /**
+     * Get the network player with a name, starting the NetworkServer the first
+     * time and waiting for the player to connect.
+     *
+     * @param sName String representing the name the player says hello with.
+     * @return NetworkPlayer that stands in for the player.
+     * @throws Exception if the server can not be started.
+     */
+    private NetworkPlayer getNetworkPlayer(String sName)
+        throws Exception
+    {
+        if (_networkServer == null)
         {
-            cup.shake();
+            _networkServer = new NetworkServer(Integer.getInteger(PROPERTY_NETPORT, NetworkServer.DEFAULT_PORT));
+            logger.info("listening for network players on port " + _networkServer.getPort());
         }
+
+        NetworkPlayer player = _networkServer.getPlayer(sName);
+        logger.info("waiting for " + sName + " to connect");
+        player.awaitConnection();
+
+        return player;
     }
 
 
@@ -556,14 +1260,15 @@ public class GameServer
         {
             try
             {
-                TimeoutSafePlayer tsplayer = new TimeoutSafePlayer(player, _timeoutSeconds);
+                TimeoutSafePlayer tsplayer = newTimeoutSafePlayer(player);
                 tsplayer.tellBid(rs);
+                callFinished(tsplayer, player);
             }
             catch (Exception e)
             {
                 // This should never happen
                 logger.severe("failed to construct a TimeoutSafePlayer");
-                System.exit(-1);
+                throw new IllegalStateException("failed to construct a TimeoutSafePlayer", e);
             }
 
         }
@@ -571,13 +1276,49 @@ public class GameServer
     }
 
 
+    /**
+     * tell the players that implement PlayerListener that a new round started.
+     *
+     * @param rs RoundState of the new round, before any bids.
+     */
+    private void tellRoundStart(RoundState rs)
+    {
+        if (_players == null)
+        {
+            return;
+        }
+
+        for (Player player : _players)
+        {
+            if ((player instanceof PlayerListener) == false)
+            {
+                continue;
+            }
+
+            try
+            {
+                TimeoutSafePlayer tsplayer = newTimeoutSafePlayer(player);
+                tsplayer.tellRoundStart(rs);
+                callFinished(tsplayer, player);
+            }
+            catch (Exception e)
+            {
+                // This should never happen
+                logger.severe("failed to construct a TimeoutSafePlayer");
+                throw new IllegalStateException("failed to construct a TimeoutSafePlayer", e);
+            }
+        }
+    }
+
+
     /**
      * Informs each player of the outcome of a showdown.
      *
+     * @param rs               RoundState of the round, with the cups revealed.
      * @param sWinnerClassName String representing the email address of the winner of the showdown.
      * @param sLoserClassName  String representing the email address of the loser of the showdown.
      */
-    private void tellOutcome(String sWinnerClassName, String sLoserClassName)
+    private void tellOutcome(RoundState rs, String sWinnerClassName, String sLoserClassName)
     {
         if (_players == null)
         {
@@ -589,8 +1330,9 @@ public class GameServer
         {
             try
             {
-                TimeoutSafePlayer tsplayer = new TimeoutSafePlayer(player, _timeoutSeconds);
-                tsplayer.tellOutcome(_rs, sWinnerClassName, sLoserClassName);
+                TimeoutSafePlayer tsplayer = newTimeoutSafePlayer(player);
+                tsplayer.tellOutcome(rs, sWinnerClassName, sLoserClassName);
+                callFinished(tsplayer, player);
             }
             catch (Exception e)
             {
@@ -604,65 +1346,84 @@ public class GameServer
 
 
     /**
-     * A way to find out how many of a type of die you have in all cups.
+     * @param player Player to call.
+     * @return TimeoutSafePlayer that calls the player within the time limits of the tournament.
+     * @throws Exception if the time limit is out of bounds.
+     */
+    private TimeoutSafePlayer newTimeoutSafePlayer(Player player) throws Exception
+    {
+        TimeoutSafePlayer tsplayer = new TimeoutSafePlayer(player, getCallTimeoutSeconds(), _clock);
+        tsplayer.setCpuTimeoutMillis(_warmingUp ? 0 : _monitor.getCpuTimeoutMillis());
+        return tsplayer;
+    }
+
+
+    /**
+     * Report what a player call cost, and a call that did not return in time, to the monitor.
      *
-     * @param iDots int representing the rank of die you want to count.
-     * @return int the number of dice that show iDots in all cups.
+     * @param tsplayer TimeoutSafePlayer that made the call.
+     * @param player   Player that was called.
      */
-    private int getNumDice(int iDots)
+    private void callFinished(TimeoutSafePlayer tsplayer, Player player)
     {
-        int iQuantity = 0;
+        // a player in a JVM of its own does its work there, not on the thread that called it
+        if (_warmingUp == false && (player instanceof PlayerProxy) == false)
+        {
+            _monitor.callCompleted(getSimpleClassName(player), tsplayer.getCpuNanos(), tsplayer.getAllocatedBytes());
+        }
 
-        for (Cup cup : _playerCups)
+        if (tsplayer.isTimedOut())
         {
-            iQuantity += cup.getNumDice(iDots);
+            String sLimit = _monitor.getTimeoutSeconds() + " seconds";
+            if (_monitor.getCpuTimeoutMillis() > 0)
+            {
+                sLimit += " or " + _monitor.getCpuTimeoutMillis() + " milliseconds of CPU time";
+            }
+            logger.warning(getSimpleClassName(player) + " did not respond within " + sLimit);
+            _monitor.playerTimedOut(getSimpleClassName(player), tsplayer.getPlayerCallerThread());
+
+            if (player instanceof PlayerProxy)
+            {
+                ((PlayerProxy) player).callTimedOut();
+            }
         }
-        return iQuantity;
     }
 
 
     /**
-     * Performs maintenance and initialization of variables in preparation of a new round.
-     * Shakes the cups, chalks up the previous round, makes and initializes a new RoundState.
+     * Get the name that identifies a player in the game.
      *
-     * @param iCurrentPlayer int representing an index of the current player
+     * @param player Player to name.
+     * @return String the simple class name of the player, or of the player a proxy stands in for.
      */
-    private void prepareNewRound(int iCurrentPlayer)
+    static String getSimpleClassName(Player player)
     {
-        logger.fine("new round");
-
-        // shake cups
-        shakeCups();
-
-        // append the round's roundstate to the GameState
-
-        // make a RoundState for the round
-        _rs = new RoundState();
-        logger.finest("created roundstate");
+        if (player instanceof PlayerProxy)
+        {
+            return ((PlayerProxy) player).getPlayerSimpleClassName();
+        }
 
-        // populate the RoundState
-        int iIndex = iCurrentPlayer;
-        int iCount = _players.size();
+        return player.getClass().getSimpleName();
+    }
 
-        while (iCount-- > 0)
-        {
-            logger.finest("adding player to round state " + iIndex + " " + (_players.get(iIndex)).getClass().getSimpleName());
 
-            int iNumDice = (_playerCups.get(iIndex)).getNumDice();
-            _rs.addPlayerState((_players.get(iIndex)).getClass().getSimpleName(), iNumDice, new Cup(_playerCups.get(iIndex)));
-            iIndex = (iIndex + 1) % _players.size();
-        }
+    /**
+     * @return int the number of seconds a player has to respond, 0 for no limit while warming up.
+     */
+    private int getCallTimeoutSeconds()
+    {
+        return _warmingUp ? 0 : _monitor.getTimeoutSeconds();
     }
 
 
     /**
      * setup the public static logger object.  Developers should use
      * a call to GameServer.   people should now use<br>
-     * GameServer.logger to log their messages.
+     * GameServer.logger to log their messages.  The programs of the game call
+     * this first, to log to the debug log at the level of the debuglevel property.
      */
-    private static void setupLogger()
+    static void setupLogger()
     {
-        logger = Logger.getLogger(GameServer.class.getName());
         FileHandler fh = null;
         String sLevel = null;
         Level level = null;
@@ -702,13 +1463,48 @@ public class GameServer
     private void loadOptions()
     {
         String timeoutSeconds = null;
+        String cpuTimeoutMillis = null;
         String numGames = null;
+        String numWarmupGames = null;
+        String isolate = null;
+        String numTables = null;
+        String maxBids = null;
+        String tableSize = null;
+        String cores = null;
+        String batchWindow = null;
+        String seed = null;
+        String checkpoint = null;
+        String checkpointEvery = null;
+        String duplicate = null;
+        String ratings = null;
+        String sprt = null;
 
         // get the properties
         try
         {
             timeoutSeconds = System.getProperty(PROPERTY_TIMEOUT);
+            cpuTimeoutMillis = System.getProperty(PROPERTY_CPUTIMEOUT);
             numGames = System.getProperty(PROPERTY_NUMGAMES);
+            numWarmupGames = System.getProperty(PROPERTY_WARMUPGAMES);
+            isolate = System.getProperty(PROPERTY_ISOLATE);
+            numTables = System.getProperty(PROPERTY_TABLES);
+            maxBids = System.getProperty(PROPERTY_MAXBIDS);
+            tableSize = System.getProperty(PROPERTY_TABLESIZE);
+            cores = System.getProperty(PROPERTY_CORES);
+            batchWindow = System.getProperty(PROPERTY_BATCHWINDOW);
+            seed = System.getProperty(PROPERTY_SEED);
+            checkpoint = System.getProperty(PROPERTY_CHECKPOINT);
+            checkpointEvery = System.getProperty(PROPERTY_CHECKPOINTEVERY);
+            duplicate = System.getProperty(PROPERTY_DUPLICATE);
+            ratings = System.getProperty(PROPERTY_RATINGS);
+            sprt = System.getProperty(PROPERTY_SPRT);
+
+            // the players are player0, player1, ... up to the first one missing
+            String sPlayerClassName = null;
+            while ((sPlayerClassName = System.getProperty("player" + _playerClassNames.size())) != null)
+            {
+                addPlayerClassName(sPlayerClassName);
+            }
         }
         catch (Exception e)
         {
@@ -720,14 +1516,27 @@ public class GameServer
         {
             try
             {
-                _timeoutSeconds = Integer.parseInt(timeoutSeconds);
+                _monitor.setTimeoutSeconds(Integer.parseInt(timeoutSeconds));
             }
-            catch (NumberFormatException e)
+            catch (IllegalArgumentException e)
             {
                 logger.warning("unable to parse timeout:" + timeoutSeconds);
             }
         }
 
+        // set the CPU time limit of each call
+        if (cpuTimeoutMillis != null)
+        {
+            try
+            {
+                _monitor.setCpuTimeoutMillis(Long.parseLong(cpuTimeoutMillis));
+            }
+            catch (IllegalArgumentException e)
+            {
+                logger.warning("unable to parse cputimeout:" + cpuTimeoutMillis);
+            }
+        }
+
         // set the number of games member variable
         if (numGames != null)
         {
@@ -740,29 +1549,169 @@ public class GameServer
                 logger.warning("unable to parse numgames:" + numGames);
             }
         }
+
+        // set the number of warm-up games member variable
+        if (numWarmupGames != null)
+        {
+            try
+            {
+                _numWarmupGames = Integer.parseInt(numWarmupGames);
+            }
+            catch (NumberFormatException e)
+            {
+                logger.warning("unable to parse warmupgames:" + numWarmupGames);
+            }
+        }
+
+        // set the number of tables member variable
+        if (numTables != null)
+        {
+            try
+            {
+                _numTables = Integer.parseInt(numTables);
+            }
+            catch (NumberFormatException e)
+            {
+                logger.warning("unable to parse tables:" + numTables);
+            }
+        }
+
+        // set the scheduled table member variables
+        if (tableSize != null)
+        {
+            try
+            {
+                _tableSize = Integer.parseInt(tableSize);
+                if (_tableSize < MIN_NUM_PLAYERS || _tableSize > _playerClassNames.size())
+                {
+                    logger.warning("tablesize must be from " + MIN_NUM_PLAYERS + " to the number of players:" + tableSize);
+                    _tableSize = 0;
+                }
+            }
+            catch (NumberFormatException e)
+            {
+                logger.warning("unable to parse tablesize:" + tableSize);
+            }
+        }
+        if (cores != null)
+        {
+            try
+            {
+                _cores = Math.max(1, Integer.parseInt(cores));
+            }
+            catch (NumberFormatException e)
+            {
+                logger.warning("unable to parse cores:" + cores);
+            }
+        }
+
+        // set the bid cap member variable
+        if (maxBids != null)
+        {
+            try
+            {
+                _maxConcurrentBids = Integer.parseInt(maxBids);
+            }
+            catch (NumberFormatException e)
+            {
+                logger.warning("unable to parse maxbids:" + maxBids);
+            }
+        }
+
+        // set the batch window member variable
+        if (batchWindow != null)
+        {
+            try
+            {
+                _batchWindowMicros = Long.parseLong(batchWindow);
+            }
+            catch (NumberFormatException e)
+            {
+                logger.warning("unable to parse batchwindow:" + batchWindow);
+            }
+        }
+
+        // set the seed member variable
+        if (seed != null)
+        {
+            try
+            {
+                _seed = Long.parseLong(seed);
+            }
+            catch (NumberFormatException e)
+            {
+                logger.warning("unable to parse seed:" + seed);
+            }
+        }
+        logger.info("dice seed: " + _seed);
+
+        // set the checkpoint member variables
+        if (checkpoint != null)
+        {
+            _checkpointFile = new File(checkpoint);
+        }
+        if (checkpointEvery != null)
+        {
+            try
+            {
+                _checkpointEvery = Math.max(1, Integer.parseInt(checkpointEvery));
+            }
+            catch (NumberFormatException e)
+            {
+                logger.warning("unable to parse checkpointevery:" + checkpointEvery);
+            }
+        }
+
+        // a duplicate tournament plays whole deals, one game for each seat
+        if (Boolean.parseBoolean(duplicate) && _playerClassNames.size() > 0)
+        {
+            int iGamesPerDeal = _playerClassNames.size();
+            _duplicateScore = new DuplicateScore(iGamesPerDeal);
+            if (_numGames % iGamesPerDeal != 0)
+            {
+                _numGames += iGamesPerDeal - _numGames % iGamesPerDeal;
+                logger.warning("numgames rounded up to " + _numGames + " to play whole deals");
+            }
+        }
+
+        // the sequential test needs the ratings
+        if (sprt != null)
+        {
+            try
+            {
+                double dEloMargin = Double.parseDouble(sprt);
+                if (dEloMargin > 0)
+                {
+                    _sequentialTest = new SequentialTest(dEloMargin);
+                }
+                else
+                {
+                    logger.warning("sprt must be a positive difference in Elo:" + sprt);
+                }
+            }
+            catch (NumberFormatException e)
+            {
+                logger.warning("unable to parse sprt:" + sprt);
+            }
+        }
+        if (Boolean.parseBoolean(ratings) || _sequentialTest != null)
+        {
+            _ratings = new Ratings();
+        }
+
+        _isolate = Boolean.parseBoolean(isolate);
     }
 
     /**
      * Serialize the GameState to a file.  The GameViewer can read this to display the game.
+     * The file appears whole or not at all, so a game being saved when the GameServer
+     * dies is played again on resuming instead of leaving half a file behind.
      */
     private void saveGameState() throws Exception
     {
-        // open file
-        FileOutputStream fos = null;
-        ObjectOutputStream oos = null;
-
         try
         {
-            fos = new FileOutputStream(GameServer.GAME_LOG + getFormattedGameNumber() + "." + GameServer.GAME_LOG_EXT);
-
-            oos = new ObjectOutputStream(fos);
-
-            oos.writeObject(_gamestate);
-        }
-        catch (FileNotFoundException fnfe)
-        {
-            logger.severe("Unable to open a file to save the Game State");
-            throw new Exception("Unable to open a file to save the Game State", fnfe);
+            TournamentCheckpoint.writeAtomically(new File(_gameLogDirectory, GameServer.GAME_LOG + getFormattedGameNumber() + "." + GameServer.GAME_LOG_EXT), _gamestate, false);
         }
         catch (IOException ioe)
         {
@@ -775,7 +1724,7 @@ public class GameServer
     {
         StringBuilder paddedGameNumber = new StringBuilder();
         Formatter logfileFormatter = new Formatter(paddedGameNumber, Locale.US);
-        logfileFormatter.format("%05d", _currentGameNumber);
+        logfileFormatter.format("%s%05d", _tableName, _currentGameNumber);
         return paddedGameNumber.toString();
     }
 }
@@ -3,6 +3,7 @@ package com.shuttersky.liarsdice;
 
 import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -20,6 +21,16 @@ class GameState extends java.util.ArrayList<RoundState> implements java.io.Seria
     // a poor man's id for the game
     private java.util.Date _bornOnDate = null;
 
+    /**
+     * what it takes to play the game again: the players in the order they were
+     * numbered, the seed of the dice, and every decision, including the
+     * <code>null</code> bids that are not in any round.  Games saved before
+     * these were recorded have <code>null</code> here.
+     */
+    private ArrayList<String> _playerSimpleClassNames = null;
+    private long _seed = 0;
+    private ArrayList<Bid> _decisions = null;
+
     protected GameState()
     {
         // call the parent's constructor
@@ -29,6 +40,78 @@ class GameState extends java.util.ArrayList<RoundState> implements java.io.Seria
         _bornOnDate = new java.util.Date();
     }
 
+    /**
+     * constructor for a game that can be replayed.
+     *
+     * @param playerSimpleClassNames List&lt;String&gt; of the players in the order they are numbered.
+     * @param lSeed                  long representing the seed of the dice.
+     */
+    protected GameState(List<String> playerSimpleClassNames, long lSeed)
+    {
+        this();
+
+        _playerSimpleClassNames = new ArrayList<String>(playerSimpleClassNames);
+        _seed = lSeed;
+        _decisions = new ArrayList<Bid>();
+    }
+
+    /**
+     * copy constructor.  The rounds are shared, since they do not change once added.
+     *
+     * @param gamestate GameState to copy.
+     */
+    protected GameState(GameState gamestate)
+    {
+        super(gamestate);
+
+        _bornOnDate = gamestate._bornOnDate;
+        _playerSimpleClassNames = gamestate._playerSimpleClassNames;
+        _seed = gamestate._seed;
+        _decisions = (gamestate._decisions == null) ? null : new ArrayList<Bid>(gamestate._decisions);
+    }
+
+    /**
+     * @return boolean <code>true</code> if the game recorded what it takes to replay it.
+     */
+    protected boolean isReplayable()
+    {
+        return _decisions != null;
+    }
+
+    /**
+     * @return List&lt;String&gt; of the players in the order they were numbered.
+     */
+    protected List<String> getPlayerSimpleClassNames()
+    {
+        return _playerSimpleClassNames;
+    }
+
+    /**
+     * @return long the seed the dice were rolled with.
+     */
+    protected long getSeed()
+    {
+        return _seed;
+    }
+
+    /**
+     * @return List&lt;Bid&gt; of every decision in the order it was made, <code>null</code> for a missing bid.
+     */
+    protected List<Bid> getDecisions()
+    {
+        return _decisions;
+    }
+
+    /**
+     * Record a decision as the GameEngine plays it.
+     *
+     * @param bid Bid that was played, or <code>null</code>.
+     */
+    protected void addDecision(Bid bid)
+    {
+        _decisions.add(bid);
+    }
+
     /**
      * Get the index number of a player, by name
      *
@@ -53,6 +136,17 @@ class GameState extends java.util.ArrayList<RoundState> implements java.io.Seria
 
 
     protected void logResults(String formattedGameNumber)
+    {
+        GameServer.logger.info("Game born on date: " + _bornOnDate.toString());
+        GameServer.logger.info("Winner to loser order for game " + formattedGameNumber + ": " + getFinishingOrder().toString());
+    }
+
+    /**
+     * Get the players in the order they finished, from the last round each played in
+     *
+     * @return List&lt;String&gt; of the simple class names of the players, winner first
+     */
+    protected List<String> getFinishingOrder()
     {
         HashMap<String, Integer> playerClassNames = new HashMap<String, Integer>();
         ArrayList<String> orderedPlayerClassNames = new ArrayList<String>();
@@ -97,8 +191,7 @@ class GameState extends java.util.ArrayList<RoundState> implements java.io.Seria
             }
         }
 
-        GameServer.logger.info("Game born on date: " + _bornOnDate.toString());
-        GameServer.logger.info("Winner to loser order for game " + formattedGameNumber + ": " + orderedPlayerClassNames.toString());
+        return orderedPlayerClassNames;
     }
 
     /**
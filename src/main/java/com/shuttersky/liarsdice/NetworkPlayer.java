@@ -0,0 +1,250 @@
+
+package com.shuttersky.liarsdice;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * NetworkPlayer stands in for a player connected to the {@link NetworkServer}.
+ * A call writes the request into a direct buffer, has the selector thread send
+ * it, and waits for the selector thread to complete the call with the reply.
+ * <p>
+ * When the GameServer gives up waiting, the reply that is still owed is
+ * skipped when it arrives, so it is not mistaken for the answer to the next
+ * call.  Lifecycle calls are not timed, so they are not sent to a player that
+ * still owes a reply: it may never answer.  A player that disconnects loses
+ * every call until it connects again with the same name.
+ */
+class NetworkPlayer extends RemotePlayer
+{
+    /**
+     * the request as it is written to the socket, guarded by _outgoingLock.  It grows
+     * along with the request buffer.
+     */
+    private final Object _outgoingLock = new Object();
+    private ByteBuffer _outgoing = ByteBuffer.allocateDirect(PlayerProtocol.INITIAL_FRAME_SIZE);
+
+    /**
+     * the connection and the call in progress, guarded by _lock
+     */
+    private final Object _lock = new Object();
+    private NetworkServer.Connection _connection = null;
+    private CompletableFuture<Byte> _pending = null;
+    private int _repliesToSkip = 0;
+
+
+    /**
+     * constructor.
+     *
+     * @param playerSimpleClassName String representing the name the player says hello with.
+     */
+    NetworkPlayer(String playerSimpleClassName)
+    {
+        super(playerSimpleClassName);
+        _outgoing.limit(0);
+    }
+
+
+    /**
+     * Wait until a player with this name has connected.
+     *
+     * @throws InterruptedException if the wait is interrupted.
+     */
+    void awaitConnection() throws InterruptedException
+    {
+        synchronized (_lock)
+        {
+            while (_connection == null)
+            {
+                _lock.wait();
+            }
+        }
+    }
+
+
+    public void callTimedOut()
+    {
+        synchronized (_lock)
+        {
+            if (_pending != null)
+            {
+                _repliesToSkip++;
+                _pending.cancel(false);
+                _pending = null;
+            }
+        }
+    }
+
+
+    public String toString()
+    {
+        return "NetworkPlayer[" + _playerSimpleClassName + "]";
+    }
+
+
+    protected byte call()
+    {
+        CompletableFuture<Byte> reply = new CompletableFuture<Byte>();
+        NetworkServer.Connection connection = null;
+
+        synchronized (_lock)
+        {
+            connection = _connection;
+            if (connection == null)
+            {
+                return 0;
+            }
+
+            byte type = _request.get(4);
+            if (_repliesToSkip > 0 && (type == PlayerProtocol.INIT || type == PlayerProtocol.WARMUP || type == PlayerProtocol.SHUTDOWN))
+            {
+                GameServer.logger.warning(_playerSimpleClassName + " is still busy with a call that timed out, skipping message type " + type);
+                return PlayerProtocol.DONE;
+            }
+
+            synchronized (_outgoingLock)
+            {
+                if (_outgoing.hasRemaining())
+                {
+                    // the player has not even read the previous request
+                    GameServer.logger.warning(_playerSimpleClassName + " is not reading, disconnecting");
+                    connection.close();
+                    return 0;
+                }
+
+                if (_outgoing.capacity() < _request.remaining())
+                {
+                    _outgoing = ByteBuffer.allocateDirect(_request.capacity());
+                }
+                _outgoing.clear();
+                _outgoing.put(_request);
+                _outgoing.flip();
+            }
+
+            _pending = reply;
+        }
+
+        connection.getServer().send(connection);
+
+        try
+        {
+            return reply.get();
+        }
+        catch (Exception e)
+        {
+            // the call timed out
+            return 0;
+        }
+    }
+
+
+    /**
+     * Called on the selector thread to write as much of the request as the socket takes.
+     *
+     * @return boolean <code>true</code> once the whole request is written.
+     */
+    boolean writeTo(SocketChannel channel) throws IOException
+    {
+        synchronized (_outgoingLock)
+        {
+            channel.write(_outgoing);
+            return _outgoing.hasRemaining() == false;
+        }
+    }
+
+
+    /**
+     * Called on the selector thread when a reply arrives.
+     *
+     * @param type  byte type of the reply.
+     * @param frame ByteBuffer positioned at the message, limited to the frame.
+     */
+    void replyReceived(byte type, ByteBuffer frame)
+    {
+        synchronized (_lock)
+        {
+            if (_repliesToSkip > 0)
+            {
+                _repliesToSkip--;
+                return;
+            }
+            if (_pending == null)
+            {
+                return;
+            }
+
+            _reply.clear();
+            _reply.put(type);
+            _reply.put(frame);
+            _reply.flip();
+            _reply.position(1);
+
+            _pending.complete(type);
+            _pending = null;
+        }
+    }
+
+
+    /**
+     * Called on the selector thread when a connection says hello with this player's name.
+     */
+    void connected(NetworkServer.Connection connection)
+    {
+        NetworkServer.Connection previous = null;
+
+        synchronized (_lock)
+        {
+            previous = _connection;
+            _connection = connection;
+            _repliesToSkip = 0;
+            synchronized (_outgoingLock)
+            {
+                _outgoing.limit(0);
+            }
+            failPending();
+            _lock.notifyAll();
+        }
+
+        if (previous != null)
+        {
+            previous.close();
+        }
+
+        GameServer.logger.info(_playerSimpleClassName + " connected");
+    }
+
+
+    /**
+     * Called when a connection of this player is closed.
+     */
+    void disconnected(NetworkServer.Connection connection)
+    {
+        synchronized (_lock)
+        {
+            if (_connection != connection)
+            {
+                return;
+            }
+
+            _connection = null;
+            failPending();
+        }
+
+        GameServer.logger.warning(_playerSimpleClassName + " disconnected");
+    }
+
+
+    /**
+     * end the call in progress without a reply
+     */
+    private void failPending()
+    {
+        if (_pending != null)
+        {
+            _pending.complete((byte) 0);
+            _pending = null;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+
+package com.shuttersky.liarsdice;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * NetworkServer lets players written in any language play over TCP.  A
+ * player connects, introduces itself with a HELLO frame of the
+ * {@link PlayerProtocol}, and then answers requests like a player in a child
+ * JVM does.  Each player the GameServer seats as <code>net:Name</code> is a
+ * {@link NetworkPlayer} bound to the connection that said hello as
+ * <code>Name</code>, so the rules are enforced in one place.
+ * <p>
+ * One selector thread serves every connection.  A connection that is idle
+ * costs a selection key and a direct buffer for reading, but no thread.  The
+ * server only listens on the loopback address.
+ */
+class NetworkServer implements Runnable
+{
+    /**
+     * if not overridden, the port to listen on
+     */
+    static final int DEFAULT_PORT = 4711;
+
+    /**
+     * room for the largest reply a player may send, and its length
+     */
+    private static final int READ_BUFFER_SIZE = 4 + PlayerProtocol.MAX_REPLY_SIZE;
+
+    private final Selector _selector;
+    private final ServerSocketChannel _serverChannel;
+
+    /**
+     * connections that have a request to write, handed to the selector thread
+     */
+    private final ConcurrentLinkedQueue<Connection> _writes = new ConcurrentLinkedQueue<Connection>();
+
+    /**
+     * the network players by name, whether they are connected or not
+     */
+    private final HashMap<String, NetworkPlayer> _players = new HashMap<String, NetworkPlayer>();
+
+
+    /**
+     * constructor.  Starts listening on the loopback address.
+     *
+     * @param port int representing the port to listen on, 0 for any free port.
+     * @throws IOException if the port can not be bound.
+     */
+    NetworkServer(int port) throws IOException
+    {
+        _selector = Selector.open();
+        _serverChannel = ServerSocketChannel.open();
+        _serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        _serverChannel.configureBlocking(false);
+        _serverChannel.register(_selector, SelectionKey.OP_ACCEPT);
+
+        Thread thread = new Thread(this, "NetworkServer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+
+    /**
+     * @return int the port the server is listening on.
+     */
+    int getPort() throws IOException
+    {
+        return ((InetSocketAddress) _serverChannel.getLocalAddress()).getPort();
+    }
+
+
+    /**
+     * Get the player for a name, which is bound to a connection once one says hello with that name.
+     *
+     * @param playerSimpleClassName String representing the name the player says hello with.
+     * @return NetworkPlayer for the name.  The same one is returned every time.
+     */
+    synchronized NetworkPlayer getPlayer(String playerSimpleClassName)
+    {
+        NetworkPlayer player = _players.get(playerSimpleClassName);
+
+        if (player == null)
+        {
+            player = new NetworkPlayer(playerSimpleClassName);
+            _players.put(playerSimpleClassName, player);
+        }
+
+        return player;
+    }
+
+
+    /**
+     * Ask the selector thread to write the request a player has prepared.
+     *
+     * @param connection Connection to write to.
+     */
+    void send(Connection connection)
+    {
+        _writes.add(connection);
+        _selector.wakeup();
+    }
+
+
+    /**
+     * the selector loop
+     */
+    public void run()
+    {
+        while (true)
+        {
+            try
+            {
+                _selector.select();
+
+                Connection connection = null;
+                while ((connection = _writes.poll()) != null)
+                {
+                    connection.enableWrite();
+                }
+
+                Iterator<SelectionKey> keys = _selector.selectedKeys().iterator();
+                while (keys.hasNext())
+                {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (key.isValid() && key.isAcceptable())
+                    {
+                        accept();
+                        continue;
+                    }
+
+                    connection = (Connection) key.attachment();
+                    try
+                    {
+                        if (key.isValid() && key.isReadable())
+                        {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable())
+                        {
+                            connection.write();
+                        }
+                    }
+                    catch (IOException e)
+                    {
+                        GameServer.logger.fine("network connection failed: " + e.getMessage());
+                        connection.close();
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                GameServer.logger.warning("NetworkServer select failed: " + e.getMessage());
+            }
+        }
+    }
+
+
+    private void accept() throws IOException
+    {
+        SocketChannel channel = _serverChannel.accept();
+        if (channel == null)
+        {
+            return;
+        }
+
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        SelectionKey key = channel.register(_selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key));
+    }
+
+
+    /**
+     * Connection is one player's socket.  Frames are read into a direct buffer
+     * that is kept for the life of the connection.
+     */
+    class Connection
+    {
+        private final SocketChannel _channel;
+        private final SelectionKey _key;
+        private final ByteBuffer _in = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        private NetworkPlayer _player = null;
+
+
+        Connection(SocketChannel channel, SelectionKey key)
+        {
+            _channel = channel;
+            _key = key;
+        }
+
+
+        /**
+         * read what has arrived and hand over every complete frame
+         */
+        void read() throws IOException
+        {
+            if (_channel.read(_in) < 0)
+            {
+                close();
+                return;
+            }
+
+            _in.flip();
+            while (_in.remaining() >= 4)
+            {
+                int iStart = _in.position();
+                int iLength = _in.getInt(iStart);
+                if (iLength < 1 || iLength > _in.capacity() - 4)
+                {
+                    throw new IOException("bad frame length " + iLength);
+                }
+                if (_in.remaining() < 4 + iLength)
+                {
+                    break;
+                }
+
+                int iLimit = _in.limit();
+                _in.position(iStart + 4);
+                _in.limit(iStart + 4 + iLength);
+                received(_in.get(), _in);
+                _in.limit(iLimit);
+                _in.position(iStart + 4 + iLength);
+            }
+            _in.compact();
+        }
+
+
+        /**
+         * a frame arrived, positioned after its type
+         */
+        private void received(byte type, ByteBuffer frame) throws IOException
+        {
+            if (_player != null)
+            {
+                _player.replyReceived(type, frame);
+                return;
+            }
+
+            if (type != PlayerProtocol.HELLO)
+            {
+                throw new IOException("expected hello");
+            }
+
+            _player = getPlayer(PlayerProtocol.getString(frame));
+            _player.connected(this);
+        }
+
+
+        NetworkServer getServer()
+        {
+            return NetworkServer.this;
+        }
+
+
+        void enableWrite()
+        {
+            if (_key.isValid())
+            {
+                _key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+
+
+        void write() throws IOException
+        {
+            if (_player == null || _player.writeTo(_channel))
+            {
+                _key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+
+        void close()
+        {
+            _key.cancel();
+            try
+            {
+                _channel.close();
+            }
+            catch (IOException e)
+            {
+                // it is closed either way
+            }
+
+            if (_player != null)
+            {
+                _player.disconnected(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,390 @@
+
+package com.shuttersky.liarsdice;
+
+import java.util.List;
+
+/**
+ * OpponentModel learns how other players bid and call, so that a player can
+ * use what it learned while formulating its own bid.  Feed it every showdown
+ * from <code>tellOutcome</code>:
+ * <pre>
+ *     public void tellOutcome(RoundState rs, String sWinnerClassName, String sLoserClassName)
+ *     {
+ *         _model.update(rs);
+ *     }
+ * </pre>
+ * Once the cups are revealed, every bid of the round is checked against the
+ * dice that were really on the table, and every response (a raise or a call)
+ * is recorded against how likely the bid looked to the responder.
+ * <p>
+ * Statistics are streaming counters kept in arrays that are allocated once, in
+ * the constructor, for a fixed number of opponents.  Memory does not grow no
+ * matter how many rounds are played.  When more opponents are seen than there
+ * are slots, the opponent that was seen least recently is forgotten.  A lookup
+ * hashes the player's class name into the slots and reads a few counters.
+ * <p>
+ * A model is meant to be owned by one player.  It is not synchronized, because
+ * the GameServer never calls a player's methods at the same time.
+ */
+public class OpponentModel
+{
+    /**
+     * if not overridden, the number of opponents that are remembered
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * the number of buckets that responses are sorted into by the probability
+     * that the bid was true, from the responder's point of view
+     */
+    public static final int NUM_BUCKETS = 10;
+
+    /**
+     * offsets of the counters kept for each opponent
+     */
+    private static final int BIDS = 0;
+    private static final int BIDS_FALSE = 1;
+    private static final int BIDS_UNSUPPORTED = 2;
+    private static final int CALLS = 3;
+    private static final int CALLS_CORRECT = 4;
+    private static final int FACED = 5;
+    private static final int CALLED = FACED + NUM_BUCKETS;
+    private static final int NUM_COUNTERS = CALLED + NUM_BUCKETS;
+
+    /**
+     * member variables holding the slots and their counters
+     */
+    private final int _capacity;
+    private final String[] _names;
+    private final long[] _lastSeen;
+    private final long[] _counters;
+    private final double[] _callProbabilitySum;
+    private long _numRounds = 0;
+
+
+    /**
+     * constructor that remembers DEFAULT_CAPACITY opponents.
+     */
+    public OpponentModel()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+
+    /**
+     * constructor.
+     *
+     * @param capacity int representing the number of opponents to remember.
+     */
+    public OpponentModel(int capacity)
+    {
+        _capacity = Math.max(1, capacity);
+        _names = new String[_capacity];
+        _lastSeen = new long[_capacity];
+        _counters = new long[_capacity * NUM_COUNTERS];
+        _callProbabilitySum = new double[_capacity];
+    }
+
+
+    /**
+     * Learn from a round whose showdown is over.  Rounds whose cups are not yet
+     * revealed are ignored.
+     *
+     * @param rs RoundState passed to <code>tellOutcome</code>.
+     */
+    public void update(RoundState rs)
+    {
+        List<Cup> cups = null;
+
+        try
+        {
+            cups = rs.getCups();
+        }
+        catch (Exception e)
+        {
+            // the showdown is not over, there is nothing to learn yet
+            return;
+        }
+
+        _numRounds++;
+
+        int iNumPlayers = rs.getNumPlayers();
+        int iNumDiceTotal = rs.getNumDiceTotal();
+        List<Bid> bids = rs.getBids();
+
+        for (int i = 0; i < bids.size(); i++)
+        {
+            Bid bid = bids.get(i);
+            Cup cup = cups.get(i % iNumPlayers);
+            int iSlot = getSlot(rs.getPlayerSimpleClassName(i), true);
+            int iBase = iSlot * NUM_COUNTERS;
+
+            // how the player responded to the bid before theirs
+            if (i > 0)
+            {
+                Bid bidPrevious = bids.get(i - 1);
+                if (bidPrevious.isBS() == false)
+                {
+                    double dTrue = BidProbability.getProbability(cup, iNumDiceTotal, bidPrevious.getNumDice(), bidPrevious.getDots());
+                    int iBucket = Math.min(NUM_BUCKETS - 1, (int) (dTrue * NUM_BUCKETS));
+
+                    _counters[iBase + FACED + iBucket]++;
+                    if (bid.isBS())
+                    {
+                        _counters[iBase + CALLED + iBucket]++;
+                        _counters[iBase + CALLS]++;
+                        _callProbabilitySum[iSlot] += dTrue;
+                        if (getNumDice(cups, bidPrevious.getDots()) < bidPrevious.getNumDice())
+                        {
+                            _counters[iBase + CALLS_CORRECT]++;
+                        }
+                    }
+                }
+            }
+
+            // whether the bid itself was true, and whether the player held any of it
+            if (bid.isBS() == false)
+            {
+                _counters[iBase + BIDS]++;
+                if (getNumDice(cups, bid.getDots()) < bid.getNumDice())
+                {
+                    _counters[iBase + BIDS_FALSE]++;
+                }
+                if (cup.getNumDice(bid.getDots()) == 0)
+                {
+                    _counters[iBase + BIDS_UNSUPPORTED]++;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * @return long the number of showdowns the model has learned from.
+     */
+    public long getNumRounds()
+    {
+        return _numRounds;
+    }
+
+
+    /**
+     * The number of bids (not counting b.s.) recorded for a player.
+     *
+     * @param simpleClassName String representing the simple class name of the player.
+     * @return long the number of bids, 0 if the player is unknown.
+     */
+    public long getNumBids(String simpleClassName)
+    {
+        return getCounter(simpleClassName, BIDS);
+    }
+
+
+    /**
+     * How often a player bids a face they do not hold any of.
+     *
+     * @param simpleClassName String representing the simple class name of the player.
+     * @return double between 0 and 1.  <code>-1</code> if no bids are recorded for the player.
+     */
+    public double getBluffFrequency(String simpleClassName)
+    {
+        return getRatio(simpleClassName, BIDS_UNSUPPORTED, BIDS);
+    }
+
+
+    /**
+     * How often a player's bids turned out to be false at the showdown.
+     *
+     * @param simpleClassName String representing the simple class name of the player.
+     * @return double between 0 and 1.  <code>-1</code> if no bids are recorded for the player.
+     */
+    public double getOverbidFrequency(String simpleClassName)
+    {
+        return getRatio(simpleClassName, BIDS_FALSE, BIDS);
+    }
+
+
+    /**
+     * How often a player's calls of b.s. were right.
+     *
+     * @param simpleClassName String representing the simple class name of the player.
+     * @return double between 0 and 1.  <code>-1</code> if no calls are recorded for the player.
+     */
+    public double getCallAccuracy(String simpleClassName)
+    {
+        return getRatio(simpleClassName, CALLS_CORRECT, CALLS);
+    }
+
+
+    /**
+     * The average probability, from the player's own point of view, that the bids
+     * they called were true.  This is the player's typical call threshold.
+     *
+     * @param simpleClassName String representing the simple class name of the player.
+     * @return double between 0 and 1.  <code>-1</code> if no calls are recorded for the player.
+     */
+    public double getCallThreshold(String simpleClassName)
+    {
+        int iSlot = getSlot(simpleClassName, false);
+        if (iSlot < 0 || _counters[iSlot * NUM_COUNTERS + CALLS] == 0)
+        {
+            return -1;
+        }
+
+        return _callProbabilitySum[iSlot] / _counters[iSlot * NUM_COUNTERS + CALLS];
+    }
+
+
+    /**
+     * How likely a player is to call b.s. on a bid that, from their own point of view,
+     * is true with probability <code>probabilityTrue</code>.
+     *
+     * @param simpleClassName String representing the simple class name of the player.
+     * @param probabilityTrue double between 0 and 1, see {@link BidProbability}.
+     * @return double between 0 and 1.  <code>-1</code> if the player has never faced such a bid.
+     */
+    public double getCallProbability(String simpleClassName, double probabilityTrue)
+    {
+        int iSlot = getSlot(simpleClassName, false);
+        if (iSlot < 0)
+        {
+            return -1;
+        }
+
+        int iBucket = Math.max(0, Math.min(NUM_BUCKETS - 1, (int) (probabilityTrue * NUM_BUCKETS)));
+        int iBase = iSlot * NUM_COUNTERS;
+        long lFaced = _counters[iBase + FACED + iBucket];
+        if (lFaced == 0)
+        {
+            return -1;
+        }
+
+        return (double) _counters[iBase + CALLED + iBucket] / lFaced;
+    }
+
+
+    /**
+     * Forget everything that was learned.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < _capacity; i++)
+        {
+            _names[i] = null;
+            _lastSeen[i] = 0;
+            _callProbabilitySum[i] = 0;
+        }
+        for (int i = 0; i < _counters.length; i++)
+        {
+            _counters[i] = 0;
+        }
+        _numRounds = 0;
+    }
+
+
+    /**
+     * read one counter for a player, 0 if the player is unknown
+     */
+    private long getCounter(String simpleClassName, int iCounter)
+    {
+        int iSlot = getSlot(simpleClassName, false);
+        if (iSlot < 0)
+        {
+            return 0;
+        }
+
+        return _counters[iSlot * NUM_COUNTERS + iCounter];
+    }
+
+
+    /**
+     * divide two counters for a player, -1 if the denominator is 0
+     */
+    private double getRatio(String simpleClassName, int iNumerator, int iDenominator)
+    {
+        int iSlot = getSlot(simpleClassName, false);
+        if (iSlot < 0 || _counters[iSlot * NUM_COUNTERS + iDenominator] == 0)
+        {
+            return -1;
+        }
+
+        return (double) _counters[iSlot * NUM_COUNTERS + iNumerator] / _counters[iSlot * NUM_COUNTERS + iDenominator];
+    }
+
+
+    /**
+     * Find the slot of a player with linear probing.  Slots are never emptied, only
+     * reused, so a probe stops at the first empty slot or after visiting every slot.
+     *
+     * @param simpleClassName String representing the simple class name of the player.
+     * @param bCreate         boolean, <code>true</code> to claim a slot for an unknown player.
+     * @return int the slot, -1 if the player is unknown and bCreate is <code>false</code>.
+     */
+    private int getSlot(String simpleClassName, boolean bCreate)
+    {
+        int iStart = (simpleClassName.hashCode() & 0x7FFFFFFF) % _capacity;
+        int iOldest = iStart;
+
+        for (int i = 0; i < _capacity; i++)
+        {
+            int iSlot = (iStart + i) % _capacity;
+
+            if (_names[iSlot] == null)
+            {
+                if (bCreate == false)
+                {
+                    return -1;
+                }
+                _names[iSlot] = simpleClassName;
+                _lastSeen[iSlot] = _numRounds;
+                return iSlot;
+            }
+
+            if (_names[iSlot].equals(simpleClassName))
+            {
+                if (bCreate)
+                {
+                    _lastSeen[iSlot] = _numRounds;
+                }
+                return iSlot;
+            }
+
+            if (_lastSeen[iSlot] < _lastSeen[iOldest])
+            {
+                iOldest = iSlot;
+            }
+        }
+
+        if (bCreate == false)
+        {
+            return -1;
+        }
+
+        // every slot is taken, the opponent seen least recently is forgotten
+        _names[iOldest] = simpleClassName;
+        _lastSeen[iOldest] = _numRounds;
+        _callProbabilitySum[iOldest] = 0;
+        for (int i = 0; i < NUM_COUNTERS; i++)
+        {
+            _counters[iOldest * NUM_COUNTERS + i] = 0;
+        }
+
+        return iOldest;
+    }
+
+
+    /**
+     * the number of dice showing dots in all of the cups
+     */
+    private static int getNumDice(List<Cup> cups, int dots)
+    {
+        int iQuantity = 0;
+
+        for (int i = 0; i < cups.size(); i++)
+        {
+            iQuantity += cups.get(i).getNumDice(dots);
+        }
+
+        return iQuantity;
+    }
+}
@@ -1,6 +1,8 @@
 
 package com.shuttersky.liarsdice;
 
+import java.util.List;
+
 /**
  * PlayerCaller is a runnable class that is started by the TimeoutSafePlayer, and is used
  * to interact with the Player class to ensure that the GameServer is not affected
@@ -12,7 +14,7 @@ package com.shuttersky.liarsdice;
 class PlayerCaller implements java.lang.Runnable
 {
     private enum Mode
-    {UNKNOWN, GETBID, TELLBID, TELLOUTCOME}
+    {UNKNOWN, GETBID, TELLBID, TELLOUTCOME, ROUNDSTART, ONBID, ONSHOWDOWN}
 
     private Player _player;
     private Mode _mode;
@@ -21,6 +23,16 @@ class PlayerCaller implements java.lang.Runnable
     private String _winnerClassName;
     private String _loserClassName;
     private Bid _bid;
+    private int _seat;
+    private List<String> _names;
+    private int[] _numDice;
+    private int[][] _faceCounts;
+
+    /**
+     * the CPU time and allocation of the most recent call, written by the thread that made it
+     */
+    private volatile long _cpuNanos = -1;
+    private volatile long _allocatedBytes = -1;
 
 
     /**
@@ -50,6 +62,24 @@ class PlayerCaller implements java.lang.Runnable
      * @see java.lang.Thread#run()
      */
     public void run()
+    {
+        long lCpuStart = ThreadCost.getCurrentThreadCpuNanos();
+        long lBytesStart = ThreadCost.getCurrentThreadAllocatedBytes();
+        try
+        {
+            callPlayer();
+        }
+        finally
+        {
+            _cpuNanos = (lCpuStart < 0) ? -1 : ThreadCost.getCurrentThreadCpuNanos() - lCpuStart;
+            _allocatedBytes = (lBytesStart < 0) ? -1 : ThreadCost.getCurrentThreadAllocatedBytes() - lBytesStart;
+        }
+    }
+
+    /**
+     * call the player method for the mode
+     */
+    private void callPlayer()
     {
         // determine which method to run
         switch (_mode)
@@ -64,6 +94,15 @@ class PlayerCaller implements java.lang.Runnable
             case TELLOUTCOME:
                 _player.tellOutcome(_rs, _winnerClassName, _loserClassName);
                 break;
+            case ROUNDSTART:
+                ((PlayerListener) _player).onRoundStart(_names, _numDice);
+                break;
+            case ONBID:
+                ((PlayerListener) _player).onBid(_seat, _bid);
+                break;
+            case ONSHOWDOWN:
+                ((PlayerListener) _player).onShowdown(_faceCounts, _winnerClassName, _loserClassName);
+                break;
             default:
                 break;
         }
@@ -114,6 +153,50 @@ class PlayerCaller implements java.lang.Runnable
         _loserClassName = loserClassName;
     }
 
+    /**
+     * setModeRoundStart prepares the PlayerCaller to call onRoundStart on a player that is a PlayerListener.
+     *
+     * @param names   List&lt;String&gt; of the players' class names by seat.
+     * @param numDice int[] holding the number of dice in each seat.
+     */
+    protected void setModeRoundStart(List<String> names, int[] numDice)
+    {
+        reset();
+        _mode = Mode.ROUNDSTART;
+        _names = names;
+        _numDice = numDice;
+    }
+
+    /**
+     * setModeOnBid prepares the PlayerCaller to call onBid on a player that is a PlayerListener.
+     *
+     * @param seat int representing the seat of the bidder.
+     * @param bid  Bid that was made.
+     */
+    protected void setModeOnBid(int seat, Bid bid)
+    {
+        reset();
+        _mode = Mode.ONBID;
+        _seat = seat;
+        _bid = bid;
+    }
+
+    /**
+     * setModeOnShowdown prepares the PlayerCaller to call onShowdown on a player that is a PlayerListener.
+     *
+     * @param faceCounts      int[][] holding the number of dice showing each face in each seat.
+     * @param winnerClassName String representing the class name of the showdown winner.
+     * @param loserClassName  String representing the class name of the showdown loser.
+     */
+    protected void setModeOnShowdown(int[][] faceCounts, String winnerClassName, String loserClassName)
+    {
+        reset();
+        _mode = Mode.ONSHOWDOWN;
+        _faceCounts = faceCounts;
+        _winnerClassName = winnerClassName;
+        _loserClassName = loserClassName;
+    }
+
     /**
      * getBid provides access to the bid member variable.  It is expected that the internal developer will use this class by
      * <ol>
@@ -130,6 +213,22 @@ class PlayerCaller implements java.lang.Runnable
         return _bid;
     }
 
+    /**
+     * @return long the nanoseconds of CPU time the most recent call used, -1 if it was not measured.
+     */
+    long getCpuNanos()
+    {
+        return _cpuNanos;
+    }
+
+    /**
+     * @return long the bytes the most recent call allocated, -1 if it was not measured.
+     */
+    long getAllocatedBytes()
+    {
+        return _allocatedBytes;
+    }
+
     /**
      * Resets all of the member variables (except player) so that there is no residual data from a
      * previous call.
@@ -142,5 +241,11 @@ class PlayerCaller implements java.lang.Runnable
         _winnerClassName = null;
         _loserClassName = null;
         _bid = null;
+        _seat = 0;
+        _names = null;
+        _numDice = null;
+        _faceCounts = null;
+        _cpuNanos = -1;
+        _allocatedBytes = -1;
     }
 }
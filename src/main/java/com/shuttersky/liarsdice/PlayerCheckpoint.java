@@ -0,0 +1,38 @@
+
+package com.shuttersky.liarsdice;
+
+
+/**
+ * Players may implement this interface, in addition to {@link Player}, to have
+ * what they learn during a tournament, such as a model of their opponents,
+ * survive a restart.  When the <code>checkpoint</code> property names a file, the
+ * GameServer periodically saves the progress of the tournament to it.
+ * <ul><li>At every checkpoint, the GameServer calls <code>saveCheckpoint</code> on the
+ * players of the game that just ended.</li>
+ * <li>When a tournament resumes from a checkpoint, the GameServer calls
+ * <code>restoreCheckpoint</code> on the players of the first game, before
+ * <code>init</code>, with what each player in the same seat saved.</li></ul>
+ * Unless the player implements {@link ReusablePlayer}, each game gets new instances,
+ * so what is saved is usually kept in a static field.
+ * Players in a JVM of their own or on the network are not checkpointed.
+ */
+public interface PlayerCheckpoint
+{
+    /**
+     * The GameServer calls this after a game, when it saves a checkpoint.
+     *
+     * @return byte[] holding whatever the player needs to carry on after a restart.
+     * @throws Exception if the state can not be saved.  The checkpoint is saved without it.
+     */
+    public abstract byte[] saveCheckpoint() throws Exception;
+
+
+    /**
+     * The GameServer calls this when the tournament resumes from a checkpoint.
+     *
+     * @param state byte[] that the player in the same seat returned from saveCheckpoint.
+     * @throws Exception if the state can not be restored.  The player carries on without it.
+     */
+    public abstract void restoreCheckpoint(byte[] state) throws Exception;
+
+}
@@ -0,0 +1,127 @@
+
+package com.shuttersky.liarsdice;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PlayerFactory creates players by class name.  The constructor of each class
+ * is looked up once and kept as a method handle, so creating a player for
+ * every game costs a constructor call rather than a reflective lookup.
+ * Players that implement {@link SharedPlayer} are created once, and the same
+ * instance is handed to every table.
+ * <p>
+ * Note: this is package level
+ */
+final class PlayerFactory
+{
+    /**
+     * the no argument constructor of each player class, typed to return a Player
+     */
+    private static final ConcurrentHashMap<String, MethodHandle> CONSTRUCTORS = new ConcurrentHashMap<String, MethodHandle>();
+
+    /**
+     * each player class, and the one instance of each class that implements SharedPlayer
+     */
+    private static final ConcurrentHashMap<String, Class<?>> CLASSES = new ConcurrentHashMap<String, Class<?>>();
+    private static final ConcurrentHashMap<String, Player> SHARED_PLAYERS = new ConcurrentHashMap<String, Player>();
+
+
+    private PlayerFactory()
+    {
+    }
+
+
+    /**
+     * Create a player.
+     *
+     * @param sPlayerClassName String representing the fully qualified class name of the player.
+     * @return Player that is new.
+     * @throws Exception if the class can not be found, is not a Player, has no public
+     *                   no argument constructor, or the constructor throws.
+     */
+    static Player newPlayer(String sPlayerClassName) throws Exception
+    {
+        MethodHandle constructor = CONSTRUCTORS.get(sPlayerClassName);
+        if (constructor == null)
+        {
+            constructor = MethodHandles.publicLookup().findConstructor(getPlayerClass(sPlayerClassName), MethodType.methodType(void.class)).asType(MethodType.methodType(Player.class));
+            CONSTRUCTORS.putIfAbsent(sPlayerClassName, constructor);
+        }
+
+        try
+        {
+            return (Player) constructor.invokeExact();
+        }
+        catch (Exception e)
+        {
+            throw e;
+        }
+        catch (Error e)
+        {
+            throw e;
+        }
+        catch (Throwable t)
+        {
+            throw new Exception(t);
+        }
+    }
+
+
+    /**
+     * @param sPlayerClassName String representing the fully qualified class name of the player.
+     * @return boolean <code>true</code> if the player class implements SharedPlayer.
+     * @throws Exception if the class can not be found or is not a Player.
+     */
+    static boolean isShared(String sPlayerClassName) throws Exception
+    {
+        return SharedPlayer.class.isAssignableFrom(getPlayerClass(sPlayerClassName));
+    }
+
+
+    /**
+     * Get the one instance of a player class that implements SharedPlayer, creating
+     * it the first time.  Tables that ask at the same moment get the same instance.
+     *
+     * @param sPlayerClassName String representing the fully qualified class name of the player.
+     * @return Player that every table shares.
+     * @throws Exception if the player can not be created.
+     */
+    static Player getSharedPlayer(String sPlayerClassName) throws Exception
+    {
+        Player player = SHARED_PLAYERS.get(sPlayerClassName);
+        if (player != null)
+        {
+            return player;
+        }
+
+        synchronized (SHARED_PLAYERS)
+        {
+            player = SHARED_PLAYERS.get(sPlayerClassName);
+            if (player == null)
+            {
+                player = newPlayer(sPlayerClassName);
+                SHARED_PLAYERS.put(sPlayerClassName, player);
+            }
+            return player;
+        }
+    }
+
+
+    private static Class<?> getPlayerClass(String sPlayerClassName) throws Exception
+    {
+        Class<?> cPlayerClass = CLASSES.get(sPlayerClassName);
+        if (cPlayerClass == null)
+        {
+            cPlayerClass = Class.forName(sPlayerClassName);
+            if (Player.class.isAssignableFrom(cPlayerClass) == false)
+            {
+                throw new Exception(sPlayerClassName + " is not a Player");
+            }
+            CLASSES.putIfAbsent(sPlayerClassName, cPlayerClass);
+        }
+        return cPlayerClass;
+    }
+}
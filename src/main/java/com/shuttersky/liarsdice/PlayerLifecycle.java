@@ -0,0 +1,44 @@
+
+package com.shuttersky.liarsdice;
+
+
+/**
+ * Players may implement this interface, in addition to {@link Player}, to be
+ * told when they are created, warmed up and finished with.  None of these calls
+ * are timed.
+ * <ul><li>Before the tournament, the GameServer creates each player once and
+ * calls <code>warmup</code>, then plays the number of throwaway games given by the
+ * <code>warmupgames</code> property.  This is the time to build tables and to let the
+ * JIT compile the code that <code>getBid</code> runs.  Throwaway games are not timed,
+ * saved or counted.</li>
+ * <li>The GameServer creates new players for every game, unless they implement
+ * {@link ReusablePlayer}, and calls <code>init</code> before the first round.</li>
+ * <li><code>shutdown</code> is called when the game is over.</li></ul>
+ * Unless the player implements ReusablePlayer, each game gets new instances, so
+ * anything that should outlive a game, such as a table built in <code>warmup</code>,
+ * belongs in a static field.
+ */
+public interface PlayerLifecycle
+{
+    /**
+     * The GameServer calls this after creating the player, before the first round of a game.
+     *
+     * @throws Exception if the player can not play.  The game is not played.
+     */
+    public abstract void init() throws Exception;
+
+
+    /**
+     * The GameServer calls this once before the tournament, outside of the time limit.
+     *
+     * @throws Exception if the player can not play.  The tournament is not played.
+     */
+    public abstract void warmup() throws Exception;
+
+
+    /**
+     * The GameServer calls this when a game is over, whether the player won or not.
+     */
+    public abstract void shutdown();
+
+}
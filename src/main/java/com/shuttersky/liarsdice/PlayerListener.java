@@ -0,0 +1,49 @@
+
+package com.shuttersky.liarsdice;
+
+import java.util.List;
+
+
+/**
+ * Players may implement this interface, in addition to {@link Player}, to be
+ * told only what changed instead of being handed the whole RoundState again.
+ * <ul><li>At the start of every round the GameServer calls <code>onRoundStart</code>.</li>
+ * <li>Every time there is a bid, the GameServer calls <code>onBid</code> instead of <code>tellBid</code>.</li>
+ * <li>After a showdown, or a bid that breaks the rules, the GameServer calls <code>onShowdown</code>
+ * instead of <code>tellOutcome</code>.</li></ul>
+ * Players that do not implement this interface keep getting <code>tellBid</code> and
+ * <code>tellOutcome</code>.  <code>getBid</code> still receives the RoundState either way.
+ * Seats are numbered in bid order, as in the RoundState, so the bid with index i
+ * of a round is made by seat i modulo the number of players.
+ */
+public interface PlayerListener
+{
+    /**
+     * The GameServer calls this when a round starts.
+     *
+     * @param playerSimpleClassNames List&lt;String&gt; of the players' class names by seat.
+     * @param numDice                int[] holding the number of dice in each seat.
+     */
+    public abstract void onRoundStart(List<String> playerSimpleClassNames, int[] numDice);
+
+
+    /**
+     * The GameServer calls this every time a player bids.
+     *
+     * @param seat int representing the seat of the bidder.
+     * @param bid  Bid that was made.
+     */
+    public abstract void onBid(int seat, Bid bid);
+
+
+    /**
+     * The GameServer calls this when the cups are revealed at the end of a round.
+     *
+     * @param faceCounts       int[][] where <code>faceCounts[seat][dots]</code> is the number of dice
+     *                         showing <code>dots</code> in the cup of <code>seat</code>.
+     * @param sWinnerClassName String representing the class name of the showdown winner.
+     * @param sLoserClassName  String representing the class name of the showdown loser.
+     */
+    public abstract void onShowdown(int[][] faceCounts, String sWinnerClassName, String sLoserClassName);
+
+}
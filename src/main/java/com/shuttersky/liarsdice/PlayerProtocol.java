@@ -0,0 +1,362 @@
+
+package com.shuttersky.liarsdice;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * PlayerProtocol is the binary protocol spoken between the GameServer and a
+ * player that runs outside of the server's JVM.  Everything is big-endian.
+ * <p>
+ * A frame is an int holding the number of bytes that follow, a byte holding
+ * the message type, and the message.  The server sends a request and waits
+ * for exactly one reply before it sends the next one:
+ * <pre>
+ *     server                                   player
+ *                                      &lt;--    HELLO        name
+ *     INIT, WARMUP or SHUTDOWN          --&gt;
+ *                                      &lt;--    DONE, or FAILED  message
+ *     GET_BID      millis, round, cup   --&gt;
+ *                                      &lt;--    BID          present, bid
+ *     TELL_BID     round                --&gt;
+ *                                      &lt;--    DONE
+ *     TELL_OUTCOME round, winner, loser --&gt;
+ *                                      &lt;--    DONE
+ * </pre>
+ * <ul><li>a string is an unsigned short length, 0xFFFF for null, then that many bytes of UTF-8, at most
+ * MAX_STRING_BYTES of them</li>
+ * <li>a cup is a byte for the number of sides, a short for the number of dice, then a byte of dots for each die</li>
+ * <li>a bid is a byte that is 0 for b.s. or 1 for a bid, a short quantity, a byte of dots and a string message</li>
+ * <li>a round is a short for the number of players, then a string name and a short number of dice for each
+ * player in bid order, a short for the number of bids, then each bid, then a byte that is 1 once the showdown
+ * is over, followed by every player's cup</li>
+ * <li><code>millis</code> is an int holding the time left to bid, -1 for no limit</li>
+ * <li><code>present</code> is a byte that is 0 if the player has no bid, in which case no bid follows</li></ul>
+ * The bidder of each bid, and the number of dice they held, follow from the seat order.
+ */
+public final class PlayerProtocol
+{
+    /**
+     * message types
+     */
+    public static final byte HELLO = 1;
+    public static final byte INIT = 2;
+    public static final byte WARMUP = 3;
+    public static final byte SHUTDOWN = 4;
+    public static final byte GET_BID = 5;
+    public static final byte TELL_BID = 6;
+    public static final byte TELL_OUTCOME = 7;
+    public static final byte BID = 8;
+    public static final byte DONE = 9;
+    public static final byte FAILED = 10;
+
+    /**
+     * the largest frame that either side accepts, not counting its length.  A request
+     * carries the whole round, so buffers for requests start at INITIAL_FRAME_SIZE and
+     * grow as needed.  A reply carries at most one string, so it fits in MAX_REPLY_SIZE.
+     */
+    public static final int MAX_FRAME_SIZE = 1 << 20;
+    public static final int INITIAL_FRAME_SIZE = 4 * 1024;
+    public static final int MAX_REPLY_SIZE = 64 * 1024;
+
+    /**
+     * the longest string sent, in bytes.  Longer ones are cut short.
+     */
+    public static final int MAX_STRING_BYTES = 16 * 1024;
+
+    private static final int NULL_STRING = 0xFFFF;
+
+
+    private PlayerProtocol()
+    {
+    }
+
+
+    /**
+     * Start a frame in a buffer.  Put the message, then call endFrame.
+     *
+     * @param buffer ByteBuffer to fill.  It is cleared.
+     * @param type   byte message type.
+     */
+    public static void beginFrame(ByteBuffer buffer, byte type)
+    {
+        buffer.clear();
+        buffer.putInt(0);
+        buffer.put(type);
+    }
+
+
+    /**
+     * Finish a frame started with beginFrame and flip the buffer for writing.
+     *
+     * @param buffer ByteBuffer holding the frame.
+     */
+    public static void endFrame(ByteBuffer buffer)
+    {
+        buffer.putInt(0, buffer.position() - 4);
+        buffer.flip();
+    }
+
+
+    /**
+     * Write a finished frame to a stream and flush it.
+     *
+     * @param out    OutputStream to write to.
+     * @param buffer ByteBuffer holding a frame, as left by endFrame.
+     * @throws IOException if the stream is closed.
+     */
+    public static void writeFrame(OutputStream out, ByteBuffer buffer) throws IOException
+    {
+        out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        out.flush();
+    }
+
+
+    /**
+     * Read one frame from a stream.
+     *
+     * @param in     DataInputStream to read from.
+     * @param buffer ByteBuffer with a backing array to read into.  It is cleared.
+     * @return byte the message type.  The buffer is left positioned at the message.
+     * @throws IOException if the stream ends or the frame is too big.
+     */
+    public static byte readFrame(DataInputStream in, ByteBuffer buffer) throws IOException
+    {
+        int iLength = in.readInt();
+        if (iLength < 1 || iLength > buffer.capacity())
+        {
+            throw new IOException("bad frame length " + iLength);
+        }
+
+        buffer.clear();
+        in.readFully(buffer.array(), buffer.arrayOffset(), iLength);
+        buffer.limit(iLength);
+
+        return buffer.get();
+    }
+
+
+    /**
+     * Put a string, which may be null.
+     */
+    public static void putString(ByteBuffer buffer, String s)
+    {
+        if (s == null)
+        {
+            buffer.putShort((short) NULL_STRING);
+            return;
+        }
+
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        int iLength = Math.min(bytes.length, MAX_STRING_BYTES);
+        buffer.putShort((short) iLength);
+        buffer.put(bytes, 0, iLength);
+    }
+
+
+    /**
+     * Get a string, which may be null.
+     */
+    public static String getString(ByteBuffer buffer)
+    {
+        int iLength = buffer.getShort() & 0xFFFF;
+        if (iLength == NULL_STRING)
+        {
+            return null;
+        }
+
+        byte[] bytes = new byte[iLength];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Put every die of a cup.
+     */
+    public static void putCup(ByteBuffer buffer, Cup cup)
+    {
+        buffer.put((byte) cup.getNumSides());
+        buffer.putShort((short) cup.getNumDice());
+        for (Die die : cup.getDice())
+        {
+            buffer.put((byte) die.getDots());
+        }
+    }
+
+
+    /**
+     * Get a cup.
+     *
+     * @throws Exception if the number of sides is out of range.
+     */
+    public static Cup getCup(ByteBuffer buffer) throws Exception
+    {
+        int iNumSides = buffer.get();
+        int iNumDice = buffer.getShort();
+        Cup cup = new Cup(iNumDice, iNumSides);
+
+        for (Die die : cup.getDice())
+        {
+            die.setDots(buffer.get());
+        }
+
+        return cup;
+    }
+
+
+    /**
+     * Put a bid.  The bidder's name and number of dice are not sent.
+     */
+    public static void putBid(ByteBuffer buffer, Bid bid)
+    {
+        buffer.put((byte) (bid.isBS() ? 0 : 1));
+        buffer.putShort((short) bid.getNumDice());
+        buffer.put((byte) bid.getDots());
+        putString(buffer, bid.getMessage());
+    }
+
+
+    /**
+     * Get a bid.
+     *
+     * @throws Exception if the bid is out of range.
+     */
+    public static Bid getBid(ByteBuffer buffer) throws Exception
+    {
+        boolean bBS = (buffer.get() == 0);
+        int iQuantity = buffer.getShort();
+        int iDots = buffer.get();
+        String sMessage = getString(buffer);
+
+        if (bBS)
+        {
+            return new Bid(sMessage);
+        }
+        return new Bid(iQuantity, iDots, sMessage);
+    }
+
+
+    /**
+     * Put a round.  The cups are only sent once the showdown is over.
+     */
+    public static void putRoundState(ByteBuffer buffer, RoundState rs)
+    {
+        int iNumPlayers = rs.getNumPlayers();
+        List<Bid> bids = rs.getBids();
+
+        buffer.putShort((short) iNumPlayers);
+        for (int i = 0; i < iNumPlayers; i++)
+        {
+            putString(buffer, rs.getPlayerSimpleClassName(i));
+            buffer.putShort((short) rs.getNumDice(i));
+        }
+
+        buffer.putShort((short) bids.size());
+        for (Bid bid : bids)
+        {
+            putBid(buffer, bid);
+        }
+
+        List<Cup> cups = null;
+        try
+        {
+            cups = rs.getCups();
+        }
+        catch (Exception e)
+        {
+            // the showdown is not over, so the cups stay hidden
+        }
+
+        buffer.put((byte) (cups == null ? 0 : 1));
+        if (cups != null)
+        {
+            for (Cup cup : cups)
+            {
+                putCup(buffer, cup);
+            }
+        }
+    }
+
+
+    /**
+     * Get a round.  While a round goes on, the same RoundState is brought up to
+     * date rather than replaced, so a player sees one RoundState per round as it
+     * would in the server's JVM.
+     *
+     * @param buffer   ByteBuffer positioned at the round.
+     * @param previous RoundState returned for the previous message, or <code>null</code>.
+     * @return RoundState <code>previous</code> with the new bids added if it is the same round, otherwise a new one.
+     * @throws Exception if the message is malformed.
+     */
+    public static RoundState getRoundState(ByteBuffer buffer, RoundState previous) throws Exception
+    {
+        int iNumPlayers = buffer.getShort();
+        String[] names = new String[iNumPlayers];
+        int[] numDice = new int[iNumPlayers];
+        boolean bSameRound = (previous != null && previous.getNumPlayers() == iNumPlayers);
+
+        for (int i = 0; i < iNumPlayers; i++)
+        {
+            names[i] = getString(buffer);
+            numDice[i] = buffer.getShort();
+            bSameRound = bSameRound && names[i].equals(previous.getPlayerSimpleClassName(i)) && numDice[i] == previous.getNumDice(i);
+        }
+
+        int iNumBids = buffer.getShort();
+        Bid[] bids = new Bid[iNumBids];
+        for (int i = 0; i < iNumBids; i++)
+        {
+            bids[i] = getBid(buffer);
+            bids[i].setPlayerSimpleClassName(names[i % iNumPlayers]);
+            bids[i].setPlayerNumDice(numDice[i % iNumPlayers]);
+        }
+
+        boolean bShowdownOver = (buffer.get() != 0);
+        bSameRound = bSameRound && bShowdownOver == false && previous.getNumBids() <= iNumBids && isShowdownOver(previous) == false;
+
+        RoundState rs = previous;
+        if (bSameRound == false)
+        {
+            rs = new RoundState();
+            for (int i = 0; i < iNumPlayers; i++)
+            {
+                Cup cup = bShowdownOver ? getCup(buffer) : new Cup(numDice[i], Die.DEFAULT_NUM_SIDES);
+                rs.addPlayerState(names[i], numDice[i], cup);
+            }
+        }
+
+        for (int i = rs.getNumBids(); i < iNumBids; i++)
+        {
+            rs.addNextBid(bids[i]);
+        }
+
+        if (bShowdownOver)
+        {
+            rs.setShowdownOver();
+        }
+
+        return rs;
+    }
+
+
+    /**
+     * the cups of a RoundState can only be read once the showdown is over
+     */
+    private static boolean isShowdownOver(RoundState rs)
+    {
+        try
+        {
+            rs.getCups();
+            return true;
+        }
+        catch (Exception e)
+        {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+
+package com.shuttersky.liarsdice;
+
+/**
+ * A PlayerProxy is a Player that stands in for a player running somewhere
+ * else, such as in another process.  The GameServer asks a proxy for the name
+ * of the player it stands in for, instead of using the proxy's own class name.
+ */
+interface PlayerProxy
+{
+    /**
+     * @return String the simple class name of the player behind the proxy.
+     */
+    String getPlayerSimpleClassName();
+
+
+    /**
+     * The GameServer calls this when it stopped waiting for the call in progress,
+     * so that a late answer is not mistaken for the answer to the next call.
+     */
+    void callTimedOut();
+}
@@ -0,0 +1,24 @@
+
+package com.shuttersky.liarsdice;
+
+
+/**
+ * Players may implement this interface, in addition to {@link Player}, to tell
+ * the GameServer how much of the machine they use.  When many tables are
+ * scheduled at once, a table is only started when there are enough processors
+ * free for it, so a player that searches on several threads should say so
+ * rather than have its tables packed as if it used one.
+ * <p>
+ * Players that do not implement it are taken to keep one thread busy while
+ * they work out a bid.
+ */
+public interface PlayerResources
+{
+    /**
+     * The GameServer calls this after each bid, outside of the time limit.
+     *
+     * @return int the number of threads the player keeps busy while it works out a bid.
+     */
+    public abstract int getBidThreads();
+
+}
@@ -0,0 +1,224 @@
+
+package com.shuttersky.liarsdice;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProcessPlayer runs a player class in a JVM of its own, hosted by a
+ * {@link RemotePlayerHost}, and talks to it over the child's standard input
+ * and output with the {@link PlayerProtocol}.  A player that runs out of
+ * memory, calls <code>System.exit</code> or leaks threads only takes its own
+ * JVM down.
+ * <p>
+ * The child JVM is started once and reused for every game.  When the
+ * GameServer gives up waiting for a call, the child is killed, because it may
+ * still be running and its late answer would be read as the answer to the
+ * next call.  A child that is killed or that dies is started again on the
+ * next call.
+ */
+class ProcessPlayer extends RemotePlayer
+{
+    /**
+     * how long a child has to exit on its own once the GameServer exits
+     */
+    private static final long EXIT_WAIT_MILLIS = 1000;
+
+    /**
+     * every child process, so that none outlive the GameServer
+     */
+    private static final List<Process> CHILDREN = new ArrayList<Process>();
+
+    static
+    {
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+        {
+            public void run()
+            {
+                synchronized (CHILDREN)
+                {
+                    // closing standard input lets a child exit cleanly, then the stragglers are killed
+                    for (Process process : CHILDREN)
+                    {
+                        try
+                        {
+                            process.getOutputStream().close();
+                        }
+                        catch (IOException e)
+                        {
+                            // the child is already gone
+                        }
+                    }
+                    for (Process process : CHILDREN)
+                    {
+                        try
+                        {
+                            process.waitFor(EXIT_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                        }
+                        catch (InterruptedException e)
+                        {
+                            // kill it below
+                        }
+                        process.destroyForcibly();
+                    }
+                }
+            }
+        }));
+    }
+
+    private final String _playerClassName;
+    private volatile Process _process = null;
+    private DataInputStream _in = null;
+    private OutputStream _out = null;
+
+
+    /**
+     * constructor.  Starts the child JVM and waits until the player is ready.
+     *
+     * @param playerClassName String representing the fully qualified class name of the player.
+     * @throws Exception if the child can not be started or the player can not be instantiated.
+     */
+    ProcessPlayer(String playerClassName) throws Exception
+    {
+        super(playerClassName.substring(playerClassName.lastIndexOf('.') + 1));
+        _playerClassName = playerClassName;
+        start();
+    }
+
+
+    /**
+     * Kill the child.  This is not synchronized, because the call that timed out still holds the lock.
+     */
+    public void callTimedOut()
+    {
+        Process process = _process;
+        if (process != null && process.isAlive())
+        {
+            GameServer.logger.warning("killing the process of " + _playerSimpleClassName);
+            process.destroyForcibly();
+        }
+    }
+
+
+    /**
+     * Let the child exit, and kill it if it has not exited in time.  This is for a
+     * player that leaves the tournament, so no call should follow.
+     */
+    synchronized void close()
+    {
+        Process process = _process;
+        if (process == null)
+        {
+            return;
+        }
+
+        try
+        {
+            _out.close();
+            process.waitFor(EXIT_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        catch (IOException e)
+        {
+            // the child is already gone
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        process.destroyForcibly();
+
+        synchronized (CHILDREN)
+        {
+            CHILDREN.remove(process);
+        }
+        GameServer.logger.fine("closed the process of " + _playerSimpleClassName);
+    }
+
+
+    public String toString()
+    {
+        return "ProcessPlayer[" + _playerClassName + "]";
+    }
+
+
+    /**
+     * Send the request, starting the child again if it died, and read the reply.
+     *
+     * @return byte the type of the reply, 0 if there is no reply.
+     */
+    protected byte call()
+    {
+        try
+        {
+            if (_process == null || _process.isAlive() == false)
+            {
+                if (_process != null)
+                {
+                    GameServer.logger.warning("the process of " + _playerSimpleClassName + " ended, starting it again");
+                }
+                start();
+            }
+
+            PlayerProtocol.writeFrame(_out, _request);
+            return PlayerProtocol.readFrame(_in, _reply);
+        }
+        catch (Exception e)
+        {
+            // the child died or was killed while we waited for it
+            GameServer.logger.warning("lost the process of " + _playerSimpleClassName + ": " + e.getMessage());
+            callTimedOut();
+            return 0;
+        }
+    }
+
+
+    /**
+     * start the child JVM with the server's class path and system properties, and wait for its HELLO
+     */
+    private void start() throws IOException
+    {
+        List<String> command = new ArrayList<String>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        for (String sArgument : ManagementFactory.getRuntimeMXBean().getInputArguments())
+        {
+            if (sArgument.startsWith("-D"))
+            {
+                command.add(sArgument);
+            }
+        }
+        command.add(RemotePlayerHost.class.getName());
+        command.add(_playerClassName);
+
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process process = builder.start();
+
+        synchronized (CHILDREN)
+        {
+            CHILDREN.remove(_process);
+            CHILDREN.add(process);
+        }
+
+        _process = process;
+        _in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        _out = new BufferedOutputStream(process.getOutputStream());
+
+        if (PlayerProtocol.readFrame(_in, _reply) != PlayerProtocol.HELLO)
+        {
+            throw new IOException(_playerClassName + " did not say hello");
+        }
+        _playerSimpleClassName = PlayerProtocol.getString(_reply);
+
+        GameServer.logger.fine("started a process for " + _playerSimpleClassName);
+    }
+}
@@ -0,0 +1,176 @@
+
+package com.shuttersky.liarsdice;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Ratings rates the players of a tournament on the Glicko scale from the order
+ * they finished each game in.  Each game counts as a win over every player
+ * finished ahead of and a loss to every player finished behind, all rated at
+ * once from the ratings before the game.  Players do not change between
+ * games, so the rating deviation only shrinks, and the rating plus or minus
+ * twice the deviation is roughly a 95% confidence interval.
+ * <p>
+ * The pairs of a game are not independent, so with more than two players the
+ * deviations shrink somewhat faster than they should.  The head to head
+ * counts are kept as well, for the {@link SequentialTest}.
+ * <p>
+ * Note: this is package level
+ */
+class Ratings implements java.io.Serializable
+{
+    /**
+     * for serializable
+     */
+    public static final long serialVersionUID = 1;
+
+    static final double INITIAL_RATING = 1500;
+    static final double INITIAL_DEVIATION = 350;
+
+    private static final double Q = Math.log(10) / 400;
+
+    /**
+     * for each player, its rating and rating deviation
+     */
+    private final TreeMap<String, double[]> _ratings = new TreeMap<String, double[]>();
+
+    /**
+     * for each player, the number of games it finished ahead of each other player
+     */
+    private final TreeMap<String, TreeMap<String, Integer>> _aheadOf = new TreeMap<String, TreeMap<String, Integer>>();
+
+    private int _numGames = 0;
+
+
+    /**
+     * Rate a game.
+     *
+     * @param finishingOrder List&lt;String&gt; of the simple class names of the players, winner first.
+     */
+    synchronized void gameCompleted(List<String> finishingOrder)
+    {
+        for (String sName : finishingOrder)
+        {
+            if (_ratings.containsKey(sName) == false)
+            {
+                _ratings.put(sName, new double[] { INITIAL_RATING, INITIAL_DEVIATION });
+                _aheadOf.put(sName, new TreeMap<String, Integer>());
+            }
+        }
+
+        double[][] updated = new double[finishingOrder.size()][];
+        for (int i = 0; i < finishingOrder.size(); i++)
+        {
+            double[] player = _ratings.get(finishingOrder.get(i));
+            double dVariance = 0;
+            double dImprovement = 0;
+
+            for (int j = 0; j < finishingOrder.size(); j++)
+            {
+                if (i == j)
+                {
+                    continue;
+                }
+
+                double[] opponent = _ratings.get(finishingOrder.get(j));
+                double dG = g(opponent[1]);
+                double dExpected = 1 / (1 + Math.pow(10, -dG * (player[0] - opponent[0]) / 400));
+                double dScore = (i < j) ? 1 : 0;
+
+                dVariance += dG * dG * dExpected * (1 - dExpected);
+                dImprovement += dG * (dScore - dExpected);
+            }
+
+            double dPrecision = 1 / (player[1] * player[1]) + Q * Q * dVariance;
+            updated[i] = new double[] { player[0] + Q / dPrecision * dImprovement, Math.sqrt(1 / dPrecision) };
+        }
+
+        for (int i = 0; i < finishingOrder.size(); i++)
+        {
+            _ratings.put(finishingOrder.get(i), updated[i]);
+
+            TreeMap<String, Integer> aheadOf = _aheadOf.get(finishingOrder.get(i));
+            for (int j = i + 1; j < finishingOrder.size(); j++)
+            {
+                Integer count = aheadOf.get(finishingOrder.get(j));
+                aheadOf.put(finishingOrder.get(j), Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+            }
+        }
+
+        _numGames++;
+    }
+
+
+    /**
+     * @return int the number of games rated.
+     */
+    synchronized int getNumGames()
+    {
+        return _numGames;
+    }
+
+
+    /**
+     * @param sName String representing the simple class name of a player.
+     * @return double the player's rating.
+     */
+    synchronized double getRating(String sName)
+    {
+        double[] rating = _ratings.get(sName);
+        return (rating == null) ? INITIAL_RATING : rating[0];
+    }
+
+
+    /**
+     * @param sName String representing the simple class name of a player.
+     * @return double the player's rating deviation.
+     */
+    synchronized double getDeviation(String sName)
+    {
+        double[] rating = _ratings.get(sName);
+        return (rating == null) ? INITIAL_DEVIATION : rating[1];
+    }
+
+
+    /**
+     * @param sName     String representing the simple class name of a player.
+     * @param sOpponent String representing the simple class name of another player.
+     * @return int the number of games the player finished ahead of the other.
+     */
+    synchronized int getGamesAheadOf(String sName, String sOpponent)
+    {
+        TreeMap<String, Integer> aheadOf = _aheadOf.get(sName);
+        Integer count = (aheadOf == null) ? null : aheadOf.get(sOpponent);
+        return (count == null) ? 0 : count.intValue();
+    }
+
+
+    /**
+     * @return String with each player's rating and 95% confidence interval.
+     */
+    synchronized String getReport()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("ratings over ").append(_numGames).append(" games:");
+
+        for (Map.Entry<String, double[]> entry : _ratings.entrySet())
+        {
+            double[] rating = entry.getValue();
+            sb.append(String.format(Locale.US, " %s=%.0f+/-%.0f", entry.getKey(), rating[0], 2 * rating[1]));
+        }
+
+        return sb.toString();
+    }
+
+
+    /**
+     * @return double how much a game against a player with this deviation counts.
+     */
+    private static double g(double dDeviation)
+    {
+        return 1 / Math.sqrt(1 + 3 * Q * Q * dDeviation * dDeviation / (Math.PI * Math.PI));
+    }
+}
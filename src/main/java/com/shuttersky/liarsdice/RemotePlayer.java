@@ -0,0 +1,213 @@
+
+package com.shuttersky.liarsdice;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * RemotePlayer stands in for a player that runs somewhere else and answers
+ * the requests of the {@link PlayerProtocol}.  It turns each Player and
+ * PlayerLifecycle call into a request frame.  Subclasses deliver the request
+ * and read the reply.
+ */
+abstract class RemotePlayer implements Player, PlayerLifecycle, PlayerProxy
+{
+    /**
+     * the request being sent and the reply that came back, reused for every call.  The
+     * request starts small and grows when a round does not fit, so that thousands of
+     * players do not each hold a buffer for the largest frame.
+     */
+    protected ByteBuffer _request = ByteBuffer.allocate(PlayerProtocol.INITIAL_FRAME_SIZE);
+    protected final ByteBuffer _reply = ByteBuffer.allocate(PlayerProtocol.MAX_REPLY_SIZE);
+
+    protected String _playerSimpleClassName;
+
+
+    /**
+     * constructor.
+     *
+     * @param playerSimpleClassName String representing the name of the player until it introduces itself.
+     */
+    protected RemotePlayer(String playerSimpleClassName)
+    {
+        _playerSimpleClassName = playerSimpleClassName;
+    }
+
+
+    public synchronized Bid getBid(RoundState rs, Cup cup)
+    {
+        long lMillis = rs.getBidTimeRemainingMillis();
+
+        while (true)
+        {
+            try
+            {
+                PlayerProtocol.beginFrame(_request, PlayerProtocol.GET_BID);
+                _request.putInt(lMillis == Long.MAX_VALUE ? -1 : (int) Math.min(lMillis, Integer.MAX_VALUE));
+                PlayerProtocol.putRoundState(_request, rs);
+                PlayerProtocol.putCup(_request, cup);
+                PlayerProtocol.endFrame(_request);
+                break;
+            }
+            catch (BufferOverflowException e)
+            {
+                growRequest();
+            }
+        }
+
+        if (callAndLog() != PlayerProtocol.BID || _reply.get() == 0)
+        {
+            return null;
+        }
+
+        try
+        {
+            return PlayerProtocol.getBid(_reply);
+        }
+        catch (Exception e)
+        {
+            GameServer.logger.warning(_playerSimpleClassName + " sent a bid that is out of range");
+            return null;
+        }
+    }
+
+
+    public synchronized void tellBid(RoundState rs)
+    {
+        while (true)
+        {
+            try
+            {
+                PlayerProtocol.beginFrame(_request, PlayerProtocol.TELL_BID);
+                PlayerProtocol.putRoundState(_request, rs);
+                PlayerProtocol.endFrame(_request);
+                break;
+            }
+            catch (BufferOverflowException e)
+            {
+                growRequest();
+            }
+        }
+
+        callAndLog();
+    }
+
+
+    public synchronized void tellOutcome(RoundState rs, String sWinnerClassName, String sLoserClassName)
+    {
+        while (true)
+        {
+            try
+            {
+                PlayerProtocol.beginFrame(_request, PlayerProtocol.TELL_OUTCOME);
+                PlayerProtocol.putRoundState(_request, rs);
+                PlayerProtocol.putString(_request, sWinnerClassName);
+                PlayerProtocol.putString(_request, sLoserClassName);
+                PlayerProtocol.endFrame(_request);
+                break;
+            }
+            catch (BufferOverflowException e)
+            {
+                growRequest();
+            }
+        }
+
+        callAndLog();
+    }
+
+
+    /**
+     * Starts a new game with a new instance of the player.
+     */
+    public synchronized void init() throws Exception
+    {
+        callLifecycle(PlayerProtocol.INIT);
+    }
+
+
+    public synchronized void warmup() throws Exception
+    {
+        callLifecycle(PlayerProtocol.WARMUP);
+    }
+
+
+    public synchronized void shutdown()
+    {
+        try
+        {
+            callLifecycle(PlayerProtocol.SHUTDOWN);
+        }
+        catch (Exception e)
+        {
+            GameServer.logger.warning(_playerSimpleClassName + " failed to shut down: " + e.getMessage());
+        }
+    }
+
+
+    public String getPlayerSimpleClassName()
+    {
+        return _playerSimpleClassName;
+    }
+
+
+    /**
+     * Send the frame in _request and wait for the reply, leaving it in _reply
+     * positioned after the type.
+     *
+     * @return byte the type of the reply, 0 if there is no reply.
+     */
+    protected abstract byte call();
+
+
+    /**
+     * make the request buffer twice as big, up to the largest frame
+     *
+     * @throws BufferOverflowException if it is already as big as a frame may be.
+     */
+    private void growRequest()
+    {
+        if (_request.capacity() >= PlayerProtocol.MAX_FRAME_SIZE)
+        {
+            throw new BufferOverflowException();
+        }
+
+        _request = ByteBuffer.allocate(Math.min(2 * _request.capacity(), PlayerProtocol.MAX_FRAME_SIZE));
+    }
+
+
+    /**
+     * call, and log the message of a reply that says the player failed
+     */
+    private byte callAndLog()
+    {
+        byte type = call();
+
+        if (type == PlayerProtocol.FAILED)
+        {
+            GameServer.logger.warning(_playerSimpleClassName + " failed: " + PlayerProtocol.getString(_reply));
+            _reply.position(1);
+        }
+
+        return type;
+    }
+
+
+    /**
+     * send a lifecycle request and turn a failure into an exception
+     */
+    private void callLifecycle(byte type) throws Exception
+    {
+        PlayerProtocol.beginFrame(_request, type);
+        PlayerProtocol.endFrame(_request);
+
+        byte reply = call();
+        if (reply == PlayerProtocol.FAILED)
+        {
+            throw new Exception(PlayerProtocol.getString(_reply));
+        }
+        if (reply != PlayerProtocol.DONE)
+        {
+            throw new Exception(_playerSimpleClassName + " did not answer");
+        }
+    }
+}
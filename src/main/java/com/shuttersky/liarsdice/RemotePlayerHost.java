@@ -0,0 +1,255 @@
+
+package com.shuttersky.liarsdice;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * RemotePlayerHost runs a Player away from the GameServer and answers the
+ * requests of the {@link PlayerProtocol} by calling it.
+ * <p>
+ * Run as a program, it hosts the player class named by its first argument.
+ * With no other arguments it speaks the protocol over standard input and
+ * output, which is how the GameServer runs each player in its own JVM.
+ * Anything the player prints to <code>System.out</code> is sent to standard
+ * error instead, so it can not get mixed up with the protocol.  Given a host
+ * and a port as well, it connects to the GameServer's {@link NetworkServer}
+ * instead:
+ * <pre>
+ *     java com.shuttersky.liarsdice.RemotePlayerHost com.example.MyPlayer localhost 4711
+ * </pre>
+ */
+public class RemotePlayerHost
+{
+    private final String _playerClassName;
+    private Player _player = null;
+    private RoundState _rs = null;
+
+
+    /**
+     * constructor.  Creates an instance of the player class.
+     *
+     * @param playerClassName String representing the fully qualified class name of the player.
+     * @throws Exception if the player class can not be instantiated.
+     */
+    public RemotePlayerHost(String playerClassName) throws Exception
+    {
+        _playerClassName = playerClassName;
+        _player = newPlayer();
+    }
+
+
+    /**
+     * @return String the simple class name of the hosted player.
+     */
+    public String getPlayerSimpleClassName()
+    {
+        return _player.getClass().getSimpleName();
+    }
+
+
+    /**
+     * Put the HELLO frame that a host sends when it is ready.
+     *
+     * @param reply ByteBuffer to fill with the frame.
+     */
+    public void hello(ByteBuffer reply)
+    {
+        PlayerProtocol.beginFrame(reply, PlayerProtocol.HELLO);
+        PlayerProtocol.putString(reply, getPlayerSimpleClassName());
+        PlayerProtocol.endFrame(reply);
+    }
+
+
+    /**
+     * Answer one request by calling the player.
+     *
+     * @param type    byte message type of the request.
+     * @param request ByteBuffer positioned at the message.
+     * @param reply   ByteBuffer to fill with the reply frame.
+     */
+    public void handle(byte type, ByteBuffer request, ByteBuffer reply)
+    {
+        try
+        {
+            switch (type)
+            {
+                case PlayerProtocol.INIT:
+                    // a new game gets a new player, or the same one reset, as it would in the server
+                    if (_player instanceof ReusablePlayer)
+                    {
+                        ((ReusablePlayer) _player).reset();
+                    }
+                    else
+                    {
+                        _player = newPlayer();
+                    }
+                    _rs = null;
+                    if (_player instanceof PlayerLifecycle)
+                    {
+                        ((PlayerLifecycle) _player).init();
+                    }
+                    done(reply);
+                    break;
+
+                case PlayerProtocol.WARMUP:
+                    if (_player instanceof PlayerLifecycle)
+                    {
+                        ((PlayerLifecycle) _player).warmup();
+                    }
+                    done(reply);
+                    break;
+
+                case PlayerProtocol.SHUTDOWN:
+                    if (_player instanceof PlayerLifecycle)
+                    {
+                        ((PlayerLifecycle) _player).shutdown();
+                    }
+                    done(reply);
+                    break;
+
+                case PlayerProtocol.GET_BID:
+                    int iMillis = request.getInt();
+                    _rs = PlayerProtocol.getRoundState(request, _rs);
+                    Cup cup = PlayerProtocol.getCup(request);
+                    if (iMillis >= 0)
+                    {
+                        _rs.setBidDeadline(System.nanoTime() + iMillis * 1000000L);
+                    }
+
+                    Bid bid = _player.getBid(_rs, cup);
+
+                    PlayerProtocol.beginFrame(reply, PlayerProtocol.BID);
+                    reply.put((byte) (bid == null ? 0 : 1));
+                    if (bid != null)
+                    {
+                        PlayerProtocol.putBid(reply, bid);
+                    }
+                    PlayerProtocol.endFrame(reply);
+                    break;
+
+                case PlayerProtocol.TELL_BID:
+                    _rs = PlayerProtocol.getRoundState(request, _rs);
+                    _player.tellBid(_rs);
+                    done(reply);
+                    break;
+
+                case PlayerProtocol.TELL_OUTCOME:
+                    _rs = PlayerProtocol.getRoundState(request, _rs);
+                    String sWinnerClassName = PlayerProtocol.getString(request);
+                    String sLoserClassName = PlayerProtocol.getString(request);
+                    _player.tellOutcome(_rs, sWinnerClassName, sLoserClassName);
+                    done(reply);
+                    break;
+
+                default:
+                    failed(reply, "unknown message type " + type);
+                    break;
+            }
+        }
+        catch (Exception e)
+        {
+            failed(reply, e.toString());
+        }
+    }
+
+
+    /**
+     * Say hello, then answer requests until the GameServer closes the stream.
+     *
+     * @param in  InputStream carrying requests.
+     * @param out OutputStream for the replies.
+     * @throws IOException if the stream fails for any reason other than being closed.
+     */
+    public void serve(InputStream in, OutputStream out) throws IOException
+    {
+        DataInputStream dataIn = new DataInputStream(new BufferedInputStream(in));
+        OutputStream bufferedOut = new BufferedOutputStream(out);
+        ByteBuffer request = ByteBuffer.allocate(PlayerProtocol.MAX_FRAME_SIZE);
+        ByteBuffer reply = ByteBuffer.allocate(PlayerProtocol.MAX_REPLY_SIZE);
+
+        hello(reply);
+        PlayerProtocol.writeFrame(bufferedOut, reply);
+
+        try
+        {
+            while (true)
+            {
+                byte type = PlayerProtocol.readFrame(dataIn, request);
+                handle(type, request, reply);
+                PlayerProtocol.writeFrame(bufferedOut, reply);
+            }
+        }
+        catch (EOFException e)
+        {
+            // the GameServer is finished with us
+        }
+    }
+
+
+    /**
+     * Host a player over standard input and output, or over a connection to a NetworkServer.
+     *
+     * @param args the fully qualified class name of the player, optionally followed by a host and a port.
+     */
+    public static void main(String[] args)
+    {
+        // log to standard error only; the debug log belongs to the GameServer
+        try
+        {
+            RemotePlayerHost host = new RemotePlayerHost(args[0]);
+
+            if (args.length >= 3)
+            {
+                Socket socket = new Socket(args[1], Integer.parseInt(args[2]));
+                socket.setTcpNoDelay(true);
+                host.serve(socket.getInputStream(), socket.getOutputStream());
+                socket.close();
+            }
+            else
+            {
+                // keep the player's printing out of the protocol
+                OutputStream out = new FileOutputStream(FileDescriptor.out);
+                System.setOut(System.err);
+                host.serve(System.in, out);
+            }
+        }
+        catch (Exception e)
+        {
+            GameServer.logger.severe("RemotePlayerHost failed: " + e);
+            System.exit(-1);
+        }
+
+        System.exit(0);
+    }
+
+
+    private Player newPlayer() throws Exception
+    {
+        return PlayerFactory.newPlayer(_playerClassName);
+    }
+
+
+    private static void done(ByteBuffer reply)
+    {
+        PlayerProtocol.beginFrame(reply, PlayerProtocol.DONE);
+        PlayerProtocol.endFrame(reply);
+    }
+
+
+    private static void failed(ByteBuffer reply, String message)
+    {
+        PlayerProtocol.beginFrame(reply, PlayerProtocol.FAILED);
+        PlayerProtocol.putString(reply, message);
+        PlayerProtocol.endFrame(reply);
+    }
+}
@@ -0,0 +1,25 @@
+
+package com.shuttersky.liarsdice;
+
+
+/**
+ * Players that are expensive to create, because their constructor loads
+ * tables or builds caches, can also implement this interface to be created
+ * once and kept from game to game instead of created for every game.
+ * <p>
+ * Before every game after the first, the GameServer calls <code>reset</code>,
+ * which clears what belongs to one game, such as the bids seen so far, and
+ * keeps what was worked out ahead of time.  Players in a JVM of their own are
+ * kept and reset in that JVM in the same way.  A player that is kept is
+ * still told when each game starts and ends if it implements {@link PlayerLifecycle}.
+ */
+public interface ReusablePlayer
+{
+    /**
+     * The GameServer calls this before every game after the first, outside of the time limit.
+     *
+     * @throws Exception if the player can not play another game.  The game is not played.
+     */
+    public abstract void reset() throws Exception;
+
+}
@@ -28,6 +28,19 @@ public class RoundState implements java.io.Serializable
 
     private boolean _isShowdownOver = false;
 
+    /**
+     * Time by which the player being asked for a bid must respond, on the clock that set it.
+     * This is only meaningful during a call to getBid, so it is not saved with the game.
+     */
+    private transient long _bidDeadlineNanos = 0;
+    private transient boolean _hasBidDeadline = false;
+    private transient GameClock _bidClock = null;
+
+    /**
+     * nanoseconds of CPU time the player being asked for a bid may use, 0 for no limit
+     */
+    private transient long _bidCpuLimitNanos = 0;
+
     /**
      * constructor
      */
@@ -41,6 +54,21 @@ public class RoundState implements java.io.Serializable
     }
 
 
+    /**
+     * copy constructor.  The bids and cups are shared, since they do not change once added.
+     *
+     * @param rs RoundState to copy.
+     */
+    protected RoundState(RoundState rs)
+    {
+        _playerSimpleClassName = new ArrayList<String>(rs._playerSimpleClassName);
+        _numDice = new ArrayList<Integer>(rs._numDice);
+        _bids = new ArrayList<Bid>(rs._bids);
+        _cups = new ArrayList<Cup>(rs._cups);
+        _isShowdownOver = rs._isShowdownOver;
+    }
+
+
     /**
      * Tells how many players are in this round.
      *
@@ -320,6 +348,25 @@ public class RoundState implements java.io.Serializable
     }
 
 
+    /**
+     * Tells the player being asked for a bid how much time is left before the
+     * GameServer stops waiting.  A bid returned after that is not accepted.
+     *
+     * @return long representing the number of milliseconds left to respond.
+     * <code>Long.MAX_VALUE</code> if there is no time limit.
+     */
+    public long getBidTimeRemainingMillis()
+    {
+        if (_hasBidDeadline == false)
+        {
+            return Long.MAX_VALUE;
+        }
+
+        long lNow = (_bidClock != null) ? _bidClock.nanoTime() : System.nanoTime();
+        return Math.max(0, (_bidDeadlineNanos - lNow) / 1000000L);
+    }
+
+
     /*
      * String representation of a RoundState.
      *
@@ -403,6 +450,54 @@ public class RoundState implements java.io.Serializable
         _bids.add(bid);
     }
 
+    /**
+     * Tells the player being asked for a bid how much CPU time it may use, as well as
+     * the time on the clock.  Only the CPU time of the thread that calls getBid counts,
+     * so a player that does its work on other threads should do it on that thread
+     * instead when there is a limit, or it escapes the limit.
+     *
+     * @return long representing the milliseconds of CPU time the bid may use.
+     * <code>Long.MAX_VALUE</code> if there is no CPU time limit.
+     */
+    public long getBidCpuLimitMillis()
+    {
+        return (_bidCpuLimitNanos > 0) ? _bidCpuLimitNanos / 1000000L : Long.MAX_VALUE;
+    }
+
+
+    /**
+     * Used by the TimeoutSafePlayer to tell the player how much CPU time it may use.
+     *
+     * @param cpuLimitNanos long representing the nanoseconds of CPU time, 0 for no limit.
+     */
+    protected void setBidCpuLimit(long cpuLimitNanos)
+    {
+        _bidCpuLimitNanos = cpuLimitNanos;
+    }
+
+    /**
+     * Used by the TimeoutSafePlayer to tell the player how long it has to bid.
+     *
+     * @param deadlineNanos long representing the System.nanoTime() by which the bid must be returned.
+     */
+    protected void setBidDeadline(long deadlineNanos)
+    {
+        setBidDeadline(deadlineNanos, null);
+    }
+
+    /**
+     * Used by the TimeoutSafePlayer to tell the player how long it has to bid.
+     *
+     * @param deadlineNanos long representing the time on the clock by which the bid must be returned.
+     * @param clock         GameClock that the deadline is on.  <code>null</code> for System.nanoTime().
+     */
+    protected void setBidDeadline(long deadlineNanos, GameClock clock)
+    {
+        _bidDeadlineNanos = deadlineNanos;
+        _hasBidDeadline = true;
+        _bidClock = clock;
+    }
+
     /**
      * Used by the GameServer to allow access to the cups
      */
@@ -0,0 +1,89 @@
+
+package com.shuttersky.liarsdice;
+
+
+/**
+ * SequentialTest decides whether one player is better than another from the
+ * games one finished ahead of the other, as soon as the games played are
+ * enough and no sooner.  It is a sequential probability ratio test of the
+ * hypothesis that the player is a margin of Elo better than the other against
+ * the hypothesis that it is the same margin worse.  Within the margin the two
+ * players are close enough that it does not matter which is called better.
+ * <p>
+ * The test is checked after every game, and with error rates of 5% it
+ * usually needs far fewer games than a fixed number chosen to be safe.
+ * <p>
+ * Note: this is package level
+ */
+class SequentialTest
+{
+    static final double DEFAULT_ALPHA = 0.05;
+    static final double DEFAULT_BETA = 0.05;
+
+    /**
+     * the log likelihood ratio added for each game ahead, and taken away for each game behind
+     */
+    private final double _step;
+
+    private final double _upperBound;
+    private final double _lowerBound;
+
+
+    /**
+     * constructor.
+     *
+     * @param dEloMargin double representing the difference in Elo that is worth telling apart.
+     */
+    SequentialTest(double dEloMargin)
+    {
+        this(dEloMargin, DEFAULT_ALPHA, DEFAULT_BETA);
+    }
+
+
+    /**
+     * constructor.
+     *
+     * @param dEloMargin double representing the difference in Elo that is worth telling apart.
+     * @param dAlpha     double representing the chance of calling the player better when it is the margin worse.
+     * @param dBeta      double representing the chance of calling the player worse when it is the margin better.
+     */
+    SequentialTest(double dEloMargin, double dAlpha, double dBeta)
+    {
+        double dExpected = 1 / (1 + Math.pow(10, -dEloMargin / 400));
+        _step = Math.log(dExpected / (1 - dExpected));
+        _upperBound = Math.log((1 - dBeta) / dAlpha);
+        _lowerBound = Math.log(dBeta / (1 - dAlpha));
+    }
+
+
+    /**
+     * @param iAhead  int representing the number of games the player finished ahead of the other.
+     * @param iBehind int representing the number of games the player finished behind the other.
+     * @return double the log likelihood ratio of the player being better.
+     */
+    double getLogLikelihoodRatio(int iAhead, int iBehind)
+    {
+        return (iAhead - iBehind) * _step;
+    }
+
+
+    /**
+     * @param iAhead  int representing the number of games the player finished ahead of the other.
+     * @param iBehind int representing the number of games the player finished behind the other.
+     * @return int 1 if the player is better, -1 if it is worse, or 0 if it is not decided yet.
+     */
+    int decide(int iAhead, int iBehind)
+    {
+        double dRatio = getLogLikelihoodRatio(iAhead, iBehind);
+
+        if (dRatio >= _upperBound)
+        {
+            return 1;
+        }
+        if (dRatio <= _lowerBound)
+        {
+            return -1;
+        }
+        return 0;
+    }
+}
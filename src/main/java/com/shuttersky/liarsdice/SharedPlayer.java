@@ -0,0 +1,20 @@
+
+package com.shuttersky.liarsdice;
+
+
+/**
+ * Players that keep no state of their own from call to call, or that are
+ * safe to call from many threads at once, can also implement this interface
+ * to be created once per JVM and seated at every table.  When hundreds of
+ * tables play at once, a player with a large strategy table then takes the
+ * memory of one instance instead of one per table.
+ * <p>
+ * A shared player is called by every table it is seated at, each on its own
+ * thread, and is told about every game at every table, so anything it learns
+ * from <code>tellBid</code> or <code>tellOutcome</code> mixes the games together.
+ * It is never reset as a {@link ReusablePlayer} would be.  Players in a JVM of
+ * their own are not shared.
+ */
+public interface SharedPlayer
+{
+}
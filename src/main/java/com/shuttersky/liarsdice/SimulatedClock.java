@@ -0,0 +1,87 @@
+
+package com.shuttersky.liarsdice;
+
+
+/**
+ * SimulatedClock is virtual time for tests and simulations.  Time stands still
+ * until a thread sleeps on the clock, which moves it forward at once, or the
+ * test moves it forward with {@link #advance}.  A player that sleeps for two
+ * seconds on a one second timeout therefore times out every time, in well
+ * under a millisecond of real time.
+ * <p>
+ * Sleeps add up as if they happened one after another, which is how a game
+ * calls its players.  Each tournament being simulated should have a clock of
+ * its own.  A player that takes real time without sleeping on the clock is
+ * waited for for as long as it takes.
+ */
+public class SimulatedClock implements GameClock
+{
+    /**
+     * how often a thread being joined is checked for the time running out, in real milliseconds
+     */
+    private static final long POLL_MILLIS = 1;
+
+    private long _nanos;
+
+
+    /**
+     * constructor.  The time starts at 0.
+     */
+    public SimulatedClock()
+    {
+        this(0);
+    }
+
+
+    /**
+     * constructor.
+     *
+     * @param lStartNanos long representing the time the clock starts at.
+     */
+    public SimulatedClock(long lStartNanos)
+    {
+        _nanos = lStartNanos;
+    }
+
+
+    public synchronized long nanoTime()
+    {
+        return _nanos;
+    }
+
+
+    /**
+     * Move the time forward without waiting.
+     */
+    public void sleep(long lNanos)
+    {
+        advance(lNanos);
+    }
+
+
+    /**
+     * Move the time forward.
+     *
+     * @param lNanos long representing the number of nanoseconds to move it.
+     */
+    public synchronized void advance(long lNanos)
+    {
+        _nanos += Math.max(0, lNanos);
+    }
+
+
+    public boolean joinUntil(Thread thread, long lDeadlineNanos) throws InterruptedException
+    {
+        while (thread.isAlive())
+        {
+            if (nanoTime() > lDeadlineNanos)
+            {
+                return false;
+            }
+            thread.join(POLL_MILLIS);
+        }
+
+        // the thread may have slept past the deadline before it finished
+        return nanoTime() <= lDeadlineNanos;
+    }
+}
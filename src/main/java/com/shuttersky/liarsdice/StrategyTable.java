@@ -0,0 +1,481 @@
+
+package com.shuttersky.liarsdice;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * A StrategyTable holds a strategy for one round of liar's dice, as trained by
+ * the {@link CfrTrainer}, and tells a player which bid to make.
+ * <p>
+ * The round is abstracted the way the trainer sees it:
+ * <ul>
+ * <li>seat 0 is the first bidder, and every seat holds between 1 and <code>maxDice</code> dice</li>
+ * <li>a bid is numbered <code>(quantity - 1) * 6 + (dots - 1)</code>, so a higher bid has a higher number</li>
+ * <li>a player only remembers the last <code>recall</code> bids (1 or 2)</li>
+ * <li>action 0 is b.s., and action <code>a</code> raises the highest bid number by <code>a</code>,
+ * up to <code>window</code></li>
+ * </ul>
+ * An information set is the dice count of every seat, the seat to act, the
+ * histogram of the seat's own dice and the remembered bids.  Information sets
+ * are numbered densely, and the file stores one byte per action for each of
+ * them: the probability of the action scaled to 0..255.  The file is memory
+ * mapped, so a lookup is a few multiplications and a handful of byte reads.
+ */
+public class StrategyTable
+{
+    /**
+     * identifies a strategy table file
+     */
+    public static final int MAGIC = 0x4C444346;
+
+    /**
+     * the number of sides the trainer assumes
+     */
+    public static final int NUM_SIDES = Die.DEFAULT_NUM_SIDES;
+
+    /**
+     * bumped whenever the file layout changes
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * the header is MAGIC, VERSION, players, maxDice, recall, window, sides and one unused int
+     */
+    private static final int HEADER_BYTES = 32;
+
+    /**
+     * bounds checking constants for the abstraction
+     */
+    private static final int MIN_PLAYERS = 2;
+    private static final int MAX_RECALL = 2;
+
+    /**
+     * stored probabilities are scaled to this value
+     */
+    private static final int SCALE = 255;
+
+    /**
+     * member variables describing the abstraction
+     */
+    private final int _numPlayers;
+    private final int _maxDice;
+    private final int _recall;
+    private final int _window;
+
+    /**
+     * member variables describing the dense numbering
+     */
+    private final int _numConfigs;
+    private final int _numRolls;
+    private final int _bidBase;
+    private final int _numHistories;
+    private final int _numActions;
+    private final long _numInfoSets;
+    private final int[] _rollRank;
+
+    /**
+     * the mapped probabilities, <code>null</code> for a table that is only used for numbering
+     */
+    private ByteBuffer _data = null;
+
+
+    /**
+     * constructor for a table without probabilities.  The trainer uses this to number information sets.
+     *
+     * @param numPlayers int representing the number of players at the table.
+     * @param maxDice    int representing the most dice any one player holds.
+     * @param recall     int representing the number of recent bids a player remembers, 1 or 2.
+     * @param window     int representing the number of raises a player considers.
+     * @throws Exception if a parameter is out of range or the table would be too large.
+     */
+    public StrategyTable(int numPlayers, int maxDice, int recall, int window)
+        throws Exception
+    {
+        if (numPlayers < MIN_PLAYERS || maxDice < 1 || recall < 1 || recall > MAX_RECALL || window < 1)
+        {
+            throw new Exception("strategy table parameters out of range: players " + numPlayers + " maxDice " + maxDice
+                + " recall " + recall + " window " + window);
+        }
+
+        _numPlayers = numPlayers;
+        _maxDice = maxDice;
+        _recall = recall;
+        _window = window;
+
+        int iConfigs = 1;
+        for (int i = 0; i < numPlayers; i++)
+        {
+            iConfigs *= maxDice;
+        }
+        _numConfigs = iConfigs;
+
+        _bidBase = NUM_SIDES * numPlayers * maxDice + 1;
+        _numHistories = (recall == 1) ? _bidBase : _bidBase * _bidBase;
+        _numActions = window + 1;
+
+        // number every histogram of at most maxDice dice
+        int iRadix = maxDice + 1;
+        int iCodes = 1;
+        for (int i = 0; i < NUM_SIDES; i++)
+        {
+            iCodes *= iRadix;
+        }
+        _rollRank = new int[iCodes];
+        int iRank = 0;
+        for (int iCode = 0; iCode < iCodes; iCode++)
+        {
+            int iTotal = 0;
+            for (int c = iCode; c > 0; c /= iRadix)
+            {
+                iTotal += c % iRadix;
+            }
+            _rollRank[iCode] = (iTotal <= maxDice) ? iRank++ : -1;
+        }
+        _numRolls = iRank;
+
+        _numInfoSets = (long) _numConfigs * _numPlayers * _numRolls * _numHistories;
+        if (_numInfoSets * _numActions > Integer.MAX_VALUE)
+        {
+            throw new Exception("strategy table is too large: " + _numInfoSets + " information sets");
+        }
+    }
+
+
+    /**
+     * Map a strategy table file written by the trainer.
+     *
+     * @param fileName String representing the name of the table file.
+     * @return StrategyTable that can choose bids.
+     * @throws Exception if the file can not be read or is not a strategy table.
+     */
+    public static StrategyTable load(String fileName)
+        throws Exception
+    {
+        try (RandomAccessFile raf = new RandomAccessFile(fileName, "r"); FileChannel channel = raf.getChannel())
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(24) != NUM_SIDES)
+            {
+                throw new Exception(fileName + " is not a strategy table");
+            }
+
+            StrategyTable table = new StrategyTable(buffer.getInt(8), buffer.getInt(12), buffer.getInt(16), buffer.getInt(20));
+            if (channel.size() != HEADER_BYTES + table._numInfoSets * table._numActions)
+            {
+                throw new Exception(fileName + " has the wrong size for its header");
+            }
+
+            buffer.position(HEADER_BYTES);
+            table._data = buffer.slice();
+
+            return table;
+        }
+    }
+
+
+    /**
+     * Write the average strategy accumulated by the trainer.  Information sets that were
+     * never reached are written as zeros, and {@link #getBid} does not answer for them.
+     *
+     * @param fileName     String representing the name of the table file.
+     * @param strategySums double[] holding the accumulated strategy, numActions per information set.
+     * @throws IOException if the file can not be written.
+     */
+    void write(String fileName, double[] strategySums)
+        throws IOException
+    {
+        try (RandomAccessFile raf = new RandomAccessFile(fileName, "rw"); FileChannel channel = raf.getChannel())
+        {
+            raf.setLength(0);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(_numPlayers).putInt(_maxDice).putInt(_recall).putInt(_window).putInt(NUM_SIDES).putInt(0);
+            header.flip();
+            channel.write(header);
+
+            ByteBuffer chunk = ByteBuffer.allocate(_numActions * 4096);
+            for (long iInfoSet = 0; iInfoSet < _numInfoSets; iInfoSet++)
+            {
+                int iBase = (int) (iInfoSet * _numActions);
+                double dSum = 0;
+                for (int a = 0; a < _numActions; a++)
+                {
+                    dSum += strategySums[iBase + a];
+                }
+
+                for (int a = 0; a < _numActions; a++)
+                {
+                    chunk.put((byte) (dSum > 0 ? Math.round(SCALE * strategySums[iBase + a] / dSum) : 0));
+                }
+
+                if (chunk.remaining() < _numActions)
+                {
+                    chunk.flip();
+                    channel.write(chunk);
+                    chunk.clear();
+                }
+            }
+            chunk.flip();
+            channel.write(chunk);
+        }
+    }
+
+
+    /**
+     * Choose a bid from the table.
+     *
+     * @param rs      RoundState capturing the state of the table for this round.
+     * @param cup     Cup representing the bidder's own dice.
+     * @param dRandom double between 0 and 1 used to sample the mixed strategy.
+     * @return Bid chosen by the strategy.
+     * <code>null</code> if the round is outside the trained abstraction or the position was never trained.
+     */
+    public Bid getBid(RoundState rs, Cup cup, double dRandom)
+    {
+        if (_data == null || rs.getNumPlayers() != _numPlayers || cup.getNumSides() != NUM_SIDES)
+        {
+            return null;
+        }
+
+        // dice of every seat, in bid order starting with the first bidder
+        int iConfig = 0;
+        int iNumDiceTotal = 0;
+        for (int i = _numPlayers - 1; i >= 0; i--)
+        {
+            int iNumDice = rs.getNumDice(i);
+            if (iNumDice < 1 || iNumDice > _maxDice)
+            {
+                return null;
+            }
+            iConfig = iConfig * _maxDice + (iNumDice - 1);
+            iNumDiceTotal += iNumDice;
+        }
+
+        // the remembered bids
+        List<Bid> bids = rs.getBids();
+        int iNumBids = bids.size();
+        int iLast = (iNumBids > 0) ? getBidNumber(bids.get(iNumBids - 1), iNumDiceTotal) : -1;
+        int iPrev = (iNumBids > 1) ? getBidNumber(bids.get(iNumBids - 2), iNumDiceTotal) : -1;
+        if (iLast < -1 || iPrev < -1)
+        {
+            return null;
+        }
+
+        int iRoll = getRollIndex(cup);
+        int iSeat = iNumBids % _numPlayers;
+        int iBase = getInfoSet(iConfig, iSeat, iRoll, iLast, iPrev) * _numActions;
+
+        // sample an action, only counting the legal ones
+        int iMaxBid = NUM_SIDES * iNumDiceTotal - 1;
+        int iTotal = 0;
+        for (int a = 0; a < _numActions; a++)
+        {
+            if (isLegal(a, iLast, iMaxBid))
+            {
+                iTotal += _data.get(iBase + a) & 0xFF;
+            }
+        }
+        if (iTotal == 0)
+        {
+            return null;
+        }
+
+        int iTarget = (int) (dRandom * iTotal);
+        for (int a = 0; a < _numActions; a++)
+        {
+            if (isLegal(a, iLast, iMaxBid) == false)
+            {
+                continue;
+            }
+
+            iTarget -= _data.get(iBase + a) & 0xFF;
+            if (iTarget < 0)
+            {
+                return toBid(a, iLast);
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * @return int the number of players the table was trained for.
+     */
+    public int getNumPlayers()
+    {
+        return _numPlayers;
+    }
+
+    /**
+     * @return int the most dice one player may hold in a trained round.
+     */
+    public int getMaxDice()
+    {
+        return _maxDice;
+    }
+
+    /**
+     * @return int the number of actions stored for each information set.
+     */
+    int getNumActions()
+    {
+        return _numActions;
+    }
+
+    /**
+     * @return int the number of seat dice configurations.
+     */
+    int getNumConfigs()
+    {
+        return _numConfigs;
+    }
+
+    /**
+     * @return long the number of information sets.
+     */
+    long getNumInfoSets()
+    {
+        return _numInfoSets;
+    }
+
+    /**
+     * @return int the number of recent bids a player remembers.
+     */
+    int getRecall()
+    {
+        return _recall;
+    }
+
+
+    /**
+     * Number an information set.
+     *
+     * @param config int representing the dice count of every seat, see {@link #getConfigDice}.
+     * @param seat   int representing the seat to act, 0 being the first bidder.
+     * @param roll   int representing the histogram of the seat's dice, see {@link #getRollIndex(int[])}.
+     * @param last   int representing the number of the highest bid, -1 if there is none.
+     * @param prev   int representing the number of the bid before it, -1 if there is none.
+     * @return int the dense number of the information set.
+     */
+    int getInfoSet(int config, int seat, int roll, int last, int prev)
+    {
+        int iHistory = last + 1;
+        if (_recall > 1)
+        {
+            iHistory += _bidBase * (prev + 1);
+        }
+
+        return ((config * _numPlayers + seat) * _numRolls + roll) * _numHistories + iHistory;
+    }
+
+
+    /**
+     * Fill in the number of dice held by every seat in a configuration.
+     *
+     * @param config   int representing the configuration.
+     * @param seatDice int[] of length numPlayers to fill in.
+     */
+    void getConfigDice(int config, int[] seatDice)
+    {
+        for (int i = 0; i < _numPlayers; i++)
+        {
+            seatDice[i] = config % _maxDice + 1;
+            config /= _maxDice;
+        }
+    }
+
+
+    /**
+     * Number a histogram of dice.
+     *
+     * @param counts int[] where counts[dots] is the number of dice showing dots, for dots 1 to 6.
+     * @return int the dense number of the histogram.
+     */
+    int getRollIndex(int[] counts)
+    {
+        int iCode = 0;
+        for (int d = NUM_SIDES; d >= 1; d--)
+        {
+            iCode = iCode * (_maxDice + 1) + counts[d];
+        }
+        return _rollRank[iCode];
+    }
+
+
+    /**
+     * Number the histogram of the dice in a cup.
+     */
+    private int getRollIndex(Cup cup)
+    {
+        int iCode = 0;
+        for (int d = NUM_SIDES; d >= 1; d--)
+        {
+            iCode = iCode * (_maxDice + 1) + cup.getNumDice(d);
+        }
+        return _rollRank[iCode];
+    }
+
+
+    /**
+     * Tells whether an action may be taken.
+     *
+     * @param action int representing the action, 0 for b.s.
+     * @param last   int representing the number of the highest bid, -1 if there is none.
+     * @param maxBid int representing the highest bid number in the round.
+     * @return <code>true</code> if the action is legal.
+     */
+    static boolean isLegal(int action, int last, int maxBid)
+    {
+        if (action == 0)
+        {
+            // the first bid may not be b.s.
+            return last >= 0;
+        }
+
+        return last + action <= maxBid;
+    }
+
+
+    /**
+     * The number of a bid, -2 if it is outside the abstraction.
+     */
+    private static int getBidNumber(Bid bid, int numDiceTotal)
+    {
+        if (bid.isBS() || bid.getNumDice() > numDiceTotal)
+        {
+            return -2;
+        }
+
+        return (bid.getNumDice() - 1) * NUM_SIDES + (bid.getDots() - 1);
+    }
+
+
+    /**
+     * the bid that an action makes
+     */
+    private static Bid toBid(int action, int last)
+    {
+        if (action == 0)
+        {
+            return new Bid();
+        }
+
+        int iBid = last + action;
+        try
+        {
+            return new Bid(iBid / NUM_SIDES + 1, iBid % NUM_SIDES + 1);
+        }
+        catch (Exception e)
+        {
+            // legal actions are always in range
+            return null;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+
+package com.shuttersky.liarsdice;
+
+
+/**
+ * SystemClock is the real time, {@link GameClock#SYSTEM}.
+ * <p>
+ * Note: this is package level
+ */
+final class SystemClock implements GameClock
+{
+    public long nanoTime()
+    {
+        return System.nanoTime();
+    }
+
+
+    public void sleep(long lNanos) throws InterruptedException
+    {
+        Thread.sleep(lNanos / 1000000L, (int) (lNanos % 1000000L));
+    }
+
+
+    public boolean joinUntil(Thread thread, long lDeadlineNanos) throws InterruptedException
+    {
+        if (lDeadlineNanos == NO_DEADLINE)
+        {
+            thread.join();
+            return true;
+        }
+
+        while (thread.isAlive())
+        {
+            long lLeftNanos = lDeadlineNanos - System.nanoTime();
+            if (lLeftNanos <= 0)
+            {
+                return false;
+            }
+            thread.join(lLeftNanos / 1000000L, (int) (lLeftNanos % 1000000L));
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,227 @@
+
+package com.shuttersky.liarsdice;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TableManager hosts many tables in one JVM.  Each table is a GameServer that
+ * plays its own series of games, and runs its game loop on a thread of its
+ * own.  A table spends nearly all of its time waiting for players, so when the
+ * JVM has virtual threads, each table gets a virtual thread and thousands of
+ * tables can play at once.  On an older JVM, tables run on a fixed pool of
+ * platform threads and wait for a free thread to be admitted.
+ * <p>
+ * However many tables there are, at most <code>maxConcurrentBids</code> players
+ * are asked for a bid at the same moment.  A table waits for a permit before
+ * asking, and the player's time starts once the table has one.
+ * <p>
+ * Given a batch window, tables ask {@link BatchPlayer}s of the same class for
+ * their bids together, gathering the requests for up to that many microseconds.
+ */
+public class TableManager
+{
+    /**
+     * if not overridden, the number of tables that play at once when there are no virtual threads
+     */
+    public static final int DEFAULT_MAX_PLATFORM_TABLES = 64;
+
+    private final ExecutorService _executor;
+    private final boolean _virtualThreads;
+    private final Semaphore _bidPermits;
+    private final BatchDispatcher _batchDispatcher;
+    private final long _seed;
+    private final TournamentMonitor _monitor;
+    private final AtomicInteger _numTables = new AtomicInteger();
+    private final AtomicInteger _activeTables = new AtomicInteger();
+
+
+    /**
+     * constructor.
+     *
+     * @param maxConcurrentBids int representing the most players asked for a bid at once, 0 for no limit.
+     * @param timeoutSeconds    int representing the number of seconds each player has to make a decision.
+     */
+    public TableManager(int maxConcurrentBids, int timeoutSeconds)
+    {
+        this(maxConcurrentBids, timeoutSeconds, 0);
+    }
+
+
+    /**
+     * constructor.
+     *
+     * @param maxConcurrentBids int representing the most players asked for a bid at once, 0 for no limit.
+     * @param timeoutSeconds    int representing the number of seconds each player has to make a decision.
+     * @param batchWindowMicros long representing the microseconds to gather requests for BatchPlayers, 0 to not batch.
+     */
+    public TableManager(int maxConcurrentBids, int timeoutSeconds, long batchWindowMicros)
+    {
+        this(maxConcurrentBids, DEFAULT_MAX_PLATFORM_TABLES, batchWindowMicros, new Random().nextLong(), new TournamentMonitor(timeoutSeconds));
+    }
+
+
+    /**
+     * constructor that reports every table to a monitor.
+     *
+     * @param maxConcurrentBids int representing the most players asked for a bid at once, 0 for no limit.
+     * @param maxPlatformTables int representing the number of tables that play at once without virtual threads.
+     * @param batchWindowMicros long representing the microseconds to gather requests for BatchPlayers, 0 to not batch.
+     * @param lSeed             long representing the seed the dice of every table are derived from.
+     * @param monitor           TournamentMonitor that counts the games of every table and holds the timeout.
+     */
+    TableManager(int maxConcurrentBids, int maxPlatformTables, long batchWindowMicros, long lSeed, TournamentMonitor monitor)
+    {
+        _seed = lSeed;
+        _bidPermits = (maxConcurrentBids > 0) ? new Semaphore(maxConcurrentBids, true) : null;
+        _batchDispatcher = (batchWindowMicros > 0) ? new BatchDispatcher(batchWindowMicros) : null;
+        _monitor = monitor;
+
+        ExecutorService executor = newVirtualThreadExecutor();
+        _virtualThreads = (executor != null);
+        if (executor == null)
+        {
+            executor = Executors.newFixedThreadPool(maxPlatformTables);
+        }
+        _executor = executor;
+
+        GameServer.logger.info("TableManager runs tables on " + (_virtualThreads ? "virtual threads" : maxPlatformTables + " platform threads"));
+    }
+
+
+    /**
+     * Admit a table.
+     *
+     * @param playerClassNames List&lt;String&gt; of the fully qualified class names of the players.
+     * @param numGames         int representing the number of games the table plays.
+     * @return Future that holds the simple class name of the winner of each game once the table is done.
+     * @throws java.util.concurrent.RejectedExecutionException if the manager is shut down.
+     */
+    public Future<List<String>> submit(List<String> playerClassNames, int numGames)
+    {
+        return submit(playerClassNames, numGames, null);
+    }
+
+
+    /**
+     * Admit a table, and be told when it is done.
+     *
+     * @param playerClassNames List&lt;String&gt; of the fully qualified class names of the players.
+     * @param numGames         int representing the number of games the table plays.
+     * @param whenDone         Runnable that is run on the table's thread once the table is done, or <code>null</code>.
+     * @return Future that holds the simple class name of the winner of each game once the table is done.
+     */
+    Future<List<String>> submit(List<String> playerClassNames, int numGames, final Runnable whenDone)
+    {
+        int iTable = _numTables.getAndIncrement();
+        final GameServer table = new GameServer(playerClassNames, String.format("table%05d-", iTable), _monitor, _bidPermits, _batchDispatcher, DiceStream.derive(_seed, iTable));
+        final int iNumGames = numGames;
+
+        return _executor.submit(new Callable<List<String>>()
+        {
+            public List<String> call() throws Exception
+            {
+                _activeTables.incrementAndGet();
+                try
+                {
+                    return table.playTable(iNumGames);
+                }
+                finally
+                {
+                    _activeTables.decrementAndGet();
+                    if (whenDone != null)
+                    {
+                        whenDone.run();
+                    }
+                }
+            }
+        });
+    }
+
+
+    /**
+     * @return int the number of tables playing right now.
+     */
+    public int getActiveTables()
+    {
+        return _activeTables.get();
+    }
+
+
+    /**
+     * @return boolean <code>true</code> if each table has a virtual thread.
+     */
+    public boolean isUsingVirtualThreads()
+    {
+        return _virtualThreads;
+    }
+
+
+    /**
+     * Stop admitting tables.  Tables already admitted finish their games.
+     */
+    public void shutdown()
+    {
+        _executor.shutdown();
+    }
+
+
+    /**
+     * Stop admitting tables and interrupt the ones that are playing.  They stop after the current game.
+     *
+     * @return List of the tables that were admitted but never started.
+     */
+    public List<Runnable> shutdownNow()
+    {
+        return new ArrayList<Runnable>(_executor.shutdownNow());
+    }
+
+
+    /**
+     * Wait for every table to finish after a shutdown.
+     *
+     * @param timeout long representing the most time to wait.
+     * @param unit    TimeUnit of the timeout.
+     * @return boolean <code>true</code> if every table finished.
+     * @throws InterruptedException if the wait is interrupted.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return _executor.awaitTermination(timeout, unit);
+    }
+
+
+    /**
+     * Make an executor with a virtual thread per task, if this JVM has virtual threads.
+     * They are looked up reflectively so that the game still builds and runs on older JVMs.
+     *
+     * @return ExecutorService, or <code>null</code> if there are no virtual threads.
+     */
+    private static ExecutorService newVirtualThreadExecutor()
+    {
+        try
+        {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            ThreadFactory threadFactory = (ThreadFactory) factory.invoke(builder);
+
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, threadFactory);
+        }
+        catch (Exception e)
+        {
+            // no virtual threads, or they are a preview feature that is not enabled
+            return null;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+
+package com.shuttersky.liarsdice;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TableScheduler plays a roster of players against each other, a table for
+ * every set of players, packing the tables onto the machine so that the
+ * processors are kept busy without being oversubscribed.
+ * <p>
+ * What a table costs is learned as it plays.  The {@link TournamentMonitor}
+ * times every bid, and players that search on several threads say so through
+ * {@link PlayerResources}.  A table keeps one processor busy at any moment,
+ * or more while a player that uses more threads is bidding, so its load is
+ * the number of threads of its players weighted by how long each takes to
+ * bid.  A table is started only when the loads of the tables playing, as they
+ * are known now, leave room for it.
+ * <p>
+ * The slowest tables are started first, so that the last tables to finish
+ * are short ones and the machine is not left running one long table at the
+ * end.  A player that has not bid yet is taken to be as slow as the slowest
+ * one seen, which also gets it measured early.
+ */
+public class TableScheduler
+{
+    private final double _cores;
+    private final TournamentMonitor _monitor;
+    private final TableManager _manager;
+
+    /**
+     * the tables playing right now, by their index in the list being played
+     */
+    private final HashSet<Integer> _playing = new HashSet<Integer>();
+
+
+    /**
+     * constructor.
+     *
+     * @param cores          int representing the number of processors to keep busy.
+     * @param timeoutSeconds int representing the number of seconds each player has to make a decision.
+     */
+    public TableScheduler(int cores, int timeoutSeconds)
+    {
+        this(cores, new TournamentMonitor(timeoutSeconds), new Random().nextLong(), 0, 0);
+    }
+
+
+    /**
+     * constructor that reports every table to a monitor.
+     *
+     * @param cores             int representing the number of processors to keep busy.
+     * @param monitor           TournamentMonitor that times the bids and counts the games of every table.
+     * @param lSeed             long representing the seed the dice of every table are derived from.
+     * @param maxConcurrentBids int representing the most players asked for a bid at once, 0 for no limit.
+     * @param batchWindowMicros long representing the microseconds to gather requests for BatchPlayers, 0 to not batch.
+     */
+    TableScheduler(int cores, TournamentMonitor monitor, long lSeed, int maxConcurrentBids, long batchWindowMicros)
+    {
+        _cores = Math.max(1, cores);
+        _monitor = monitor;
+
+        // every table keeps at least one processor busy, so no more than this many ever play at once
+        _manager = new TableManager(maxConcurrentBids, (int) _cores, batchWindowMicros, lSeed, monitor);
+    }
+
+
+    /**
+     * Every set of players of a size that can be drawn from a roster, each once.
+     *
+     * @param roster    List&lt;String&gt; of the fully qualified class names of the players.
+     * @param tableSize int representing the number of players at each table.
+     * @return List of the players of each table.
+     */
+    public static List<List<String>> roundRobin(List<String> roster, int tableSize)
+    {
+        ArrayList<List<String>> tables = new ArrayList<List<String>>();
+        int[] chosen = new int[tableSize];
+
+        for (int i = 0; i < tableSize; i++)
+        {
+            chosen[i] = i;
+        }
+
+        while (tableSize <= roster.size())
+        {
+            ArrayList<String> table = new ArrayList<String>();
+            for (int iPlayer : chosen)
+            {
+                table.add(roster.get(iPlayer));
+            }
+            tables.add(table);
+
+            // move on to the next set, in lexicographic order
+            int i = tableSize - 1;
+            while (i >= 0 && chosen[i] == roster.size() - tableSize + i)
+            {
+                i--;
+            }
+            if (i < 0)
+            {
+                break;
+            }
+            chosen[i]++;
+            for (int j = i + 1; j < tableSize; j++)
+            {
+                chosen[j] = chosen[j - 1] + 1;
+            }
+        }
+
+        return tables;
+    }
+
+
+    /**
+     * Sets of players drawn at random from a roster, for rosters too large to play every set.
+     *
+     * @param roster    List&lt;String&gt; of the fully qualified class names of the players.
+     * @param tableSize int representing the number of players at each table.
+     * @param numTables int representing the number of tables.
+     * @param lSeed     long representing the seed of the draw.
+     * @return List of the players of each table, seated in random order.
+     */
+    public static List<List<String>> randomSubsets(List<String> roster, int tableSize, int numTables, long lSeed)
+    {
+        ArrayList<List<String>> tables = new ArrayList<List<String>>();
+        Random random = new Random(lSeed);
+
+        for (int i = 0; i < numTables; i++)
+        {
+            ArrayList<String> shuffled = new ArrayList<String>(roster);
+            Collections.shuffle(shuffled, random);
+            tables.add(new ArrayList<String>(shuffled.subList(0, Math.min(tableSize, shuffled.size()))));
+        }
+
+        return tables;
+    }
+
+
+    /**
+     * Play every table, and wait for them all to finish.
+     *
+     * @param tables        List of the fully qualified class names of the players of each table.
+     * @param gamesPerTable int representing the number of games each table plays.
+     * @return List of the simple class name of the winner of each game, for each table.
+     * @throws Exception if a table can not be played, or the wait is interrupted.
+     */
+    public List<List<String>> play(final List<List<String>> tables, int gamesPerTable) throws Exception
+    {
+        ArrayList<Future<List<String>>> futures = new ArrayList<Future<List<String>>>(Collections.<Future<List<String>>>nCopies(tables.size(), null));
+        ArrayList<Integer> waiting = new ArrayList<Integer>();
+        for (int i = 0; i < tables.size(); i++)
+        {
+            waiting.add(Integer.valueOf(i));
+        }
+
+        synchronized (this)
+        {
+            while (waiting.isEmpty() == false)
+            {
+                // what is known of the players changes as the tables play
+                Collections.sort(waiting, new Comparator<Integer>()
+                {
+                    public int compare(Integer table1, Integer table2)
+                    {
+                        return Double.compare(getBidNanos(tables.get(table2.intValue())), getBidNanos(tables.get(table1.intValue())));
+                    }
+                });
+
+                double dLoad = 0;
+                for (Integer table : _playing)
+                {
+                    dLoad += getLoad(tables.get(table.intValue()));
+                }
+
+                for (int i = 0; i < waiting.size(); i++)
+                {
+                    final Integer table = waiting.get(i);
+                    double dTableLoad = getLoad(tables.get(table.intValue()));
+                    if (_playing.isEmpty() == false && dLoad + dTableLoad > _cores)
+                    {
+                        continue;
+                    }
+
+                    dLoad += dTableLoad;
+                    _playing.add(table);
+                    waiting.remove(i--);
+                    futures.set(table.intValue(), _manager.submit(tables.get(table.intValue()), gamesPerTable, new Runnable()
+                    {
+                        public void run()
+                        {
+                            synchronized (TableScheduler.this)
+                            {
+                                _playing.remove(table);
+                                TableScheduler.this.notifyAll();
+                            }
+                        }
+                    }));
+                }
+
+                if (waiting.isEmpty() == false)
+                {
+                    wait();
+                }
+            }
+        }
+
+        ArrayList<List<String>> winners = new ArrayList<List<String>>();
+        for (Future<List<String>> future : futures)
+        {
+            try
+            {
+                winners.add(future.get());
+            }
+            catch (ExecutionException e)
+            {
+                throw new Exception("a table could not be played", e.getCause());
+            }
+        }
+
+        return winners;
+    }
+
+
+    /**
+     * Stop the tables, once every table has been played.
+     *
+     * @throws InterruptedException if the wait is interrupted.
+     */
+    public void shutdown() throws InterruptedException
+    {
+        _manager.shutdown();
+        _manager.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+    }
+
+
+    /**
+     * @param table List&lt;String&gt; of the fully qualified class names of the players of a table.
+     * @return double the number of processors the table keeps busy.
+     */
+    double getLoad(List<String> table)
+    {
+        double dNanos = 0;
+        double dThreadNanos = 0;
+
+        for (String sPlayerClassName : table)
+        {
+            String sName = getSimpleClassName(sPlayerClassName);
+            double dBidNanos = getBidNanos(sName);
+            dNanos += dBidNanos;
+            dThreadNanos += dBidNanos * _monitor.getBidThreads(sName);
+        }
+
+        return (dNanos > 0) ? dThreadNanos / dNanos : 1;
+    }
+
+
+    /**
+     * @param table List&lt;String&gt; of the fully qualified class names of the players of a table.
+     * @return double the nanoseconds a round of bids at the table takes, which games take in proportion to.
+     */
+    double getBidNanos(List<String> table)
+    {
+        double dNanos = 0;
+
+        for (String sPlayerClassName : table)
+        {
+            dNanos += getBidNanos(getSimpleClassName(sPlayerClassName));
+        }
+
+        return dNanos;
+    }
+
+
+    /**
+     * @return double the nanoseconds the player takes to bid, or the slowest of any player if it has not bid yet.
+     */
+    private double getBidNanos(String sName)
+    {
+        double dNanos = _monitor.getMeanBidNanos(sName);
+        if (dNanos > 0)
+        {
+            return dNanos;
+        }
+
+        double dSlowest = 1;
+        for (Long micros : _monitor.getMeanBidMicros().values())
+        {
+            dSlowest = Math.max(dSlowest, micros.longValue() * 1000.0);
+        }
+        return dSlowest;
+    }
+
+
+    private static String getSimpleClassName(String sPlayerClassName)
+    {
+        return sPlayerClassName.substring(sPlayerClassName.lastIndexOf('.') + 1);
+    }
+}
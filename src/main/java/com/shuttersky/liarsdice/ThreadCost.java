@@ -0,0 +1,110 @@
+
+package com.shuttersky.liarsdice;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * ThreadCost reads the CPU time a thread has used and the bytes it has
+ * allocated, from the platform ThreadMXBean.  Unlike the time a call takes on
+ * the clock, neither counts the time a thread spends waiting for a core, so
+ * neither depends on how many games share the machine.
+ * <p>
+ * Each is -1 where the JVM does not measure it.  Allocation is measured by
+ * HotSpot and the JVMs built on it.
+ * <p>
+ * Note: this is package level
+ */
+final class ThreadCost
+{
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = isCpuTimeEnabled();
+    private static final com.sun.management.ThreadMXBean ALLOCATION = getAllocationBean();
+
+
+    private ThreadCost()
+    {
+    }
+
+
+    /**
+     * @return boolean <code>true</code> if the CPU time of threads is measured.
+     */
+    static boolean isCpuTimeSupported()
+    {
+        return CPU_TIME;
+    }
+
+
+    /**
+     * @return long the nanoseconds of CPU time the current thread has used, or -1.
+     */
+    static long getCurrentThreadCpuNanos()
+    {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+
+    /**
+     * @return long the bytes the current thread has allocated, or -1.
+     */
+    static long getCurrentThreadAllocatedBytes()
+    {
+        return (ALLOCATION != null) ? ALLOCATION.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+
+    /**
+     * @param thread Thread that is running.
+     * @return long the nanoseconds of CPU time the thread has used, or -1 if it has finished.
+     */
+    static long getCpuNanos(Thread thread)
+    {
+        return CPU_TIME ? THREADS.getThreadCpuTime(thread.getId()) : -1;
+    }
+
+
+    /**
+     * @param thread Thread that is running.
+     * @return long the bytes the thread has allocated, or -1 if it has finished.
+     */
+    static long getAllocatedBytes(Thread thread)
+    {
+        return (ALLOCATION != null) ? ALLOCATION.getThreadAllocatedBytes(thread.getId()) : -1;
+    }
+
+
+    private static boolean isCpuTimeEnabled()
+    {
+        try
+        {
+            return THREADS.isThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+        }
+        catch (Exception e)
+        {
+            return false;
+        }
+    }
+
+
+    private static com.sun.management.ThreadMXBean getAllocationBean()
+    {
+        try
+        {
+            if (THREADS instanceof com.sun.management.ThreadMXBean)
+            {
+                com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREADS;
+                if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled())
+                {
+                    return bean;
+                }
+            }
+        }
+        catch (LinkageError e)
+        {
+            // a JVM without the com.sun.management extensions
+        }
+
+        return null;
+    }
+}
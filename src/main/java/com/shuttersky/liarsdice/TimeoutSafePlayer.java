@@ -1,6 +1,8 @@
 
 package com.shuttersky.liarsdice;
 
+import java.util.List;
+
 /**
  * TimeoutSafePlayer solves the problem of the GameServer blocking for
  * a Player that does not respond (or that does not respond fast enough)
@@ -12,27 +14,82 @@ class TimeoutSafePlayer implements com.shuttersky.liarsdice.Player
      */
     private static final int MIN_TIMEOUT_SECONDS = 0;
 
+    /**
+     * the least time between looks at the CPU time of a call that has a CPU time limit
+     */
+    private static final long MIN_CPU_POLL_NANOS = 1000000L;
+
+    /**
+     * every thread that calls a player belongs to this group so that they can be counted
+     */
+    static final ThreadGroup PLAYER_THREADS = new ThreadGroup("players");
+
     /**
      * PlayerCaller is the runnable class that calls the player.
      */
     private PlayerCaller _playerCaller;
 
+    /**
+     * whether the player wants to be told only what changed
+     */
+    private boolean _isListener;
+
     /**
      * timeoutSeconds is the maximum number of seconds to wait for the playerCaller
      * to return from its run method.
      */
     private int _timeoutSeconds;
 
+    /**
+     * the clock that the timeout is measured on
+     */
+    private GameClock _clock;
+
+    /**
+     * the most nanoseconds of CPU time a call may use, 0 for no limit
+     */
+    private long _cpuTimeoutNanos = 0;
+
+    /**
+     * the thread that ran the most recent call, and whether it was still running when the time ran out
+     */
+    private Thread _playerCallerThread = null;
+    private boolean _timedOut = false;
+
+    /**
+     * the CPU time and allocation of the most recent call, so far if it timed out
+     */
+    private long _cpuNanos = -1;
+    private long _allocatedBytes = -1;
+
     /**
      * constructor creates a new instance of a TimeoutSafePlayer.
      *
      * @param player         Player that the playerCaller should call.
      * @param timeoutSeconds int representing the maximum number of seconds to wait
      *                       for the playerCaller to return from its run method.
+     *                       <code>0</code> waits as long as the player takes.
      * @throws java.lang.Exception if the timeout seconds is negative
      */
     TimeoutSafePlayer(Player player, int timeoutSeconds)
         throws Exception
+    {
+        this(player, timeoutSeconds, GameClock.SYSTEM);
+    }
+
+    /**
+     * constructor creates a new instance of a TimeoutSafePlayer that measures
+     * the timeout on the given clock.
+     *
+     * @param player         Player that the playerCaller should call.
+     * @param timeoutSeconds int representing the maximum number of seconds to wait
+     *                       for the playerCaller to return from its run method.
+     *                       <code>0</code> waits as long as the player takes.
+     * @param clock          GameClock that the timeout is measured on.
+     * @throws java.lang.Exception if the timeout seconds is negative
+     */
+    TimeoutSafePlayer(Player player, int timeoutSeconds, GameClock clock)
+        throws Exception
     {
         if (timeoutSeconds < MIN_TIMEOUT_SECONDS)
         {
@@ -40,7 +97,9 @@ class TimeoutSafePlayer implements com.shuttersky.liarsdice.Player
         }
 
         this._playerCaller = new PlayerCaller(player);
+        this._isListener = (player instanceof PlayerListener);
         this._timeoutSeconds = timeoutSeconds;
+        this._clock = clock;
 
         GameServer.logger.finest("TimeoutSafePlayer made for: " + player.toString() + " with timeout seconds: " + timeoutSeconds);
     }
@@ -56,21 +115,20 @@ class TimeoutSafePlayer implements com.shuttersky.liarsdice.Player
     public Bid getBid(RoundState rs, Cup cup)
     {
         _playerCaller.setModeGetBid(rs, cup);
-        Thread playerCallerThread = new Thread(_playerCaller);
-        playerCallerThread.start();
-
-        try
+        if (_timeoutSeconds > 0)
         {
-            playerCallerThread.join(_timeoutSeconds * 1000);
+            rs.setBidDeadline(_clock.nanoTime() + _timeoutSeconds * 1000000000L, _clock);
         }
-        catch (Exception e)
+        rs.setBidCpuLimit(ThreadCost.isCpuTimeSupported() ? _cpuTimeoutNanos : 0);
+        callPlayer("getBid");
+
+        // a late bid is not accepted even if the thread finishes after the join
+        if (_timedOut)
         {
-            // logging a warning is all that is necessary, because this is a result
-            // of a player not responding to telling them the outcome of a round
-            GameServer.logger.warning("TimetouSafePlayer.getBid join exception.  player class interrupted.");
+            return null;
         }
 
-        // return the result of the thread... it should be null if the thread has not finished
+        // return the result of the thread
         return _playerCaller.getBid();
 
     }
@@ -82,20 +140,38 @@ class TimeoutSafePlayer implements com.shuttersky.liarsdice.Player
      */
     public void tellBid(RoundState rs)
     {
+        if (_isListener)
+        {
+            int iIndex = rs.getNumBids() - 1;
+            _playerCaller.setModeOnBid(iIndex % rs.getNumPlayers(), rs.getBids().get(iIndex));
+            callPlayer("onBid");
+            return;
+        }
+
         _playerCaller.setModeTellBid(rs);
-        Thread playerCallerThread = new Thread(_playerCaller);
-        playerCallerThread.start();
+        callPlayer("tellBid");
+    }
 
-        try
+    /**
+     * Tell a PlayerListener that a round started.  Other players are not called.
+     *
+     * @param rs RoundState of the new round.
+     */
+    void tellRoundStart(RoundState rs)
+    {
+        if (_isListener == false)
         {
-            playerCallerThread.join(_timeoutSeconds * 1000);
+            return;
         }
-        catch (Exception e)
+
+        int[] numDice = new int[rs.getNumPlayers()];
+        for (int i = 0; i < numDice.length; i++)
         {
-            // logging a warning is all that is necessary, because this is a result
-            // of a player not responding to telling them the outcome of a round
-            GameServer.logger.warning("TimetouSafePlayer.tellBid join exception.  player class interrupted.");
+            numDice[i] = rs.getNumDice(i);
         }
+
+        _playerCaller.setModeRoundStart(rs.getPlayerSimpleClassNames(), numDice);
+        callPlayer("onRoundStart");
     }
 
     /**
@@ -106,21 +182,182 @@ class TimeoutSafePlayer implements com.shuttersky.liarsdice.Player
      */
     public void tellOutcome(RoundState rs, String winnerClassName, String loserClassName)
     {
+        if (_isListener)
+        {
+            _playerCaller.setModeOnShowdown(getFaceCounts(rs), winnerClassName, loserClassName);
+            callPlayer("onShowdown");
+            return;
+        }
+
         _playerCaller.setModeTellOutcome(rs, winnerClassName, loserClassName);
-        Thread playerCallerThread = new Thread(_playerCaller);
-        playerCallerThread.start();
+        callPlayer("tellOutcome");
+    }
+
+    /**
+     * Tells whether the most recent call was still running when the time ran out.
+     *
+     * @return <code>true</code> if the player did not return in time.
+     */
+    boolean isTimedOut()
+    {
+        return _timedOut;
+    }
 
+    /**
+     * Get the thread that ran the most recent call.  If the call timed out, the thread may still be running.
+     *
+     * @return Thread that ran the most recent call, <code>null</code> if no call has been made.
+     */
+    Thread getPlayerCallerThread()
+    {
+        return _playerCallerThread;
+    }
+
+    /**
+     * Limit the CPU time each call may use, as well as the time on the clock.  A call
+     * that uses more is treated as one that timed out, even if it has returned.  A
+     * player that is kept waiting for a core uses none, so the limit is the same however
+     * many games share the machine.  Where the JVM does not measure CPU time, only the
+     * time on the clock is limited.
+     * <p>
+     * Only the thread that calls the player is measured.  Work a player hands to other
+     * threads, such as a thread pool, is neither limited nor reported, so a player is
+     * told the limit through {@link RoundState#getBidCpuLimitMillis()} and should then
+     * work on the calling thread, as PlayerMonteCarlo does.
+     *
+     * @param lMillis long representing the most milliseconds of CPU time, 0 for no limit.
+     */
+    void setCpuTimeoutMillis(long lMillis)
+    {
+        _cpuTimeoutNanos = Math.max(0, lMillis) * 1000000L;
+    }
+
+    /**
+     * @return long the nanoseconds of CPU time the most recent call used, -1 if it was not measured.
+     */
+    long getCpuNanos()
+    {
+        return _cpuNanos;
+    }
+
+    /**
+     * @return long the bytes the most recent call allocated, -1 if it was not measured.
+     */
+    long getAllocatedBytes()
+    {
+        return _allocatedBytes;
+    }
+
+    /**
+     * Count the faces in each cup of a round whose showdown is over.
+     *
+     * @param rs RoundState whose cups are revealed.
+     * @return int[][] where <code>[seat][dots]</code> is the number of dice showing dots in the seat's cup.
+     */
+    private static int[][] getFaceCounts(RoundState rs)
+    {
+        int[][] faceCounts = new int[rs.getNumPlayers()][];
+
+        try
+        {
+            List<Cup> cups = rs.getCups();
+            for (int i = 0; i < faceCounts.length; i++)
+            {
+                Cup cup = cups.get(i);
+                faceCounts[i] = new int[cup.getNumSides() + 1];
+                for (int d = 1; d <= cup.getNumSides(); d++)
+                {
+                    faceCounts[i][d] = cup.getNumDice(d);
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            GameServer.logger.severe("TimeoutSafePlayer asked for the cups before the showdown was over");
+        }
+
+        return faceCounts;
+    }
+
+    /**
+     * Start a thread for the playerCaller, which must already have its mode set,
+     * and wait for it to finish or for the time to run out.
+     *
+     * @param methodName String representing the name of the player method, for logging.
+     */
+    private void callPlayer(String methodName)
+    {
+        _playerCallerThread = new Thread(PLAYER_THREADS, _playerCaller);
+
+        // the time starts before the thread, which may move a simulated clock as soon as it runs
+        long lStart = _clock.nanoTime();
+        _playerCallerThread.start();
+
+        boolean bFinished = false;
         try
         {
-            playerCallerThread.join(_timeoutSeconds * 1000);
+            bFinished = awaitPlayerCaller(lStart);
         }
         catch (Exception e)
         {
             // logging a warning is all that is necessary, because this is a result
-            // of a player not responding to telling them the outcome of a round
-            GameServer.logger.warning("TimeoutSafePlayer.tellOutcome join exception.  player class interrupted.");
+            // of a player not responding in time
+            GameServer.logger.warning("TimeoutSafePlayer." + methodName + " join exception.  player class interrupted.");
+        }
+
+        // a call that has finished has counted its own cost; one still running is measured as it stands
+        if (_playerCallerThread.isAlive())
+        {
+            _cpuNanos = ThreadCost.getCpuNanos(_playerCallerThread);
+            _allocatedBytes = ThreadCost.getAllocatedBytes(_playerCallerThread);
         }
+        else
+        {
+            _cpuNanos = _playerCaller.getCpuNanos();
+            _allocatedBytes = _playerCaller.getAllocatedBytes();
+        }
+
+        _timedOut = (bFinished == false) || (_cpuTimeoutNanos > 0 && _cpuNanos > _cpuTimeoutNanos);
+    }
 
+    /**
+     * Wait for the playerCaller thread to finish, or for the time on the clock or the
+     * CPU time to run out.
+     *
+     * @param lStart long representing the time on the clock when the thread was started.
+     * @return boolean <code>true</code> if the thread finished before either ran out.
+     * @throws InterruptedException if the wait is interrupted.
+     */
+    private boolean awaitPlayerCaller(long lStart) throws InterruptedException
+    {
+        long lDeadline = (_timeoutSeconds > 0) ? lStart + _timeoutSeconds * 1000000000L : GameClock.NO_DEADLINE;
+        if (_cpuTimeoutNanos == 0 || ThreadCost.isCpuTimeSupported() == false)
+        {
+            return _clock.joinUntil(_playerCallerThread, lDeadline);
+        }
+
+        long lCpuNanos = 0;
+        while (true)
+        {
+            // a thread can not use CPU time faster than the clock runs, so it can not run
+            // out sooner than the CPU time it has left
+            long lWaitUntil = Math.min(lDeadline, _clock.nanoTime() + Math.max(MIN_CPU_POLL_NANOS, _cpuTimeoutNanos - lCpuNanos));
+
+            if (_clock.joinUntil(_playerCallerThread, lWaitUntil))
+            {
+                return true;
+            }
+            if (lWaitUntil == lDeadline)
+            {
+                return false;
+            }
+
+            lCpuNanos = ThreadCost.getCpuNanos(_playerCallerThread);
+            if (lCpuNanos > _cpuTimeoutNanos)
+            {
+                return false;
+            }
+        }
     }
 
 }
@@ -0,0 +1,295 @@
+
+package com.shuttersky.liarsdice;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Tournament plays a series of games between players that another program
+ * already has, such as a test suite or an optimizer trying out the settings
+ * of a bot.  It is the GameServer without the properties, the JMX monitor,
+ * the debug log or <code>System.exit</code>: its options come from a
+ * {@link TournamentConfig}, its outcome is a {@link TournamentResult}, and
+ * anything that goes wrong is thrown.  Tournaments share nothing, so any
+ * number of them, configured differently, can be played in one JVM at once.
+ * <pre>
+ *     TournamentConfig config = new TournamentConfig();
+ *     config.setNumGames(1000);
+ *     config.setSeed(42);
+ *     TournamentResult result = new Tournament(config, players).play();
+ * </pre>
+ * The same player instances play every game, seated in the order given, and
+ * the dice of each game are derived from the seed and the game number as the
+ * GameServer derives them.  Players that implement {@link PlayerLifecycle}
+ * are told when each game starts and ends, and {@link ReusablePlayer}s are
+ * reset before every game after the first.
+ * <p>
+ * Each player is known in the games and the result by a name.  Given a list,
+ * the players are named by their simple class names, numbered from the second
+ * on when a class plays more than once, as in <code>PlayerCfr</code> and
+ * <code>PlayerCfr-2</code>.  Given a map, the players are named by its keys,
+ * so the same bot with different settings can be told apart by its settings.
+ */
+public class Tournament
+{
+    private final int _numGames;
+    private final int _timeoutSeconds;
+    private final long _cpuTimeoutMillis;
+    private final long _seed;
+    private final File _gameLogDirectory;
+    private final Logger _logger;
+    private final GameClock _clock;
+    private final ArrayList<Player> _players;
+    private final ArrayList<String> _names = new ArrayList<String>();
+
+
+    /**
+     * constructor.  The options are taken from the config now, so it can be changed for another tournament.
+     *
+     * @param config  TournamentConfig with the options.
+     * @param players List&lt;Player&gt; of the players, in seating order.
+     * @throws IllegalArgumentException if there are fewer than two players.
+     */
+    public Tournament(TournamentConfig config, List<Player> players)
+    {
+        this(config, nameBySimpleClassName(players));
+    }
+
+
+    /**
+     * constructor.  The options are taken from the config now, so it can be changed for another tournament.
+     *
+     * @param config  TournamentConfig with the options.
+     * @param players Map from the name of each player to the player, in seating order, such as a LinkedHashMap.
+     * @throws IllegalArgumentException if there are fewer than two players.
+     */
+    public Tournament(TournamentConfig config, Map<String, Player> players)
+    {
+        _numGames = config.getNumGames();
+        _timeoutSeconds = config.getTimeoutSeconds();
+        _cpuTimeoutMillis = config.getCpuTimeoutMillis();
+        _seed = config.getSeed();
+        _gameLogDirectory = config.getGameLogDirectory();
+        _logger = config.getLogger();
+        _clock = config.getClock();
+        _players = new ArrayList<Player>(players.values());
+        _names.addAll(players.keySet());
+
+        if (_players.size() < 2)
+        {
+            throw new IllegalArgumentException("a tournament needs at least 2 players");
+        }
+    }
+
+
+    /**
+     * Play every game.
+     *
+     * @return TournamentResult with the winner of each game and the standings.
+     * @throws Exception if a player can not start a game, a game can not be saved,
+     *                   or the game breaks the rules in a way the engine can not recover from.
+     */
+    public TournamentResult play() throws Exception
+    {
+        TournamentResult result = new TournamentResult(_seed, _names);
+
+        for (int iGame = 0; iGame < _numGames; iGame++)
+        {
+            for (Player player : _players)
+            {
+                if (iGame > 0 && player instanceof ReusablePlayer)
+                {
+                    ((ReusablePlayer) player).reset();
+                }
+                if (player instanceof PlayerLifecycle)
+                {
+                    ((PlayerLifecycle) player).init();
+                }
+            }
+
+            GameEngine engine = null;
+            try
+            {
+                engine = playGame(DiceStream.derive(_seed, iGame), result);
+            }
+            finally
+            {
+                for (int i = 0; i < _players.size(); i++)
+                {
+                    if (_players.get(i) instanceof PlayerLifecycle)
+                    {
+                        try
+                        {
+                            ((PlayerLifecycle) _players.get(i)).shutdown();
+                        }
+                        catch (Exception e)
+                        {
+                            _logger.warning(_names.get(i) + " threw an exception during shutdown");
+                        }
+                    }
+                }
+            }
+
+            String sWinner = _names.get(engine.getWinner());
+            result.gameCompleted(sWinner);
+            _logger.fine("game " + iGame + " won by " + sWinner);
+
+            if (_gameLogDirectory != null)
+            {
+                File file = new File(_gameLogDirectory, GameServer.GAME_LOG + String.format("%05d", iGame) + "." + GameServer.GAME_LOG_EXT);
+                TournamentCheckpoint.writeAtomically(file, engine.getGameState(), false);
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Play a game to the end.
+     *
+     * @return GameEngine of the finished game.
+     */
+    private GameEngine playGame(long lSeed, final TournamentResult result) throws Exception
+    {
+        final ArrayList<Integer> active = new ArrayList<Integer>();
+        for (int i = 0; i < _players.size(); i++)
+        {
+            active.add(Integer.valueOf(i));
+        }
+
+        GameEngine engine = new GameEngine(_names, lSeed, new GameEngine.Listener()
+        {
+            public void roundStarted(RoundState rs)
+            {
+                for (Integer player : active)
+                {
+                    if (_players.get(player.intValue()) instanceof PlayerListener)
+                    {
+                        TimeoutSafePlayer tsplayer = newTimeoutSafePlayer(player.intValue());
+                        tsplayer.tellRoundStart(rs);
+                        callFinished(tsplayer, player.intValue(), result);
+                    }
+                }
+            }
+
+            public void bidMade(RoundState rs)
+            {
+                for (Integer player : active)
+                {
+                    TimeoutSafePlayer tsplayer = newTimeoutSafePlayer(player.intValue());
+                    tsplayer.tellBid(rs);
+                    callFinished(tsplayer, player.intValue(), result);
+                }
+            }
+
+            public void roundEnded(RoundState rs, String sWinnerClassName, String sLoserClassName)
+            {
+                for (Integer player : active)
+                {
+                    TimeoutSafePlayer tsplayer = newTimeoutSafePlayer(player.intValue());
+                    tsplayer.tellOutcome(rs, sWinnerClassName, sLoserClassName);
+                    callFinished(tsplayer, player.intValue(), result);
+                }
+            }
+
+            public void playerEliminated(int iPlayer)
+            {
+                result.playerEliminated(_names.get(iPlayer));
+                active.remove(Integer.valueOf(iPlayer));
+            }
+        });
+        engine.setLogger(_logger);
+        engine.start();
+
+        int iPlayer = GameEngine.NONE;
+        while ((iPlayer = engine.awaitingSeat()) != GameEngine.NONE)
+        {
+            TimeoutSafePlayer tsplayer = newTimeoutSafePlayer(iPlayer);
+            Bid bid = tsplayer.getBid(engine.getRoundState(), engine.getCup(iPlayer));
+            callFinished(tsplayer, iPlayer, result);
+
+            engine.step(bid);
+        }
+
+        return engine;
+    }
+
+
+    private TimeoutSafePlayer newTimeoutSafePlayer(int iPlayer)
+    {
+        try
+        {
+            TimeoutSafePlayer tsplayer = new TimeoutSafePlayer(_players.get(iPlayer), _timeoutSeconds, _clock);
+            tsplayer.setCpuTimeoutMillis(_cpuTimeoutMillis);
+            return tsplayer;
+        }
+        catch (Exception e)
+        {
+            // the config does not allow a negative timeout
+            throw new IllegalStateException("failed to construct a TimeoutSafePlayer", e);
+        }
+    }
+
+
+    private void callFinished(TimeoutSafePlayer tsplayer, int iPlayer, TournamentResult result)
+    {
+        Player player = _players.get(iPlayer);
+        String sName = _names.get(iPlayer);
+
+        if ((player instanceof PlayerProxy) == false)
+        {
+            result.callCompleted(sName, tsplayer.getCpuNanos(), tsplayer.getAllocatedBytes());
+        }
+
+        if (tsplayer.isTimedOut())
+        {
+            String sLimit = _timeoutSeconds + " seconds";
+            if (_cpuTimeoutMillis > 0)
+            {
+                sLimit += " or " + _cpuTimeoutMillis + " milliseconds of CPU time";
+            }
+            _logger.warning(sName + " did not respond within " + sLimit);
+            result.playerTimedOut(sName);
+
+            if (player instanceof PlayerProxy)
+            {
+                ((PlayerProxy) player).callTimedOut();
+            }
+        }
+    }
+
+
+    /**
+     * Name players by their simple class names, numbering the second and later players of a class.
+     */
+    private static Map<String, Player> nameBySimpleClassName(List<Player> players)
+    {
+        LinkedHashMap<String, Player> named = new LinkedHashMap<String, Player>();
+        HashMap<String, Integer> counts = new HashMap<String, Integer>();
+
+        for (Player player : players)
+        {
+            String sName = GameServer.getSimpleClassName(player);
+            Integer count = counts.get(sName);
+            int iCount = (count == null) ? 1 : count.intValue() + 1;
+
+            // a player whose class is named like PlayerCfr-2 may have taken the numbered name already
+            String sUnique = (iCount == 1) ? sName : sName + "-" + iCount;
+            while (named.containsKey(sUnique))
+            {
+                iCount++;
+                sUnique = sName + "-" + iCount;
+            }
+            counts.put(sName, Integer.valueOf(iCount));
+            named.put(sUnique, player);
+        }
+
+        return named;
+    }
+}
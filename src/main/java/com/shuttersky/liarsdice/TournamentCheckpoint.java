@@ -0,0 +1,239 @@
+
+package com.shuttersky.liarsdice;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * TournamentCheckpoint is the progress of a tournament, saved so that a
+ * tournament that dies can pick up where it left off.  The dice of every game
+ * are derived from the tournament's seed and the game number, so the number
+ * of the next game is all it takes to roll the same dice again.  The
+ * standings and the states of the players that implement
+ * {@link PlayerCheckpoint} are saved with it.
+ * <p>
+ * A checkpoint is written to a temporary file in the same directory and then
+ * moved over the previous one, so a crash while saving leaves the previous
+ * checkpoint whole.
+ * <p>
+ * Note: this is package level
+ */
+class TournamentCheckpoint implements java.io.Serializable
+{
+    /**
+     * for serializable
+     */
+    public static final long serialVersionUID = 1;
+
+    private final ArrayList<String> _playerClassNames;
+    private final long _seed;
+    private final int _nextGameNumber;
+    private final TreeMap<String, Integer> _wins;
+    private final TreeMap<String, Integer> _eliminations;
+    private final TreeMap<String, Integer> _timeouts;
+    private final long _timeoutCount;
+
+    /**
+     * what each player saved, by seat, <code>null</code> for players that saved nothing
+     */
+    private final ArrayList<byte[]> _playerStates;
+
+    /**
+     * the score of a duplicate tournament, or <code>null</code>
+     */
+    private final DuplicateScore _duplicateScore;
+
+    /**
+     * the ratings of the players, or <code>null</code> if they are not being rated
+     */
+    private final Ratings _ratings;
+
+
+    /**
+     * constructor.  Takes the standings from the monitor.
+     *
+     * @param playerClassNames List&lt;String&gt; of the fully qualified class names of the players.
+     * @param lSeed            long representing the seed the dice of every game are derived from.
+     * @param nextGameNumber   int representing the number of the first game that has not been played.
+     * @param monitor          TournamentMonitor holding the standings.
+     * @param playerStates     List&lt;byte[]&gt; of what each player saved, by seat.
+     * @param duplicateScore   DuplicateScore of a duplicate tournament, or <code>null</code>.
+     * @param ratings          Ratings of the players, or <code>null</code>.
+     */
+    TournamentCheckpoint(List<String> playerClassNames, long lSeed, int nextGameNumber, TournamentMonitor monitor, List<byte[]> playerStates, DuplicateScore duplicateScore, Ratings ratings)
+    {
+        _playerClassNames = new ArrayList<String>(playerClassNames);
+        _seed = lSeed;
+        _nextGameNumber = nextGameNumber;
+        _wins = new TreeMap<String, Integer>(monitor.getWins());
+        _eliminations = new TreeMap<String, Integer>(monitor.getEliminations());
+        _timeouts = new TreeMap<String, Integer>(monitor.getTimeouts());
+        _timeoutCount = monitor.getTimeoutCount();
+        _playerStates = new ArrayList<byte[]>(playerStates);
+        _duplicateScore = duplicateScore;
+        _ratings = ratings;
+    }
+
+
+    List<String> getPlayerClassNames()
+    {
+        return _playerClassNames;
+    }
+
+
+    long getSeed()
+    {
+        return _seed;
+    }
+
+
+    int getNextGameNumber()
+    {
+        return _nextGameNumber;
+    }
+
+
+    Map<String, Integer> getWins()
+    {
+        return _wins;
+    }
+
+
+    Map<String, Integer> getEliminations()
+    {
+        return _eliminations;
+    }
+
+
+    Map<String, Integer> getTimeouts()
+    {
+        return _timeouts;
+    }
+
+
+    long getTimeoutCount()
+    {
+        return _timeoutCount;
+    }
+
+
+    DuplicateScore getDuplicateScore()
+    {
+        return _duplicateScore;
+    }
+
+
+    Ratings getRatings()
+    {
+        return _ratings;
+    }
+
+
+    /**
+     * @param iSeat int representing the seat of a player.
+     * @return byte[] that the player saved, or <code>null</code>.
+     */
+    byte[] getPlayerState(int iSeat)
+    {
+        return (iSeat < _playerStates.size()) ? _playerStates.get(iSeat) : null;
+    }
+
+
+    /**
+     * Save the checkpoint over the previous one.
+     *
+     * @param file File to save to.
+     * @throws IOException if the checkpoint can not be written.  The previous one is left alone.
+     */
+    void save(File file) throws IOException
+    {
+        writeAtomically(file, this, true);
+    }
+
+
+    /**
+     * Load a checkpoint.
+     *
+     * @param file File to load.
+     * @return TournamentCheckpoint that was saved, or <code>null</code> if there is no file.
+     * @throws Exception if the file can not be read.
+     */
+    static TournamentCheckpoint load(File file) throws Exception
+    {
+        if (file.exists() == false)
+        {
+            return null;
+        }
+
+        ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file));
+        try
+        {
+            return (TournamentCheckpoint) ois.readObject();
+        }
+        finally
+        {
+            ois.close();
+        }
+    }
+
+
+    /**
+     * Serialize an object to a temporary file next to the target and move it
+     * over the target, so that readers see the old file or the new one but
+     * never part of one.
+     *
+     * @param file   File to write.
+     * @param object Object to serialize.
+     * @param sync   boolean <code>true</code> to force the file to disk before it is moved,
+     *               so that it survives the machine going down as well as the JVM.
+     * @throws IOException if the object can not be written.  The target is left alone.
+     */
+    static void writeAtomically(File file, Object object, boolean sync) throws IOException
+    {
+        File dir = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName(), ".tmp", dir);
+
+        try
+        {
+            FileOutputStream fos = new FileOutputStream(temp);
+            try
+            {
+                ObjectOutputStream oos = new ObjectOutputStream(fos);
+                oos.writeObject(object);
+                oos.flush();
+                if (sync)
+                {
+                    fos.getFD().sync();
+                }
+            }
+            finally
+            {
+                fos.close();
+            }
+
+            try
+            {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            temp.delete();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+
+package com.shuttersky.liarsdice;
+
+import java.io.File;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * TournamentConfig holds the options of a {@link Tournament}: what the
+ * GameServer reads from the properties, for a tournament played inside
+ * another program.  Every option has the same default as the property.
+ */
+public class TournamentConfig
+{
+    /**
+     * if not set, the number of games played
+     */
+    public static final int DEFAULT_NUMGAMES = 1;
+
+    /**
+     * if not set, the number of seconds each player has to respond
+     */
+    public static final int DEFAULT_TIMEOUT_SECONDS = 1;
+
+    private int _numGames = DEFAULT_NUMGAMES;
+    private int _timeoutSeconds = DEFAULT_TIMEOUT_SECONDS;
+    private long _cpuTimeoutMillis = 0;
+    private long _seed = new Random().nextLong();
+    private File _gameLogDirectory = null;
+    private Logger _logger = null;
+    private GameClock _clock = GameClock.SYSTEM;
+
+
+    public int getNumGames()
+    {
+        return _numGames;
+    }
+
+
+    /**
+     * @param numGames int representing the number of games to play.
+     * @throws IllegalArgumentException if the number is negative.
+     */
+    public void setNumGames(int numGames)
+    {
+        if (numGames < 0)
+        {
+            throw new IllegalArgumentException("the number of games may not be negative: " + numGames);
+        }
+        _numGames = numGames;
+    }
+
+
+    public int getTimeoutSeconds()
+    {
+        return _timeoutSeconds;
+    }
+
+
+    /**
+     * @param timeoutSeconds int representing the number of seconds each player has to respond, 0 for no limit.
+     * @throws IllegalArgumentException if the number is negative.
+     */
+    public void setTimeoutSeconds(int timeoutSeconds)
+    {
+        if (timeoutSeconds < 0)
+        {
+            throw new IllegalArgumentException("the timeout may not be negative: " + timeoutSeconds);
+        }
+        _timeoutSeconds = timeoutSeconds;
+    }
+
+
+    public long getCpuTimeoutMillis()
+    {
+        return _cpuTimeoutMillis;
+    }
+
+
+    /**
+     * @param cpuTimeoutMillis long representing the milliseconds of CPU time each call to a player
+     *                         may use, as well as the timeout, 0 for no limit, the default.
+     *                         Only the thread that calls the player is counted, not threads
+     *                         the player hands work to.
+     * @throws IllegalArgumentException if the number is negative.
+     */
+    public void setCpuTimeoutMillis(long cpuTimeoutMillis)
+    {
+        if (cpuTimeoutMillis < 0)
+        {
+            throw new IllegalArgumentException("the CPU timeout may not be negative: " + cpuTimeoutMillis);
+        }
+        _cpuTimeoutMillis = cpuTimeoutMillis;
+    }
+
+
+    public long getSeed()
+    {
+        return _seed;
+    }
+
+
+    /**
+     * @param lSeed long representing the seed the dice of every game are derived from.
+     *              A GameServer given the same seed rolls the same dice.
+     */
+    public void setSeed(long lSeed)
+    {
+        _seed = lSeed;
+    }
+
+
+    public File getGameLogDirectory()
+    {
+        return _gameLogDirectory;
+    }
+
+
+    /**
+     * @param gameLogDirectory File representing a directory to save every game to, as the
+     *                         GameServer does, for the GameViewer and the GameReplayer.
+     *                         <code>null</code>, the default, saves nothing.
+     */
+    public void setGameLogDirectory(File gameLogDirectory)
+    {
+        _gameLogDirectory = gameLogDirectory;
+    }
+
+
+    /**
+     * @return Logger the tournament reports to.  If none was set, each tournament
+     * has a logger of its own that logs warnings to the console.
+     */
+    public Logger getLogger()
+    {
+        if (_logger == null)
+        {
+            Logger logger = Logger.getAnonymousLogger();
+            logger.setLevel(Level.WARNING);
+            return logger;
+        }
+
+        return _logger;
+    }
+
+
+    /**
+     * @param logger Logger the tournament reports to.
+     */
+    public void setLogger(Logger logger)
+    {
+        _logger = logger;
+    }
+
+
+    public GameClock getClock()
+    {
+        return _clock;
+    }
+
+
+    /**
+     * @param clock GameClock that timeouts are measured on.  A {@link SimulatedClock}
+     *              lets a test of slow players run without waiting for them.
+     *              The default is {@link GameClock#SYSTEM}.
+     */
+    public void setClock(GameClock clock)
+    {
+        _clock = clock;
+    }
+}
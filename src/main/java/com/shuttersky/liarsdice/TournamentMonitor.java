@@ -0,0 +1,440 @@
+
+package com.shuttersky.liarsdice;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * TournamentMonitor keeps the statistics of a running tournament and carries the
+ * operator's requests (timeout changes, pause, stop) back to the GameServer.
+ * The GameServer updates it from its own thread while JMX clients read it
+ * from theirs, so every method is thread-safe.
+ * <p>
+ * Note: this is package level
+ */
+class TournamentMonitor implements TournamentMonitorMXBean
+{
+    /**
+     * the name that the monitor is registered under in the platform MBean server
+     */
+    public static final String OBJECT_NAME = "com.shuttersky.liarsdice:type=TournamentMonitor";
+
+    /**
+     * bounds checking constant for the smallest allowable timeout
+     */
+    private static final int MIN_TIMEOUT_SECONDS = 0;
+
+    /**
+     * member variables holding the progress of the tournament
+     */
+    private volatile int _currentGameNumber = 0;
+    private volatile int _numGames = 0;
+    private volatile int _gamesCompleted = 0;
+    private volatile long _startNanos = System.nanoTime();
+    private long _timeoutCount = 0;
+    private final TreeMap<String, Integer> _wins = new TreeMap<String, Integer>();
+    private final TreeMap<String, Integer> _eliminations = new TreeMap<String, Integer>();
+    private final TreeMap<String, Integer> _timeouts = new TreeMap<String, Integer>();
+
+    /**
+     * for each player, the number of bids and the nanoseconds they took, and the threads it said it uses
+     */
+    private final TreeMap<String, long[]> _bidNanos = new TreeMap<String, long[]>();
+    private final TreeMap<String, Integer> _bidThreads = new TreeMap<String, Integer>();
+    private final ArrayList<Thread> _leakedThreads = new ArrayList<Thread>();
+
+    /**
+     * for each player, the number of calls measured and the CPU nanoseconds and bytes they used
+     */
+    private final TreeMap<String, long[]> _callCosts = new TreeMap<String, long[]>();
+
+    /**
+     * member variables holding the operator's requests
+     */
+    private volatile int _timeoutSeconds = 0;
+    private volatile long _cpuTimeoutMillis = 0;
+    private boolean _paused = false;
+    private volatile boolean _stopRequested = false;
+
+    /**
+     * constructor
+     *
+     * @param timeoutSeconds int representing the initial number of seconds each player has to respond.
+     */
+    TournamentMonitor(int timeoutSeconds)
+    {
+        _timeoutSeconds = timeoutSeconds;
+    }
+
+    /**
+     * Register this monitor with the platform MBean server.  Failure to register
+     * is logged but does not stop the tournament.
+     */
+    void register()
+    {
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+
+            // a previous tournament in the same JVM may still be registered
+            if (server.isRegistered(name))
+            {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        }
+        catch (Exception e)
+        {
+            GameServer.logger.warning("unable to register the tournament monitor: " + e);
+        }
+    }
+
+    public int getCurrentGameNumber()
+    {
+        return _currentGameNumber;
+    }
+
+    public int getNumGames()
+    {
+        return _numGames;
+    }
+
+    public int getGamesCompleted()
+    {
+        return _gamesCompleted;
+    }
+
+    public double getGamesPerSecond()
+    {
+        double dSeconds = (System.nanoTime() - _startNanos) / 1.0e9;
+
+        if (dSeconds <= 0)
+        {
+            return 0;
+        }
+
+        return _gamesCompleted / dSeconds;
+    }
+
+    public synchronized Map<String, Integer> getWins()
+    {
+        return new TreeMap<String, Integer>(_wins);
+    }
+
+    public synchronized Map<String, Integer> getEliminations()
+    {
+        return new TreeMap<String, Integer>(_eliminations);
+    }
+
+    public synchronized Map<String, Integer> getTimeouts()
+    {
+        return new TreeMap<String, Integer>(_timeouts);
+    }
+
+    public synchronized long getTimeoutCount()
+    {
+        return _timeoutCount;
+    }
+
+    public int getActivePlayerThreads()
+    {
+        return TimeoutSafePlayer.PLAYER_THREADS.activeCount();
+    }
+
+    public synchronized Map<String, Long> getMeanBidMicros()
+    {
+        TreeMap<String, Long> means = new TreeMap<String, Long>();
+        for (Map.Entry<String, long[]> entry : _bidNanos.entrySet())
+        {
+            means.put(entry.getKey(), Long.valueOf(entry.getValue()[1] / entry.getValue()[0] / 1000));
+        }
+        return means;
+    }
+
+    public synchronized Map<String, Integer> getBidThreads()
+    {
+        return new TreeMap<String, Integer>(_bidThreads);
+    }
+
+    /**
+     * @param playerClassName String representing the simple class name of a player.
+     * @return double the average number of nanoseconds the player takes to bid, or 0 if it has not bid yet.
+     */
+    synchronized double getMeanBidNanos(String playerClassName)
+    {
+        long[] nanos = _bidNanos.get(playerClassName);
+        return (nanos == null) ? 0 : (double) nanos[1] / nanos[0];
+    }
+
+    /**
+     * @param playerClassName String representing the simple class name of a player.
+     * @return int the number of threads the player keeps busy while it bids, 1 if it has not said.
+     */
+    synchronized int getBidThreads(String playerClassName)
+    {
+        Integer threads = _bidThreads.get(playerClassName);
+        return (threads == null) ? 1 : threads.intValue();
+    }
+
+    public synchronized Map<String, Long> getMeanCallCpuMicros()
+    {
+        TreeMap<String, Long> means = new TreeMap<String, Long>();
+        for (Map.Entry<String, long[]> entry : _callCosts.entrySet())
+        {
+            means.put(entry.getKey(), Long.valueOf(entry.getValue()[1] / entry.getValue()[0] / 1000));
+        }
+        return means;
+    }
+
+    public synchronized Map<String, Long> getMeanCallAllocatedBytes()
+    {
+        TreeMap<String, Long> means = new TreeMap<String, Long>();
+        for (Map.Entry<String, long[]> entry : _callCosts.entrySet())
+        {
+            means.put(entry.getKey(), Long.valueOf(entry.getValue()[2] / entry.getValue()[0]));
+        }
+        return means;
+    }
+
+    public synchronized int getLeakedPlayerThreads()
+    {
+        // forget the threads that have finished since they timed out
+        Iterator<Thread> iter = _leakedThreads.iterator();
+        while (iter.hasNext())
+        {
+            if (iter.next().isAlive() == false)
+            {
+                iter.remove();
+            }
+        }
+
+        return _leakedThreads.size();
+    }
+
+    public int getTimeoutSeconds()
+    {
+        return _timeoutSeconds;
+    }
+
+    public void setTimeoutSeconds(int timeoutSeconds)
+    {
+        if (timeoutSeconds < MIN_TIMEOUT_SECONDS)
+        {
+            throw new IllegalArgumentException("timeoutSeconds less than minimum bounds: " + timeoutSeconds);
+        }
+
+        GameServer.logger.info("timeout changed to " + timeoutSeconds + " seconds");
+        _timeoutSeconds = timeoutSeconds;
+    }
+
+    public long getCpuTimeoutMillis()
+    {
+        return _cpuTimeoutMillis;
+    }
+
+    public void setCpuTimeoutMillis(long cpuTimeoutMillis)
+    {
+        if (cpuTimeoutMillis < 0)
+        {
+            throw new IllegalArgumentException("cpuTimeoutMillis less than minimum bounds: " + cpuTimeoutMillis);
+        }
+
+        GameServer.logger.info("CPU timeout changed to " + cpuTimeoutMillis + " milliseconds");
+        _cpuTimeoutMillis = cpuTimeoutMillis;
+    }
+
+    public synchronized boolean isPaused()
+    {
+        return _paused;
+    }
+
+    public synchronized void pause()
+    {
+        GameServer.logger.info("tournament will pause after the current game");
+        _paused = true;
+    }
+
+    public synchronized void resume()
+    {
+        GameServer.logger.info("tournament resumed");
+        _paused = false;
+        notifyAll();
+    }
+
+    public boolean isStopRequested()
+    {
+        return _stopRequested;
+    }
+
+    public synchronized void stopAfterCurrentGame()
+    {
+        GameServer.logger.info("tournament will stop after the current game");
+        _stopRequested = true;
+
+        // a paused tournament has to wake up to notice the stop
+        notifyAll();
+    }
+
+    /**
+     * Called by the GameServer when the tournament starts.
+     *
+     * @param numGames int representing the number of games that will be played.
+     */
+    void tournamentStarted(int numGames)
+    {
+        _numGames = numGames;
+        _gamesCompleted = 0;
+        _startNanos = System.nanoTime();
+    }
+
+    /**
+     * Called by the GameServer when a tournament resumes from a checkpoint, to carry on with its standings.
+     *
+     * @param checkpoint TournamentCheckpoint holding the standings.
+     */
+    synchronized void restoreStandings(TournamentCheckpoint checkpoint)
+    {
+        _wins.clear();
+        _wins.putAll(checkpoint.getWins());
+        _eliminations.clear();
+        _eliminations.putAll(checkpoint.getEliminations());
+        _timeouts.clear();
+        _timeouts.putAll(checkpoint.getTimeouts());
+        _timeoutCount = checkpoint.getTimeoutCount();
+    }
+
+    /**
+     * Called by the GameServer before each game.  Blocks while the tournament is paused.
+     *
+     * @param gameNumber int representing the zero based number of the game about to be played.
+     * @return <code>true</code> if the game should be played.
+     * <code>false</code> if a stop was requested.
+     */
+    synchronized boolean awaitNextGame(int gameNumber)
+    {
+        while (_paused && _stopRequested == false)
+        {
+            try
+            {
+                wait();
+            }
+            catch (InterruptedException e)
+            {
+                GameServer.logger.warning("interrupted while paused");
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        _currentGameNumber = gameNumber;
+
+        return _stopRequested == false;
+    }
+
+    /**
+     * Called by the GameServer when a game has been played and saved.
+     *
+     * @param winnerClassName String representing the simple class name of the winner.
+     */
+    synchronized void gameCompleted(String winnerClassName)
+    {
+        increment(_wins, winnerClassName);
+        _gamesCompleted++;
+    }
+
+    /**
+     * Called by the GameServer when a player has bid.
+     *
+     * @param playerClassName String representing the simple class name of the player.
+     * @param lNanos          long representing the nanoseconds the bid took.
+     * @param iThreads        int representing the number of threads the player kept busy.
+     */
+    synchronized void bidCompleted(String playerClassName, long lNanos, int iThreads)
+    {
+        long[] nanos = _bidNanos.get(playerClassName);
+        if (nanos == null)
+        {
+            nanos = new long[2];
+            _bidNanos.put(playerClassName, nanos);
+        }
+        nanos[0]++;
+        nanos[1] += lNanos;
+        _bidThreads.put(playerClassName, Integer.valueOf(Math.max(1, iThreads)));
+    }
+
+    /**
+     * Called by the GameServer when a call to a player has returned or timed out.
+     *
+     * @param playerClassName String representing the simple class name of the player.
+     * @param lCpuNanos       long representing the nanoseconds of CPU time the call used, -1 if not measured.
+     * @param lBytes          long representing the bytes the call allocated, -1 if not measured.
+     */
+    synchronized void callCompleted(String playerClassName, long lCpuNanos, long lBytes)
+    {
+        if (lCpuNanos < 0 && lBytes < 0)
+        {
+            return;
+        }
+
+        long[] costs = _callCosts.get(playerClassName);
+        if (costs == null)
+        {
+            costs = new long[3];
+            _callCosts.put(playerClassName, costs);
+        }
+        costs[0]++;
+        costs[1] += Math.max(0, lCpuNanos);
+        costs[2] += Math.max(0, lBytes);
+    }
+
+    /**
+     * Called by the GameServer when a player loses their last die.
+     *
+     * @param playerClassName String representing the simple class name of the eliminated player.
+     */
+    synchronized void playerEliminated(String playerClassName)
+    {
+        increment(_eliminations, playerClassName);
+    }
+
+    /**
+     * Called by the GameServer when a player does not return from a call in time.
+     *
+     * @param playerClassName String representing the simple class name of the slow player.
+     * @param thread          Thread that was running the call.  It is tracked until it finishes.
+     */
+    synchronized void playerTimedOut(String playerClassName, Thread thread)
+    {
+        increment(_timeouts, playerClassName);
+        _timeoutCount++;
+
+        if (thread != null && thread.isAlive())
+        {
+            _leakedThreads.add(thread);
+        }
+    }
+
+    /**
+     * Log what calls to each player cost on average, to find the players that use the most.
+     */
+    void logCallCosts()
+    {
+        GameServer.logger.info("mean CPU microseconds per call: " + getMeanCallCpuMicros());
+        GameServer.logger.info("mean bytes allocated per call: " + getMeanCallAllocatedBytes());
+    }
+
+    /**
+     * add one to the count kept for a player
+     */
+    private static void increment(Map<String, Integer> counts, String playerClassName)
+    {
+        Integer count = counts.get(playerClassName);
+        counts.put(playerClassName, Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+    }
+}
@@ -0,0 +1,132 @@
+
+package com.shuttersky.liarsdice;
+
+import java.util.Map;
+
+/**
+ * Management interface for a running tournament.  The GameServer registers a
+ * TournamentMonitor under {@link TournamentMonitor#OBJECT_NAME} so that long
+ * <code>numgames</code> runs can be watched and tuned with jconsole or any
+ * other JMX client.
+ */
+public interface TournamentMonitorMXBean
+{
+    /**
+     * @return int the zero based number of the game currently being played.
+     */
+    public int getCurrentGameNumber();
+
+    /**
+     * @return int the number of games the tournament was configured to play.
+     */
+    public int getNumGames();
+
+    /**
+     * @return int the number of games that have been completed.
+     */
+    public int getGamesCompleted();
+
+    /**
+     * @return double the average number of completed games per second since the tournament started.
+     */
+    public double getGamesPerSecond();
+
+    /**
+     * @return Map from player simple class name to the number of games won.
+     */
+    public Map<String, Integer> getWins();
+
+    /**
+     * @return Map from player simple class name to the number of times the player was eliminated.
+     */
+    public Map<String, Integer> getEliminations();
+
+    /**
+     * @return Map from player simple class name to the number of calls that did not return in time.
+     */
+    public Map<String, Integer> getTimeouts();
+
+    /**
+     * @return long the total number of player calls that did not return in time.
+     */
+    public long getTimeoutCount();
+
+    /**
+     * @return int an estimate of the number of player threads that are currently running.
+     */
+    public int getActivePlayerThreads();
+
+    /**
+     * @return Map from player simple class name to the average number of microseconds the player takes to bid.
+     */
+    public Map<String, Long> getMeanBidMicros();
+
+    /**
+     * @return Map from player simple class name to the number of threads the player keeps busy while it bids.
+     */
+    public Map<String, Integer> getBidThreads();
+
+    /**
+     * @return Map from player simple class name to the average microseconds of CPU time a call to the player uses.
+     */
+    public Map<String, Long> getMeanCallCpuMicros();
+
+    /**
+     * @return Map from player simple class name to the average number of bytes a call to the player allocates.
+     */
+    public Map<String, Long> getMeanCallAllocatedBytes();
+
+    /**
+     * @return int the number of player threads that timed out and are still running.
+     */
+    public int getLeakedPlayerThreads();
+
+    /**
+     * @return int the number of seconds each player has to respond to a call.
+     */
+    public int getTimeoutSeconds();
+
+    /**
+     * Change the number of seconds each player has to respond.  This takes effect on the next call.
+     *
+     * @param timeoutSeconds int representing the number of seconds, must not be negative.
+     */
+    public void setTimeoutSeconds(int timeoutSeconds);
+
+    /**
+     * @return long the milliseconds of CPU time each call to a player may use, 0 for no limit.
+     */
+    public long getCpuTimeoutMillis();
+
+    /**
+     * Change the milliseconds of CPU time each call to a player may use.  This takes effect on the next call.
+     *
+     * @param cpuTimeoutMillis long representing the number of milliseconds, 0 for no limit, must not be negative.
+     */
+    public void setCpuTimeoutMillis(long cpuTimeoutMillis);
+
+    /**
+     * @return <code>true</code> if the tournament will wait before starting the next game.
+     */
+    public boolean isPaused();
+
+    /**
+     * Wait before starting the next game.  The current game is played to completion.
+     */
+    public void pause();
+
+    /**
+     * Continue a paused tournament.
+     */
+    public void resume();
+
+    /**
+     * @return <code>true</code> if the tournament will stop once the current game finishes.
+     */
+    public boolean isStopRequested();
+
+    /**
+     * Stop the tournament cleanly once the current game finishes.
+     */
+    public void stopAfterCurrentGame();
+}
@@ -0,0 +1,148 @@
+
+package com.shuttersky.liarsdice;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * TournamentResult is what a {@link Tournament} played: the winner of each
+ * game, and the standings of the players by their simple class names.
+ */
+public class TournamentResult
+{
+    private final long _seed;
+    private final ArrayList<String> _winners = new ArrayList<String>();
+    private final TreeMap<String, Integer> _wins = new TreeMap<String, Integer>();
+    private final TreeMap<String, Integer> _eliminations = new TreeMap<String, Integer>();
+    private final TreeMap<String, Integer> _timeouts = new TreeMap<String, Integer>();
+    private final TreeMap<String, Long> _cpuNanos = new TreeMap<String, Long>();
+    private final TreeMap<String, Long> _allocatedBytes = new TreeMap<String, Long>();
+
+
+    /**
+     * constructor.  Every player starts with no wins, eliminations or timeouts, and no cost.
+     *
+     * @param lSeed                  long representing the seed the dice of every game were derived from.
+     * @param playerSimpleClassNames List&lt;String&gt; of the players.
+     */
+    TournamentResult(long lSeed, List<String> playerSimpleClassNames)
+    {
+        _seed = lSeed;
+
+        for (String sName : playerSimpleClassNames)
+        {
+            _wins.put(sName, Integer.valueOf(0));
+            _eliminations.put(sName, Integer.valueOf(0));
+            _timeouts.put(sName, Integer.valueOf(0));
+            _cpuNanos.put(sName, Long.valueOf(0));
+            _allocatedBytes.put(sName, Long.valueOf(0));
+        }
+    }
+
+
+    /**
+     * @return int the number of games played.
+     */
+    public int getNumGames()
+    {
+        return _winners.size();
+    }
+
+
+    public long getSeed()
+    {
+        return _seed;
+    }
+
+
+    /**
+     * @return List&lt;String&gt; of the simple class name of the winner of each game.
+     */
+    public List<String> getWinners()
+    {
+        return Collections.unmodifiableList(_winners);
+    }
+
+
+    /**
+     * @return Map from player simple class name to the number of games won.
+     */
+    public Map<String, Integer> getWins()
+    {
+        return Collections.unmodifiableMap(_wins);
+    }
+
+
+    /**
+     * @return Map from player simple class name to the number of times the player was eliminated.
+     */
+    public Map<String, Integer> getEliminations()
+    {
+        return Collections.unmodifiableMap(_eliminations);
+    }
+
+
+    /**
+     * @return Map from player simple class name to the number of calls that did not return in time.
+     */
+    public Map<String, Integer> getTimeouts()
+    {
+        return Collections.unmodifiableMap(_timeouts);
+    }
+
+
+    /**
+     * @return Map from player simple class name to the nanoseconds of CPU time the calls to the player used.
+     * The CPU time of players that run in a JVM of their own is not counted.
+     */
+    public Map<String, Long> getCpuNanos()
+    {
+        return Collections.unmodifiableMap(_cpuNanos);
+    }
+
+
+    /**
+     * @return Map from player simple class name to the number of bytes the calls to the player allocated.
+     * Where the JVM does not measure allocation, every player has 0.
+     */
+    public Map<String, Long> getAllocatedBytes()
+    {
+        return Collections.unmodifiableMap(_allocatedBytes);
+    }
+
+
+    void gameCompleted(String sWinnerClassName)
+    {
+        _winners.add(sWinnerClassName);
+        increment(_wins, sWinnerClassName);
+    }
+
+
+    void playerEliminated(String sPlayerClassName)
+    {
+        increment(_eliminations, sPlayerClassName);
+    }
+
+
+    void playerTimedOut(String sPlayerClassName)
+    {
+        increment(_timeouts, sPlayerClassName);
+    }
+
+
+    void callCompleted(String sPlayerClassName, long lCpuNanos, long lBytes)
+    {
+        _cpuNanos.put(sPlayerClassName, Long.valueOf(_cpuNanos.get(sPlayerClassName).longValue() + Math.max(0, lCpuNanos)));
+        _allocatedBytes.put(sPlayerClassName, Long.valueOf(_allocatedBytes.get(sPlayerClassName).longValue() + Math.max(0, lBytes)));
+    }
+
+
+    private static void increment(Map<String, Integer> counts, String sPlayerClassName)
+    {
+        Integer count = counts.get(sPlayerClassName);
+        counts.put(sPlayerClassName, Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+    }
+}
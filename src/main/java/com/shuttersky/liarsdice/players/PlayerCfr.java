@@ -0,0 +1,139 @@
+package com.shuttersky.liarsdice.players;
+
+import com.shuttersky.liarsdice.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * PlayerCfr plays the strategy computed offline by the {@link CfrTrainer}.
+ * <p>
+ * The table is read from the file named by the <code>strategytable</code>
+ * property (<code>strategy.cfr</code> by default).  It is mapped once and shared
+ * by every instance, so a bid is a table lookup.  The player keeps nothing
+ * else, so one instance is shared by every table.  When the round is outside
+ * what the table was trained for (too many players or dice), or the table
+ * can not be loaded, the player bids by probability instead.
+ */
+public class PlayerCfr implements Player, SharedPlayer
+{
+    /**
+     * the property naming the strategy table file
+     */
+    public static final String PROPERTY_STRATEGY_TABLE = "strategytable";
+
+    /**
+     * bid by probability: call when the highest bid is less likely than this to be true
+     */
+    private static final double CALL_THRESHOLD = 0.5;
+
+    /**
+     * the table shared by all instances, loaded on first use
+     */
+    private static StrategyTable _table = null;
+    private static boolean _tableLoaded = false;
+
+
+    public PlayerCfr()
+    {
+        getTable();
+    }
+
+
+    public Bid getBid(RoundState rs, Cup cup)
+    {
+        GameServer.logger.entering("PlayerCfr", "getBid");
+
+        StrategyTable table = getTable();
+        if (table != null)
+        {
+            Bid bid = table.getBid(rs, cup, ThreadLocalRandom.current().nextDouble());
+            if (bid != null)
+            {
+                return bid;
+            }
+        }
+
+        GameServer.logger.finest("PlayerCfr is outside its table, bidding by probability");
+
+        return getBidByProbability(rs, cup);
+    }
+
+    public void tellBid(RoundState rs)
+    {
+        // the strategy is fixed, there is nothing to learn
+    }
+
+    public void tellOutcome(RoundState rs, String sWinnerClassName, String sLoserClassName)
+    {
+        // the strategy is fixed, there is nothing to learn
+    }
+
+
+    /**
+     * load the table once for every instance
+     */
+    private static synchronized StrategyTable getTable()
+    {
+        if (_tableLoaded == false)
+        {
+            _tableLoaded = true;
+
+            String sFileName = System.getProperty(PROPERTY_STRATEGY_TABLE, CfrTrainer.DEFAULT_OUTPUT);
+            try
+            {
+                _table = StrategyTable.load(sFileName);
+            }
+            catch (Exception e)
+            {
+                GameServer.logger.warning("PlayerCfr can not load " + sFileName + ": " + e.getMessage());
+            }
+        }
+
+        return _table;
+    }
+
+
+    /**
+     * call if the highest bid is probably false, otherwise make the most likely higher bid
+     */
+    private static Bid getBidByProbability(RoundState rs, Cup cup)
+    {
+        Bid bidHighest = rs.getHighestBid();
+        int iNumDiceTotal = rs.getNumDiceTotal();
+        int iQuantity = 1;
+        int iDots = 0;
+
+        if (bidHighest != null)
+        {
+            if (BidProbability.getProbability(bidHighest, cup, rs) < CALL_THRESHOLD)
+            {
+                return new Bid();
+            }
+            iQuantity = bidHighest.getNumDice();
+            iDots = bidHighest.getDots();
+        }
+
+        Bid bidBest = null;
+        double dBest = -1;
+        for (int d = 1; d <= cup.getNumSides(); d++)
+        {
+            // the cheapest bid on this face that beats the highest bid
+            int q = (d > iDots) ? iQuantity : iQuantity + 1;
+            double dProb = BidProbability.getProbability(cup, iNumDiceTotal, q, d);
+            if (dProb > dBest)
+            {
+                try
+                {
+                    bidBest = new Bid(q, d);
+                    dBest = dProb;
+                }
+                catch (Exception e)
+                {
+                    // quantity and dots are always in range
+                }
+            }
+        }
+
+        return bidBest;
+    }
+}
@@ -0,0 +1,478 @@
+package com.shuttersky.liarsdice.players;
+
+import com.shuttersky.liarsdice.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * PlayerMonteCarlo is a reference bot that searches instead of following a rule.
+ * <p>
+ * For each bid it could make, it deals the dice it cannot see at random
+ * (consistent with the number of dice each player holds), lets every player
+ * continue the round with a fast probability based rollout policy, and counts
+ * how often it avoids losing the showdown.  Worlds are dealt in parallel batches
+ * on a ForkJoinPool, and the same worlds are used for every candidate bid so
+ * that the comparison between them is not swamped by noise.
+ * <p>
+ * The search is anytime: batches are run until the time budget is used up, and
+ * the best bid found so far is returned.  The budget is a fraction of
+ * {@link RoundState#getBidTimeRemainingMillis()}, so the bot answers before the
+ * TimeoutSafePlayer gives up on it.  When the bid has a CPU time limit, which
+ * counts only the calling thread, the worlds are dealt on the calling thread
+ * within a fraction of that limit instead of on the pool.
+ */
+public class PlayerMonteCarlo implements Player
+{
+    /**
+     * if not overridden, the most time in milliseconds to spend on one bid
+     */
+    public static final long DEFAULT_MAX_BUDGET_MILLIS = 250;
+
+    /**
+     * the share of the time remaining before the deadline that the search may use
+     */
+    private static final double BUDGET_FRACTION = 0.5;
+
+    /**
+     * the number of worlds a leaf task deals before it reports back
+     */
+    private static final int WORLDS_PER_TASK = 32;
+
+    /**
+     * candidate bids go up to this many above the highest bid's quantity
+     */
+    private static final int MAX_RAISE = 2;
+
+    /**
+     * a rollout player calls b.s. when the bid is less likely than this to be true
+     */
+    private static final double CALL_THRESHOLD = 0.5;
+
+    /**
+     * rollouts that have not reached a showdown after this many bids end with a call
+     */
+    private static final int MAX_ROLLOUT_BIDS = 32;
+
+    /**
+     * bids are encoded as quantity * BID_BASE + dots, and b.s. as 0
+     */
+    private static final int BID_BASE = 8;
+    private static final int BID_BS = 0;
+
+    /**
+     * one pool shared by every instance, sized to the machine
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private long _maxBudgetMillis;
+    private SplittableRandom _random = new SplittableRandom();
+
+
+    public PlayerMonteCarlo()
+    {
+        this(DEFAULT_MAX_BUDGET_MILLIS);
+    }
+
+
+    /**
+     * constructor.
+     *
+     * @param maxBudgetMillis long representing the most time in milliseconds to spend on one bid.
+     */
+    public PlayerMonteCarlo(long maxBudgetMillis)
+    {
+        _maxBudgetMillis = maxBudgetMillis;
+    }
+
+
+    public Bid getBid(RoundState rs, Cup cup)
+    {
+        GameServer.logger.entering("PlayerMonteCarlo", "getBid");
+
+        long lStart = System.nanoTime();
+        long lBudgetNanos = (long) (Math.min(_maxBudgetMillis, rs.getBidTimeRemainingMillis() * BUDGET_FRACTION) * 1000000L);
+        Situation sit = new Situation(rs, cup);
+        long[] wins = new long[sit.candidates.length];
+        long lWorlds = 0;
+        int iTasks = POOL.getParallelism() * 4;
+
+        // a CPU time limit only counts this thread, so work on this thread within it
+        boolean bOnThisThread = rs.getBidCpuLimitMillis() != Long.MAX_VALUE;
+        if (bOnThisThread)
+        {
+            lBudgetNanos = Math.min(lBudgetNanos, (long) (rs.getBidCpuLimitMillis() * BUDGET_FRACTION * 1000000L));
+            iTasks = 1;
+        }
+
+        // run batches while another one of the same size still fits in the budget
+        long lElapsed = 0;
+        long lBatch = 0;
+        while (lElapsed + lBatch < lBudgetNanos)
+        {
+            long lBatchStart = System.nanoTime();
+            RolloutTask task = new RolloutTask(sit, _random.split(), iTasks);
+            long[] batch = bOnThisThread ? task.compute() : POOL.invoke(task);
+
+            for (int i = 0; i < wins.length; i++)
+            {
+                wins[i] += batch[i];
+            }
+            lWorlds += (long) iTasks * WORLDS_PER_TASK;
+
+            lBatch = System.nanoTime() - lBatchStart;
+            lElapsed = System.nanoTime() - lStart;
+        }
+
+        int iBest = sit.bestByProbability();
+        if (lWorlds > 0)
+        {
+            for (int i = 0; i < wins.length; i++)
+            {
+                if (wins[i] > wins[iBest])
+                {
+                    iBest = i;
+                }
+            }
+        }
+
+        GameServer.logger.finest("monte carlo dealt " + lWorlds + " worlds for " + wins.length + " candidates");
+
+        return sit.toBid(sit.candidates[iBest]);
+    }
+
+    public void tellBid(RoundState rs)
+    {
+        // nothing is remembered between bids, every decision is searched from scratch
+    }
+
+    public void tellOutcome(RoundState rs, String sWinnerClassName, String sLoserClassName)
+    {
+        // nothing is remembered between rounds
+    }
+
+
+    /**
+     * The public facts of the round from the point of view of the bidder.
+     * Read-only once built, so the rollout tasks share one instance.
+     */
+    private static class Situation
+    {
+        int numPlayers;
+        int seat;
+        int sides;
+        int numDiceTotal;
+        int[] numDice;
+        int[] ownCounts;
+        int highest;
+        int[] candidates;
+
+        Situation(RoundState rs, Cup cup)
+        {
+            numPlayers = rs.getNumPlayers();
+            seat = rs.getNumBids() % numPlayers;
+            sides = cup.getNumSides();
+            numDiceTotal = rs.getNumDiceTotal();
+
+            numDice = new int[numPlayers];
+            for (int i = 0; i < numPlayers; i++)
+            {
+                numDice[i] = rs.getNumDice(i);
+            }
+
+            ownCounts = new int[sides + 1];
+            for (int iDots = 1; iDots <= sides; iDots++)
+            {
+                ownCounts[iDots] = cup.getNumDice(iDots);
+            }
+
+            Bid bidHighest = rs.getHighestBid();
+            highest = (bidHighest == null || bidHighest.isBS()) ? BID_BS : encode(bidHighest.getNumDice(), bidHighest.getDots());
+
+            candidates = makeCandidates();
+        }
+
+        /**
+         * b.s. (unless this is the first bid) and every bid up to MAX_RAISE above the highest quantity
+         */
+        private int[] makeCandidates()
+        {
+            int iMaxQuantity = (highest == BID_BS) ? numDiceTotal / sides + 1 : highest / BID_BASE + MAX_RAISE;
+            iMaxQuantity = Math.max(1, Math.min(iMaxQuantity, numDiceTotal));
+
+            int iCount = (highest == BID_BS) ? 0 : 1;
+            for (int q = 1; q <= iMaxQuantity; q++)
+            {
+                for (int d = 1; d <= sides; d++)
+                {
+                    if (encode(q, d) > highest)
+                    {
+                        iCount++;
+                    }
+                }
+            }
+
+            int[] result = new int[iCount];
+            int i = 0;
+            if (highest != BID_BS)
+            {
+                result[i++] = BID_BS;
+            }
+            for (int q = 1; q <= iMaxQuantity; q++)
+            {
+                for (int d = 1; d <= sides; d++)
+                {
+                    if (encode(q, d) > highest)
+                    {
+                        result[i++] = encode(q, d);
+                    }
+                }
+            }
+
+            return result;
+        }
+
+        /**
+         * the candidate to fall back on when there is no time to search
+         */
+        int bestByProbability()
+        {
+            int iBest = 0;
+            double dBest = -1;
+
+            for (int i = 0; i < candidates.length; i++)
+            {
+                double d;
+                if (candidates[i] == BID_BS)
+                {
+                    d = 1 - probability(highest);
+                }
+                else
+                {
+                    d = probability(candidates[i]);
+                }
+
+                if (d > dBest)
+                {
+                    dBest = d;
+                    iBest = i;
+                }
+            }
+
+            return iBest;
+        }
+
+        private double probability(int code)
+        {
+            int q = code / BID_BASE;
+            int d = code % BID_BASE;
+            return BidProbability.getProbabilityAtLeast(numDiceTotal - numDice[seat], q - ownCounts[d], sides);
+        }
+
+        Bid toBid(int code)
+        {
+            if (code == BID_BS)
+            {
+                return new Bid();
+            }
+
+            try
+            {
+                return new Bid(code / BID_BASE, code % BID_BASE);
+            }
+            catch (Exception e)
+            {
+                // candidates are always in range
+                return new Bid();
+            }
+        }
+    }
+
+
+    private static int encode(int quantity, int dots)
+    {
+        return quantity * BID_BASE + dots;
+    }
+
+
+    /**
+     * Deals worlds and plays every candidate in each of them.  A task splits
+     * itself until each piece deals WORLDS_PER_TASK worlds.
+     */
+    private static class RolloutTask extends RecursiveTask<long[]>
+    {
+        private static final long serialVersionUID = 1;
+
+        private final Situation _sit;
+        private final SplittableRandom _random;
+        private final int _numTasks;
+
+        RolloutTask(Situation sit, SplittableRandom random, int numTasks)
+        {
+            _sit = sit;
+            _random = random;
+            _numTasks = numTasks;
+        }
+
+        protected long[] compute()
+        {
+            if (_numTasks > 1)
+            {
+                int iHalf = _numTasks / 2;
+                RolloutTask left = new RolloutTask(_sit, _random.split(), iHalf);
+                left.fork();
+                long[] right = new RolloutTask(_sit, _random, _numTasks - iHalf).compute();
+                long[] result = left.join();
+                for (int i = 0; i < result.length; i++)
+                {
+                    result[i] += right[i];
+                }
+                return result;
+            }
+
+            return deal();
+        }
+
+        /**
+         * deal the worlds for one leaf, all arrays are allocated once per leaf
+         */
+        private long[] deal()
+        {
+            Situation sit = _sit;
+            long[] wins = new long[sit.candidates.length];
+            int[][] counts = new int[sit.numPlayers][sit.sides + 1];
+            int[] totals = new int[sit.sides + 1];
+
+            for (int w = 0; w < WORLDS_PER_TASK; w++)
+            {
+                // deal every cup but our own
+                for (int d = 1; d <= sit.sides; d++)
+                {
+                    totals[d] = sit.ownCounts[d];
+                }
+                for (int s = 0; s < sit.numPlayers; s++)
+                {
+                    int[] seatCounts = counts[s];
+                    if (s == sit.seat)
+                    {
+                        System.arraycopy(sit.ownCounts, 0, seatCounts, 0, seatCounts.length);
+                        continue;
+                    }
+
+                    for (int d = 1; d <= sit.sides; d++)
+                    {
+                        seatCounts[d] = 0;
+                    }
+                    for (int i = 0; i < sit.numDice[s]; i++)
+                    {
+                        int d = _random.nextInt(sit.sides) + 1;
+                        seatCounts[d]++;
+                        totals[d]++;
+                    }
+                }
+
+                for (int c = 0; c < sit.candidates.length; c++)
+                {
+                    if (rollout(sit.candidates[c], counts, totals) != sit.seat)
+                    {
+                        wins[c]++;
+                    }
+                }
+            }
+
+            return wins;
+        }
+
+        /**
+         * play the rest of the round after the bidder makes <code>code</code>.
+         *
+         * @return int the seat of the player who loses the showdown.
+         */
+        private int rollout(int code, int[][] counts, int[] totals)
+        {
+            Situation sit = _sit;
+            int iBidder;
+            int iCaller;
+            int iBid;
+
+            if (code == BID_BS)
+            {
+                iBid = sit.highest;
+                iBidder = (sit.seat + sit.numPlayers - 1) % sit.numPlayers;
+                iCaller = sit.seat;
+            }
+            else
+            {
+                iBid = code;
+                iBidder = sit.seat;
+                iCaller = -1;
+
+                int iSeat = (sit.seat + 1) % sit.numPlayers;
+                for (int n = 0; n < MAX_ROLLOUT_BIDS && iCaller < 0; n++)
+                {
+                    int iRaise = respond(iSeat, iBid, counts[iSeat]);
+                    if (iRaise == BID_BS)
+                    {
+                        iCaller = iSeat;
+                    }
+                    else
+                    {
+                        iBid = iRaise;
+                        iBidder = iSeat;
+                        iSeat = (iSeat + 1) % sit.numPlayers;
+                    }
+                }
+
+                if (iCaller < 0)
+                {
+                    iCaller = iSeat;
+                }
+            }
+
+            // a true bid costs the caller a die, a false one costs the bidder
+            if (totals[iBid % BID_BASE] >= iBid / BID_BASE)
+            {
+                return iCaller;
+            }
+            return iBidder;
+        }
+
+        /**
+         * the rollout policy: call unless the bid looks true, otherwise make the
+         * next bid that looks most likely from this seat's own dice.
+         */
+        private int respond(int iSeat, int iBid, int[] seatCounts)
+        {
+            Situation sit = _sit;
+            int iUnknown = sit.numDiceTotal - sit.numDice[iSeat];
+            int q = iBid / BID_BASE;
+
+            if (BidProbability.getProbabilityAtLeast(iUnknown, q - seatCounts[iBid % BID_BASE], sit.sides) < CALL_THRESHOLD)
+            {
+                return BID_BS;
+            }
+
+            int iBest = BID_BS;
+            double dBest = CALL_THRESHOLD;
+            for (int d = 1; d <= sit.sides; d++)
+            {
+                // the cheapest bid on this face that beats the current one
+                int iRaise = encode(q, d) > iBid ? encode(q, d) : encode(q + 1, d);
+                if (iRaise / BID_BASE > sit.numDiceTotal)
+                {
+                    continue;
+                }
+
+                double dProb = BidProbability.getProbabilityAtLeast(iUnknown, iRaise / BID_BASE - seatCounts[d], sit.sides);
+                if (dProb > dBest)
+                {
+                    dBest = dProb;
+                    iBest = iRaise;
+                }
+            }
+
+            return iBest;
+        }
+    }
+}
@@ -11,14 +11,24 @@ public class PlayerSwing implements Player, ActionListener
     // UI elements
     private JTextArea _textRoundState = null;
     private JLabel _labelTotalDice = null;
-    private Bid _swingBid = null;
+    private volatile Bid _swingBid = null;
     private JComboBox _comboBids = null;
     private JButton _btnSubmitBid = null;
     private JLabel _labelCup = null;
 
+    // the clock that paces the display, so that tests can run without waiting
+    private final GameClock _clock;
+
     // constructor
     public PlayerSwing()
     {
+        this(GameClock.SYSTEM);
+    }
+
+    public PlayerSwing(GameClock clock)
+    {
+        _clock = clock;
+
         // set up GUI to have the native look and feel
         try
         {
@@ -154,8 +164,8 @@ public class PlayerSwing implements Player, ActionListener
         _comboBids.setEnabled(true);
         _btnSubmitBid.setEnabled(true);
 
-        // wait until the user selects a bid
-        while (_swingBid == null)
+        // wait until the user selects a bid, or until a bid would be too late to count
+        while (_swingBid == null && rs.getBidTimeRemainingMillis() > 0)
         {
             delay(1);
         }
@@ -207,7 +217,7 @@ public class PlayerSwing implements Player, ActionListener
     {
         try
         {
-            (Thread.currentThread()).sleep(iSeconds * 1000);
+            _clock.sleep(iSeconds * 1000000000L);
         }
         catch (Exception e)
         {
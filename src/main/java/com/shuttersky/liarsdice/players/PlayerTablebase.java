@@ -0,0 +1,85 @@
+package com.shuttersky.liarsdice.players;
+
+import com.shuttersky.liarsdice.*;
+
+/**
+ * PlayerTablebase is a PlayerMonteCarlo that looks up heads-up endgames in an
+ * {@link EndgameTablebase} instead of searching them.
+ * <p>
+ * The tablebase is read from the file named by the <code>tablebase</code>
+ * property (<code>endgame.tb</code> by default).  It is mapped once and shared
+ * by every instance.  Rounds with more than two players, or with more dice
+ * than the tablebase covers, are searched as usual.  The file is mapped in
+ * <code>warmup</code> when the GameServer warms the players up, otherwise on the
+ * first bid.
+ */
+public class PlayerTablebase extends PlayerMonteCarlo implements PlayerLifecycle
+{
+    /**
+     * the property naming the tablebase file
+     */
+    public static final String PROPERTY_TABLEBASE = "tablebase";
+
+    /**
+     * the tablebase shared by all instances, loaded on first use
+     */
+    private static EndgameTablebase _tablebase = null;
+    private static boolean _tablebaseLoaded = false;
+
+
+    public Bid getBid(RoundState rs, Cup cup)
+    {
+        EndgameTablebase tablebase = getTablebase();
+        if (tablebase != null)
+        {
+            Bid bid = tablebase.getBid(rs, cup);
+            if (bid != null)
+            {
+                GameServer.logger.finest("PlayerTablebase found " + bid + " in the tablebase");
+                return bid;
+            }
+        }
+
+        return super.getBid(rs, cup);
+    }
+
+
+    public void init()
+    {
+    }
+
+
+    public void warmup() throws Exception
+    {
+        getTablebase();
+    }
+
+
+    public void shutdown()
+    {
+    }
+
+
+    /**
+     * load the tablebase once for every instance
+     */
+    private static synchronized EndgameTablebase getTablebase()
+    {
+        if (_tablebaseLoaded == false)
+        {
+            _tablebaseLoaded = true;
+
+            String sFileName = System.getProperty(PROPERTY_TABLEBASE, EndgameTablebase.DEFAULT_FILE);
+            try
+            {
+                _tablebase = EndgameTablebase.load(sFileName);
+            }
+            catch (Exception e)
+            {
+                GameServer.logger.warning("PlayerTablebase can not load " + sFileName + ": " + e.getMessage());
+            }
+        }
+
+        return _tablebase;
+    }
+}
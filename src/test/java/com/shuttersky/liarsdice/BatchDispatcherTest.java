@@ -0,0 +1,105 @@
+
+package com.shuttersky.liarsdice;
+
+import com.shuttersky.liarsdice.players.PlayerTruthful;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchDispatcherTest
+{
+    private static final long JOIN_MILLIS = 5000;
+
+
+    /**
+     * a batch player that runs out of stack
+     */
+    static class OverflowingPlayer extends PlayerTruthful implements BatchPlayer
+    {
+        public Bid[] getBids(RoundState[] rs, Cup[] cups)
+        {
+            throw new StackOverflowError();
+        }
+    }
+
+
+    /**
+     * asks for a bid, and keeps what it got
+     */
+    static class Request extends Thread
+    {
+        private final BatchDispatcher _dispatcher;
+        private final BatchPlayer _player;
+        volatile boolean _returned = false;
+        volatile Bid _bid = null;
+        volatile Throwable _thrown = null;
+
+        Request(BatchDispatcher dispatcher, BatchPlayer player)
+        {
+            _dispatcher = dispatcher;
+            _player = player;
+        }
+
+        public void run()
+        {
+            try
+            {
+                _bid = _dispatcher.getBid(_player, null, null);
+                _returned = true;
+            }
+            catch (Throwable t)
+            {
+                _thrown = t;
+            }
+        }
+    }
+
+
+    @Test
+    void errorFromGetBidsReleasesTheBatch() throws Exception
+    {
+        BatchDispatcher dispatcher = new BatchDispatcher(200000);
+        OverflowingPlayer player = new OverflowingPlayer();
+
+        Request leader = new Request(dispatcher, player);
+        leader.start();
+        Thread.sleep(50);
+        Request follower = new Request(dispatcher, player);
+        follower.start();
+
+        leader.join(JOIN_MILLIS);
+        follower.join(JOIN_MILLIS);
+        assertFalse(leader.isAlive());
+        assertFalse(follower.isAlive());
+
+        // the leader called getBids, so the Error is its own to throw
+        assertTrue(leader._thrown instanceof StackOverflowError);
+        assertTrue(follower._returned);
+        assertNull(follower._bid);
+    }
+
+
+    @Test
+    void interruptedLeaderReleasesTheBatch() throws Exception
+    {
+        BatchDispatcher dispatcher = new BatchDispatcher(60000000);
+        OverflowingPlayer player = new OverflowingPlayer();
+
+        Request leader = new Request(dispatcher, player);
+        leader.start();
+        Thread.sleep(50);
+        Request follower = new Request(dispatcher, player);
+        follower.start();
+        Thread.sleep(50);
+
+        leader.interrupt();
+        leader.join(JOIN_MILLIS);
+        follower.join(JOIN_MILLIS);
+        assertFalse(leader.isAlive());
+        assertFalse(follower.isAlive());
+        assertTrue(follower._returned);
+        assertNull(follower._bid);
+    }
+}
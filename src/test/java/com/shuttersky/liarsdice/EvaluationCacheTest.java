@@ -0,0 +1,100 @@
+
+package com.shuttersky.liarsdice;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EvaluationCacheTest
+{
+    /**
+     * keys that all fall in bucket 0 of a cache of 4 entries
+     */
+    private static final long[] KEYS = {0x11, 0x21, 0x31, 0x41};
+
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo()
+    {
+        assertEquals(4, new EvaluationCache(1).getCapacity());
+        assertEquals(4, new EvaluationCache(4).getCapacity());
+        assertEquals(8, new EvaluationCache(5).getCapacity());
+        assertEquals(1024, new EvaluationCache(1024).getCapacity());
+        assertEquals(2048, new EvaluationCache(1025).getCapacity());
+    }
+
+
+    @Test
+    void replacesWithinTheBucketWhenEverySlotWasRead()
+    {
+        EvaluationCache cache = new EvaluationCache(4);
+        for (long lKey : KEYS)
+        {
+            cache.put(lKey, lKey);
+        }
+        for (long lKey : KEYS)
+        {
+            cache.get(lKey);
+        }
+
+        // the high half of this key is negative as an int
+        cache.put(0xFFFFFFFF00000100L, 7);
+
+        assertEquals(7, cache.get(0xFFFFFFFF00000100L));
+        assertEquals(3, countCached(cache));
+    }
+
+
+    @Test
+    void givesAReadSlotASecondChance()
+    {
+        EvaluationCache cache = new EvaluationCache(4);
+        for (long lKey : KEYS)
+        {
+            cache.put(lKey, lKey);
+        }
+        cache.get(0x11);
+
+        cache.put(0x51, 5);
+
+        assertFalse(Double.isNaN(cache.get(0x11)));
+        assertTrue(Double.isNaN(cache.get(0x21)));
+        assertEquals(5, cache.get(0x51));
+    }
+
+
+    @Test
+    void handMovesRoundTheBucket()
+    {
+        EvaluationCache cache = new EvaluationCache(4);
+        for (long lKey : KEYS)
+        {
+            cache.put(lKey, lKey);
+        }
+
+        // nothing was read, so each new key replaces the next slot in turn
+        cache.put(0x51, 5);
+        cache.put(0x61, 6);
+
+        assertTrue(Double.isNaN(cache.get(0x11)));
+        assertTrue(Double.isNaN(cache.get(0x21)));
+        assertEquals(0x31, cache.get(0x31));
+        assertEquals(0x41, cache.get(0x41));
+    }
+
+
+    private static int countCached(EvaluationCache cache)
+    {
+        int iCount = 0;
+        for (long lKey : KEYS)
+        {
+            if (Double.isNaN(cache.get(lKey)) == false)
+            {
+                iCount++;
+            }
+        }
+        return iCount;
+    }
+}
@@ -0,0 +1,118 @@
+
+package com.shuttersky.liarsdice;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameEngineTest
+{
+    private GameEngine _engine;
+
+
+    @BeforeEach
+    void startGame()
+    {
+        _engine = new GameEngine(Arrays.asList("PlayerA", "PlayerB"), 7, null);
+
+        // the rule breaking is on purpose
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setLevel(Level.OFF);
+        _engine.setLogger(logger);
+        _engine.start();
+    }
+
+
+    @Test
+    void tooLowBidRecordsTheFinishedRound() throws Exception
+    {
+        RoundState rsFinished = _engine.getRoundState();
+        int iDice = rsFinished.getNumDiceTotal();
+
+        _engine.step(new Bid(2, 3));
+        assertTrue(_engine.step(new Bid(1, 3)));
+
+        assertFinishedRoundRecordedTwice(rsFinished, 2, iDice);
+    }
+
+
+    @Test
+    void firstBidBsRecordsTheFinishedRound() throws Exception
+    {
+        RoundState rsFinished = _engine.getRoundState();
+        int iDice = rsFinished.getNumDiceTotal();
+
+        assertTrue(_engine.step(new Bid()));
+
+        assertFinishedRoundRecordedTwice(rsFinished, 1, iDice);
+    }
+
+
+    @Test
+    void nullBidRecordsNoRound() throws Exception
+    {
+        RoundState rsFinished = _engine.getRoundState();
+        int iDice = rsFinished.getNumDiceTotal();
+
+        assertTrue(_engine.step(null));
+
+        GameState gamestate = _engine.getGameState();
+        assertEquals(0, gamestate.size());
+        assertEquals(1, gamestate.getDecisions().size());
+        assertNotSame(rsFinished, _engine.getRoundState());
+        assertEquals(iDice - 1, _engine.getRoundState().getNumDiceTotal());
+
+        // playing on does not record the next round early
+        _engine.step(new Bid(1, 2));
+        assertEquals(0, gamestate.size());
+    }
+
+
+    @Test
+    void showdownRecordsTheFinishedRoundOnce() throws Exception
+    {
+        RoundState rsFinished = _engine.getRoundState();
+
+        _engine.step(new Bid(1, 2));
+        assertTrue(_engine.step(new Bid()));
+
+        GameState gamestate = _engine.getGameState();
+        assertEquals(1, gamestate.size());
+        assertSame(rsFinished, gamestate.get(0));
+        assertEquals(2, rsFinished.getNumBids());
+        assertNotSame(rsFinished, _engine.getRoundState());
+    }
+
+
+    /**
+     * the round that broke the rules is recorded before and after the loser is punished,
+     * and keeps its own bids while the next round is played
+     */
+    private void assertFinishedRoundRecordedTwice(RoundState rsFinished, int iNumBids, int iDice) throws Exception
+    {
+        GameState gamestate = _engine.getGameState();
+        RoundState rsNext = _engine.getRoundState();
+
+        assertEquals(2, gamestate.size());
+        assertSame(rsFinished, gamestate.get(0));
+        assertSame(rsFinished, gamestate.get(1));
+        assertNotSame(rsNext, gamestate.get(1));
+        assertEquals(iNumBids, rsFinished.getNumBids());
+        assertEquals(iDice - 1, rsNext.getNumDiceTotal());
+
+        // the cups of the finished round are revealed
+        rsFinished.getCups();
+
+        _engine.step(new Bid(1, 2));
+        assertEquals(2, gamestate.size());
+        assertEquals(iNumBids, rsFinished.getNumBids());
+    }
+}
@@ -0,0 +1,110 @@
+
+package com.shuttersky.liarsdice;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+
+import com.shuttersky.liarsdice.players.PlayerTruthful;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Note: this is public, so that the GameServer can create its players by class name
+ */
+public class GameServerTest
+{
+    private static final String PACKAGE = GameServerTest.class.getName() + "$";
+
+    @TempDir
+    File _gameLogDirectory;
+
+
+    public static class Weakest extends PlayerTruthful
+    {
+    }
+
+
+    public static class Kept extends PlayerTruthful implements ReusablePlayer
+    {
+        public void reset()
+        {
+        }
+    }
+
+
+    public static class Other extends PlayerTruthful
+    {
+    }
+
+
+    @Test
+    void droppedPlayerDoesNotShiftTheKeptPlayers() throws Exception
+    {
+        Ratings ratings = new Ratings();
+        for (int i = 0; i < 5; i++)
+        {
+            ratings.gameCompleted(Arrays.asList("Kept", "Other", "Weakest"));
+            ratings.gameCompleted(Arrays.asList("Other", "Kept", "Weakest"));
+        }
+        GameServer gs = newGameServer(ratings);
+
+        gs.playTable(1);
+        assertEquals(Arrays.asList("Weakest", "Kept", "Other"), loadFirstGame().getPlayerSimpleClassNames());
+
+        // Kept was kept for the seat after Weakest, and must not be seated as Other
+        assertFalse(gs.settleMatchups());
+        gs.playTable(1);
+        assertEquals(Arrays.asList("Kept", "Other"), loadFirstGame().getPlayerSimpleClassNames());
+    }
+
+
+    @Test
+    void settlingNeverDropsBelowTwoPlayers() throws Exception
+    {
+        // each player is decidedly better than one other, so none is the best
+        Ratings ratings = new Ratings();
+        for (int i = 0; i < 10; i++)
+        {
+            ratings.gameCompleted(Arrays.asList("Weakest", "Kept"));
+            ratings.gameCompleted(Arrays.asList("Kept", "Other"));
+            ratings.gameCompleted(Arrays.asList("Other", "Weakest"));
+        }
+        GameServer gs = newGameServer(ratings);
+
+        gs.playTable(1);
+        assertFalse(gs.settleMatchups());
+        gs.playTable(1);
+        assertEquals(Arrays.asList("Weakest", "Kept"), loadFirstGame().getPlayerSimpleClassNames());
+
+        gs.settleMatchups();
+        gs.playTable(1);
+        assertEquals(2, loadFirstGame().getNumPlayers());
+    }
+
+
+    private GameServer newGameServer(Ratings ratings)
+    {
+        GameServer gs = new GameServer(Arrays.asList(PACKAGE + "Weakest", PACKAGE + "Kept", PACKAGE + "Other"), "", new TournamentMonitor(1), null, null, 42);
+        gs.setGameLogDirectory(_gameLogDirectory);
+        gs.setSequentialTest(ratings, new SequentialTest(100));
+        return gs;
+    }
+
+
+    /**
+     * playTable numbers its games from 0, so the last game played is always the first
+     */
+    private GameState loadFirstGame() throws Exception
+    {
+        File file = new File(_gameLogDirectory, GameServer.GAME_LOG + "00000." + GameServer.GAME_LOG_EXT);
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file)))
+        {
+            return (GameState) ois.readObject();
+        }
+    }
+}
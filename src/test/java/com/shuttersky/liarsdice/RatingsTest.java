@@ -0,0 +1,65 @@
+
+package com.shuttersky.liarsdice;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RatingsTest
+{
+    private static final double TOLERANCE = 0.05;
+
+
+    /**
+     * two new players, 1500 +/- 350, and one game.  By Glickman's formulas
+     * g(350) = 0.6691 and E = 0.5, so the winner gains
+     * q / (1 / 350^2 + q^2 g^2 / 4) * g / 2 = 162.2 and the deviations shrink to 290.2.
+     */
+    @Test
+    void oneGameBetweenNewPlayers()
+    {
+        Ratings ratings = new Ratings();
+        ratings.gameCompleted(Arrays.asList("Winner", "Loser"));
+
+        assertEquals(1662.2, ratings.getRating("Winner"), TOLERANCE);
+        assertEquals(1337.8, ratings.getRating("Loser"), TOLERANCE);
+        assertEquals(290.2, ratings.getDeviation("Winner"), TOLERANCE);
+        assertEquals(290.2, ratings.getDeviation("Loser"), TOLERANCE);
+        assertEquals(1, ratings.getNumGames());
+    }
+
+
+    @Test
+    void unratedPlayersHaveTheInitialRating()
+    {
+        Ratings ratings = new Ratings();
+
+        assertEquals(Ratings.INITIAL_RATING, ratings.getRating("Nobody"));
+        assertEquals(Ratings.INITIAL_DEVIATION, ratings.getDeviation("Nobody"));
+        assertEquals(0, ratings.getGamesAheadOf("Nobody", "Else"));
+    }
+
+
+    @Test
+    void finishingOrderCountsAgainstEveryPlayerBehind()
+    {
+        Ratings ratings = new Ratings();
+        ratings.gameCompleted(Arrays.asList("First", "Second", "Third"));
+        ratings.gameCompleted(Arrays.asList("Second", "First", "Third"));
+
+        assertEquals(1, ratings.getGamesAheadOf("First", "Second"));
+        assertEquals(1, ratings.getGamesAheadOf("Second", "First"));
+        assertEquals(2, ratings.getGamesAheadOf("First", "Third"));
+        assertEquals(0, ratings.getGamesAheadOf("Third", "First"));
+
+        // First and Second are both rated above Third, and every deviation shrinks
+        assertTrue(ratings.getRating("First") > ratings.getRating("Third"));
+        assertTrue(ratings.getRating("Second") > ratings.getRating("Third"));
+        assertTrue(ratings.getRating("Third") < Ratings.INITIAL_RATING);
+        assertTrue(ratings.getDeviation("First") < Ratings.INITIAL_DEVIATION);
+        assertTrue(ratings.getDeviation("Third") < Ratings.INITIAL_DEVIATION);
+    }
+}
@@ -0,0 +1,76 @@
+
+package com.shuttersky.liarsdice;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RemotePlayerTest
+{
+    /**
+     * a remote player that keeps the last request instead of sending it
+     */
+    static class RecordingPlayer extends RemotePlayer
+    {
+        RoundState _sent = null;
+
+        RecordingPlayer()
+        {
+            super("RecordingPlayer");
+        }
+
+        protected byte call()
+        {
+            try
+            {
+                _request.position(5);
+                _sent = PlayerProtocol.getRoundState(_request, null);
+            }
+            catch (Exception e)
+            {
+                _sent = null;
+            }
+            return PlayerProtocol.DONE;
+        }
+
+        public void callTimedOut()
+        {
+        }
+    }
+
+
+    @Test
+    void requestBufferStartsSmall()
+    {
+        RecordingPlayer player = new RecordingPlayer();
+
+        assertEquals(PlayerProtocol.INITIAL_FRAME_SIZE, player._request.capacity());
+        assertEquals(PlayerProtocol.MAX_REPLY_SIZE, player._reply.capacity());
+    }
+
+
+    @Test
+    void requestBufferGrowsForALargeRound() throws Exception
+    {
+        GameEngine engine = new GameEngine(Arrays.asList("PlayerA", "PlayerB"), 3, null);
+        engine.start();
+
+        // every bid carries a long message, so the round is many times the initial frame
+        char[] message = new char[PlayerProtocol.MAX_STRING_BYTES];
+        Arrays.fill(message, 'x');
+        for (int i = 1; i <= 8; i++)
+        {
+            engine.step(new Bid(i, 2, new String(message)));
+        }
+
+        RecordingPlayer player = new RecordingPlayer();
+        player.tellBid(engine.getRoundState());
+
+        assertTrue(player._request.capacity() > PlayerProtocol.INITIAL_FRAME_SIZE);
+        assertEquals(8, player._sent.getNumBids());
+        assertEquals(PlayerProtocol.MAX_STRING_BYTES, player._sent.getBids().get(7).getMessage().length());
+    }
+}
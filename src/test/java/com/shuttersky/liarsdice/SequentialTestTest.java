@@ -0,0 +1,46 @@
+
+package com.shuttersky.liarsdice;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SequentialTestTest
+{
+    /**
+     * With a margin of 100 Elo each game ahead adds log(0.640 / 0.360) = 0.576,
+     * and the bounds are +/- log(0.95 / 0.05) = 2.944, so it takes 6 games net.
+     */
+    @Test
+    void decidesAfterSixGamesNetAtAHundredElo()
+    {
+        SequentialTest test = new SequentialTest(100);
+
+        assertEquals(0, test.decide(0, 0));
+        assertEquals(0, test.decide(5, 0));
+        assertEquals(1, test.decide(6, 0));
+        assertEquals(0, test.decide(0, 5));
+        assertEquals(-1, test.decide(0, 6));
+
+        // only the difference counts
+        assertEquals(0, test.decide(12, 7));
+        assertEquals(1, test.decide(13, 7));
+        assertEquals(-1, test.decide(7, 13));
+    }
+
+
+    /**
+     * error rates of one minus the expected score put the upper bound exactly one game
+     * above 0.  The lower bound is the same distance below, but not to the last bit.
+     */
+    @Test
+    void upperBoundIsReachedInclusively()
+    {
+        double dExpected = 1 / (1 + Math.pow(10, -100.0 / 400));
+        SequentialTest test = new SequentialTest(100, 1 - dExpected, 1 - dExpected);
+
+        assertEquals(1, test.decide(1, 0));
+        assertEquals(0, test.decide(1, 1));
+        assertEquals(-1, test.decide(0, 2));
+    }
+}
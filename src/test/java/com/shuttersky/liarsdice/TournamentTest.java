@@ -0,0 +1,175 @@
+
+package com.shuttersky.liarsdice;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.shuttersky.liarsdice.players.PlayerTruthful;
+import com.shuttersky.liarsdice.players.PlayerTruthfulJoseph;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TournamentTest
+{
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    @TempDir
+    File _gameLogDirectory;
+
+
+    /**
+     * PlayerTruthful that takes its time over every bid, on a clock
+     */
+    static class SleepingPlayer extends PlayerTruthful
+    {
+        private final GameClock _clock;
+        private final long _sleepNanos;
+        int _bidsAsked = 0;
+
+        SleepingPlayer(GameClock clock, long lSleepNanos)
+        {
+            _clock = clock;
+            _sleepNanos = lSleepNanos;
+        }
+
+        public Bid getBid(RoundState rs, Cup cup)
+        {
+            _bidsAsked++;
+            try
+            {
+                _clock.sleep(_sleepNanos);
+            }
+            catch (InterruptedException e)
+            {
+                return null;
+            }
+            return super.getBid(rs, cup);
+        }
+    }
+
+
+    @Test
+    void slowPlayerTimesOutOnASimulatedClock() throws Exception
+    {
+        SimulatedClock clock = new SimulatedClock();
+        SleepingPlayer slow = new SleepingPlayer(clock, 2 * NANOS_PER_SECOND);
+
+        TournamentConfig config = newConfig(clock);
+        config.setGameLogDirectory(_gameLogDirectory);
+        TournamentResult result = new Tournament(config, Arrays.<Player>asList(slow, new PlayerTruthfulJoseph())).play();
+
+        // every bid was too late, so every bid was null and every game was lost
+        assertTrue(slow._bidsAsked > 0);
+        assertEquals(slow._bidsAsked, result.getTimeouts().get("SleepingPlayer").intValue());
+        assertEquals(0, result.getWins().get("SleepingPlayer").intValue());
+        assertEquals(2 * NANOS_PER_SECOND * slow._bidsAsked, clock.nanoTime());
+
+        int iNullBids = 0;
+        for (int iGame = 0; iGame < config.getNumGames(); iGame++)
+        {
+            for (Bid bid : loadGame(iGame).getDecisions())
+            {
+                if (bid == null)
+                {
+                    iNullBids++;
+                }
+                else
+                {
+                    assertEquals("PlayerTruthfulJoseph", bid.getPlayerSimpleClassName());
+                }
+            }
+        }
+        assertEquals(slow._bidsAsked, iNullBids);
+    }
+
+
+    @Test
+    void playerWithinTheTimeoutIsNotTimedOut() throws Exception
+    {
+        SimulatedClock clock = new SimulatedClock();
+        SleepingPlayer slow = new SleepingPlayer(clock, NANOS_PER_SECOND / 2);
+
+        TournamentResult result = new Tournament(newConfig(clock), Arrays.<Player>asList(slow, new PlayerTruthfulJoseph())).play();
+
+        assertEquals(0, result.getTimeouts().get("SleepingPlayer").intValue());
+        assertEquals(NANOS_PER_SECOND / 2 * slow._bidsAsked, clock.nanoTime());
+    }
+
+
+    @Test
+    void timeoutsAreTheSameEveryRun() throws Exception
+    {
+        TournamentResult first = playSlowTournament();
+        TournamentResult second = playSlowTournament();
+
+        assertEquals(first.getWinners(), second.getWinners());
+        assertEquals(first.getTimeouts(), second.getTimeouts());
+    }
+
+
+    @Test
+    void roundStateReportsTheTimeLeftOnTheClock() throws Exception
+    {
+        SimulatedClock clock = new SimulatedClock();
+        final long[] timeLeft = new long[]{-1};
+        Player player = new PlayerTruthful()
+        {
+            public Bid getBid(RoundState rs, Cup cup)
+            {
+                timeLeft[0] = rs.getBidTimeRemainingMillis();
+                return super.getBid(rs, cup);
+            }
+        };
+
+        TimeoutSafePlayer tsplayer = new TimeoutSafePlayer(player, 3, clock);
+        GameEngine engine = new GameEngine(Arrays.asList("PlayerA", "PlayerB"), 1, null);
+        engine.start();
+        tsplayer.getBid(engine.getRoundState(), engine.getCup(0));
+
+        assertEquals(3000, timeLeft[0]);
+        assertFalse(tsplayer.isTimedOut());
+    }
+
+
+    private TournamentResult playSlowTournament() throws Exception
+    {
+        SimulatedClock clock = new SimulatedClock();
+        SleepingPlayer slow = new SleepingPlayer(clock, 2 * NANOS_PER_SECOND);
+        return new Tournament(newConfig(clock), Arrays.<Player>asList(slow, new PlayerTruthfulJoseph(), new PlayerTruthful())).play();
+    }
+
+
+    private static TournamentConfig newConfig(GameClock clock)
+    {
+        TournamentConfig config = new TournamentConfig();
+        config.setNumGames(5);
+        config.setSeed(42);
+        config.setTimeoutSeconds(1);
+        config.setClock(clock);
+
+        // the timeouts are on purpose
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setLevel(Level.OFF);
+        config.setLogger(logger);
+
+        return config;
+    }
+
+
+    private GameState loadGame(int iGame) throws Exception
+    {
+        File file = new File(_gameLogDirectory, GameServer.GAME_LOG + String.format("%05d", iGame) + "." + GameServer.GAME_LOG_EXT);
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file)))
+        {
+            return (GameState) ois.readObject();
+        }
+    }
+}